@@ -0,0 +1,59 @@
+package com.selesse.jdiskarbitration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a fully populated DiskInfo. Inputs are state fields so they are not constant-folded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DiskInfoBuilderBenchmark {
+
+    public String bsdName = "disk4s1";
+    public String volumePath = "/Volumes/USB4-1";
+    public String protocol = "USB";
+    public long mediaSize = 8_000_000_000L;
+    public int bsdMinor = 65;
+
+    @Benchmark
+    public DiskInfo build() {
+        return new DiskInfo.Builder()
+            .bsdName(bsdName)
+            .volumePath(volumePath)
+            .volumeName("USB4-1")
+            .volumeKind("msdos")
+            .volumeUUID("00000004-0000-4000-8000-000000000001")
+            .volumeMountable(true)
+            .volumeNetwork(false)
+            .volumeType("MS-DOS (FAT32)")
+            .deviceProtocol(protocol)
+            .deviceModel("Ultra Fit")
+            .deviceVendor("SanDisk")
+            .deviceRevision("1.00")
+            .deviceUnit(4L)
+            .isInternal(false)
+            .isRemovable(true)
+            .mediaSize(mediaSize)
+            .mediaBlockSize(512L)
+            .isWritable(true)
+            .isEjectable(true)
+            .isLeaf(true)
+            .mediaContent("EBD0A0A2-B9E5-4433-87C0-68B6B72699C7")
+            .mediaBsdMajor(1)
+            .mediaBsdMinor(bsdMinor)
+            .mediaBsdName(bsdName)
+            .mediaBsdUnit(4)
+            .mediaKind("IOMedia")
+            .mediaName("Untitled 1")
+            .busName("/")
+            .build();
+    }
+}
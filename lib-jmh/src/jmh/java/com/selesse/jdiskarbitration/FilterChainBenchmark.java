@@ -0,0 +1,68 @@
+package com.selesse.jdiskarbitration;
+
+import com.selesse.jdiskarbitration.internal.FilterChain;
+import com.selesse.jdiskarbitration.internal.SimulatedBackend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates builder filter chains the way the watcher does, against a disk that passes them all
+ * and an internal disk that most of them reject. The chain reorders itself as it learns which
+ * filters reject the internal disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FilterChainBenchmark {
+
+    @Param({"usbOnly", "externalUsbMinSize", "protocolKindCustom"})
+    public String chain;
+
+    private FilterChain filters;
+    private DiskInfo usbVolume;
+    private DiskInfo internalVolume;
+
+    @Setup
+    public void setUp() {
+        DiskEventManager.Builder builder = DiskEventManager.builder();
+        switch (chain) {
+            case "usbOnly" -> builder.usbOnly();
+            case "externalUsbMinSize" -> builder.externalOnly().usbOnly().minSize(1_000_000_000L);
+            case "protocolKindCustom" -> builder.protocol("usb").volumeKind("MSDOS")
+                .filter(info -> info.volumeInfo().name() != null && info.volumeInfo().name().startsWith("USB"));
+            default -> throw new IllegalArgumentException(chain);
+        }
+        filters = new FilterChain(builder.filters());
+        usbVolume = SimulatedBackend.externalVolume(4, 1);
+        internalVolume = new DiskInfo.Builder()
+            .bsdName("disk3s1")
+            .volumeName("Macintosh HD")
+            .volumeKind("apfs")
+            .deviceProtocol("Apple Fabric")
+            .isInternal(true)
+            .mediaSize(494_384_795_648L)
+            .build();
+    }
+
+    @Benchmark
+    public boolean acceptUsbVolume() {
+        return accepts(usbVolume);
+    }
+
+    @Benchmark
+    public boolean rejectInternalVolume() {
+        return accepts(internalVolume);
+    }
+
+    private boolean accepts(DiskInfo diskInfo) {
+        return filters.accepts(diskInfo);
+    }
+}
@@ -0,0 +1,79 @@
+package com.selesse.jdiskarbitration;
+
+import com.selesse.jdiskarbitration.internal.NativeBackend;
+import com.selesse.jdiskarbitration.internal.SimulatedBackend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first event of a command-line tool that starts a manager, waits for the first attached
+ * disk and exits. Each fork measures one cold run, so class loading, native binding and key
+ * resolution are all part of the result.
+ *
+ * <p>The {@code macOS} backend binds the real frameworks and only runs on a Mac.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(20)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class StartupBenchmark {
+
+    @Param({"simulated"})
+    public String backend;
+
+    private NativeBackend nativeBackend;
+
+    @Setup
+    public void setUp() {
+        if (backend.equals("simulated")) {
+            SimulatedBackend simulated = new SimulatedBackend();
+            simulated.appear(SimulatedBackend.externalWholeDisk(4));
+            simulated.appear(SimulatedBackend.externalVolume(4, 1));
+            nativeBackend = simulated;
+        } else if (backend.equals("macOS")) {
+            nativeBackend = NativeBackend.macOS();
+        } else {
+            throw new IllegalArgumentException(backend);
+        }
+    }
+
+    @Benchmark
+    public DiskInfo firstEvent() throws InterruptedException {
+        CountDownLatch appeared = new CountDownLatch(1);
+        DiskInfo[] first = new DiskInfo[1];
+        DiskEventManager manager = DiskEventManagerTestSupport.backend(DiskEventManager.builder(), nativeBackend)
+            .listener(new DiskEventAdapter() {
+                @Override
+                public void onDiskAppeared(DiskInfo diskInfo) {
+                    if (appeared.getCount() > 0) {
+                        first[0] = diskInfo;
+                        appeared.countDown();
+                    }
+                }
+            })
+            .build();
+        manager.start();
+        try {
+            if (!appeared.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("No disk appeared");
+            }
+            return first[0];
+        } finally {
+            manager.stop();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.sun.jna.Pointer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads single values out of a disk description. With {@code cStringPtr} false, strings are copied
+ * through {@code CFStringGetBytes} instead of read in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CoreFoundationValueReaderBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cStringPtr;
+
+    private CoreFoundation cf;
+    private CoreFoundationValueReader reader;
+    private DiskArbitrationKeys keys;
+    private Pointer dict;
+
+    @Setup
+    public void setUp() {
+        SimulatedBackend backend = new SimulatedBackend();
+        if (!cStringPtr) {
+            backend.disableCStringPointers();
+        }
+        backend.attachExternalDrive(4, 1);
+        cf = backend.coreFoundation();
+        keys = backend.keys();
+        reader = new CoreFoundationValueReader(cf);
+        Pointer disk = backend.copyDisk("disk4s1");
+        dict = backend.diskArbitration().DADiskCopyDescription(disk);
+        cf.CFRelease(disk);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cf.CFRelease(dict);
+    }
+
+    @Benchmark
+    public String getString() {
+        return reader.getString(dict, keys.key(DiskField.DEVICE_PATH));
+    }
+
+    @Benchmark
+    public String getUUID() {
+        return reader.getUUID(dict, keys.key(DiskField.VOLUME_UUID));
+    }
+
+    @Benchmark
+    public String getVolumePath() {
+        return reader.getVolumePath(dict, keys.key(DiskField.VOLUME_PATH));
+    }
+
+    @Benchmark
+    public Long getLong() {
+        return reader.getLong(dict, keys.key(DiskField.MEDIA_SIZE));
+    }
+
+    @Benchmark
+    public Integer getInteger() {
+        return reader.getInteger(dict, keys.key(DiskField.MEDIA_BSD_MINOR));
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return reader.getBoolean(dict, keys.key(DiskField.MEDIA_REMOVABLE));
+    }
+}
@@ -0,0 +1,75 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import com.sun.jna.Pointer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps a mounted USB partition, as the watcher does for every event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DiskInfoMapperBenchmark {
+    private static final Set<DiskField> VOLUME_FIELDS = EnumSet.of(DiskField.VOLUME_PATH, DiskField.VOLUME_NAME,
+        DiskField.VOLUME_KIND, DiskField.VOLUME_UUID, DiskField.VOLUME_MOUNTABLE, DiskField.VOLUME_NETWORK,
+        DiskField.VOLUME_TYPE);
+
+    private CoreFoundation cf;
+    private Pointer disk;
+    private DiskInfoMapper fullMapper;
+    private DiskInfoMapper projectedMapper;
+
+    @Setup
+    public void setUp() {
+        SimulatedBackend backend = new SimulatedBackend();
+        backend.attachExternalDrive(4, 1);
+        cf = backend.coreFoundation();
+        disk = backend.copyDisk("disk4s1");
+        fullMapper = mapper(backend, EnumSet.allOf(DiskField.class));
+        projectedMapper = mapper(backend,
+            EnumSet.of(DiskField.VOLUME_PATH, DiskField.DEVICE_PROTOCOL, DiskField.DEVICE_INTERNAL, DiskField.MEDIA_SIZE));
+    }
+
+    @TearDown
+    public void tearDown() {
+        cf.CFRelease(disk);
+    }
+
+    @Benchmark
+    public DiskInfo fromDADisk() {
+        return fullMapper.fromDADisk(disk);
+    }
+
+    @Benchmark
+    public DiskInfo fromDADiskProjected() {
+        return projectedMapper.fromDADisk(disk);
+    }
+
+    @Benchmark
+    public DiskInfo.VolumeInfo lazySnapshotVolumeInfo() {
+        DiskSnapshot snapshot = fullMapper.lazySnapshot(disk);
+        try {
+            return snapshot.diskInfo(VOLUME_FIELDS).volumeInfo();
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    private static DiskInfoMapper mapper(SimulatedBackend backend, EnumSet<DiskField> fields) {
+        CoreFoundation cf = backend.coreFoundation();
+        return new DiskInfoMapper(backend.diskArbitration(), cf, new CoreFoundationValueReader(cf), backend.keys(), fields);
+    }
+}
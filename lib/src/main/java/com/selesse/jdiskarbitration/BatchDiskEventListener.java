@@ -0,0 +1,23 @@
+package com.selesse.jdiskarbitration;
+
+import java.util.List;
+
+/**
+ * Receives disk events in batches rather than one callback per event.
+ *
+ * <p>A batch holds every event captured during one pass of the DiskArbitration run loop, so a burst
+ * such as a hub powering on with many partitions arrives as a single call. Events are in the order
+ * they occurred.
+ *
+ * @see DiskEventManager.Builder#batchListener(BatchDiskEventListener, int, java.time.Duration)
+ */
+@FunctionalInterface
+public interface BatchDiskEventListener {
+
+    /**
+     * Called with the events captured since the previous batch.
+     *
+     * @param events the events, oldest first; never empty
+     */
+    void onDiskEvents(List<DiskEvent> events);
+}
@@ -0,0 +1,21 @@
+package com.selesse.jdiskarbitration;
+
+import java.util.Set;
+
+/**
+ * A disk event as delivered to a {@link BatchDiskEventListener}.
+ *
+ * @param type          what happened to the disk
+ * @param diskInfo      the disk, as of the event
+ * @param changedFields the fields that changed, for {@link Type#DESCRIPTION_CHANGED}; empty otherwise
+ */
+public record DiskEvent(Type type, DiskInfo diskInfo, Set<DiskField> changedFields) {
+
+    public enum Type {
+        APPEARED,
+        DISAPPEARED,
+        DESCRIPTION_CHANGED,
+        MOUNTED,
+        UNMOUNTED
+    }
+}
@@ -1,9 +1,42 @@
 package com.selesse.jdiskarbitration;
 
+import java.util.List;
+import java.util.Set;
+
 public interface DiskEventListener {
     void onDiskAppeared(DiskInfo diskInfo);
     void onDiskDisappeared(DiskInfo diskInfo);
     void onDiskDescriptionChanged(DiskInfo diskInfo);
+
+    /**
+     * Called when a disk's description changes, with the fields DiskArbitration reported as changed.
+     *
+     * <p>Only fields inside the {@link DiskEventManager.Builder#fields(DiskField...) projection} are
+     * reported. If a changed key cannot be identified, every projected field is reported. The default
+     * implementation calls {@link #onDiskDescriptionChanged(DiskInfo)}.
+     *
+     * @param diskInfo      the disk after the change
+     * @param changedFields the fields whose values changed
+     */
+    default void onDiskDescriptionChanged(DiskInfo diskInfo, Set<DiskField> changedFields) {
+        onDiskDescriptionChanged(diskInfo);
+    }
     void onDiskMounted(DiskInfo diskInfo);
     void onDiskUnmounted(DiskInfo diskInfo);
+
+    /**
+     * Called once after {@link DiskEventManager#start()} with the disks that were already attached
+     * and pass the filters, in place of an {@link #onDiskAppeared(DiskInfo)} call for each.
+     *
+     * <p>Any other event arriving before DiskArbitration has finished replaying the attached disks
+     * delivers the snapshot early, so events stay in order; disks replayed after that are reported
+     * one by one. The default implementation calls {@link #onDiskAppeared(DiskInfo)} for each disk.
+     *
+     * @param disks the attached disks, in the order DiskArbitration reported them
+     */
+    default void onInitialSnapshot(List<DiskInfo> disks) {
+        for (DiskInfo diskInfo : disks) {
+            onDiskAppeared(diskInfo);
+        }
+    }
 }
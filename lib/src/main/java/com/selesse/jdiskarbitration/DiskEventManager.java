@@ -1,9 +1,27 @@
 package com.selesse.jdiskarbitration;
 
+import com.selesse.jdiskarbitration.internal.BatchingEventDispatcher;
+import com.selesse.jdiskarbitration.internal.DirectEventDispatcher;
 import com.selesse.jdiskarbitration.internal.DiskEventWatcher;
+import com.selesse.jdiskarbitration.internal.DiskFilter;
+import com.selesse.jdiskarbitration.internal.EventDispatcher;
+import com.selesse.jdiskarbitration.internal.NativeBackend;
+import com.selesse.jdiskarbitration.internal.PipelineMetrics;
+import com.selesse.jdiskarbitration.internal.QueuedEventDispatcher;
+import com.selesse.jdiskarbitration.internal.WatcherConfig;
 
+import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
 /**
@@ -32,8 +50,8 @@ import java.util.function.Predicate;
 public class DiskEventManager {
     private final DiskEventWatcher watcher;
 
-    private DiskEventManager(DiskEventListener listener, List<Predicate<DiskInfo>> filters) {
-        this.watcher = new DiskEventWatcher(listener, filters);
+    private DiskEventManager(WatcherConfig config) {
+        this.watcher = new DiskEventWatcher(config);
     }
 
     /**
@@ -47,9 +65,18 @@ public class DiskEventManager {
      * </ul>
      *
      * <p>The shutdown hook ensures proper cleanup even if {@link #stop()} is not called.
+     *
+     * <p>DiskArbitration first reports every disk that is already attached. The returned future
+     * completes with the ones that pass the filters once that initial enumeration is drained, and
+     * their appearances reach the listener in a single
+     * {@link DiskEventListener#onInitialSnapshot(List)} call. The future completes on the
+     * event-loop thread, so dependent stages should be quick or asynchronous; it is cancelled if
+     * the manager is stopped first.
+     *
+     * @return a future completed with the disks attached before the manager started
      */
-    public void start() {
-        watcher.start();
+    public CompletableFuture<List<DiskInfo>> start() {
+        return watcher.start();
     }
 
     /**
@@ -69,6 +96,32 @@ public class DiskEventManager {
         watcher.stop();
     }
 
+    /**
+     * Returns the disks currently attached that pass the filters, as an immutable snapshot.
+     *
+     * <p>The snapshot is replaced after every disk event and can be queried from any thread without
+     * contending with the event loop. Cleared when the manager is stopped.
+     *
+     * @return the current disk registry
+     * @throws IllegalStateException if {@link Builder#diskRegistry()} was not enabled
+     */
+    public DiskRegistry disks() {
+        return watcher.disks();
+    }
+
+    /**
+     * Returns the event pipeline's counters, latencies and queue depths as of now.
+     *
+     * <p>Metrics are only collected once enabled with {@link Builder#metrics()} or
+     * {@link Builder#metricsEndpoint(InetSocketAddress)}. This method may be called from any thread.
+     *
+     * @return a snapshot of the metrics
+     * @throws IllegalStateException if metrics were not enabled
+     */
+    public DiskEventMetrics metrics() {
+        return watcher.metrics();
+    }
+
     /**
      * Creates a new builder for configuring a DiskEventManager.
      *
@@ -82,8 +135,34 @@ public class DiskEventManager {
      * Builder for creating a DiskEventManager with filters and listener.
      */
     public static class Builder {
+        // Device protocol names as reported by IOKit's "Physical Interconnect" property
+        private static final List<String> KNOWN_PROTOCOLS = List.of(
+                "USB", "SATA", "PCI", "PCI-Express", "Thunderbolt", "FireWire", "Secure Digital",
+                "Apple Fabric", "SAS", "SCSI", "ATA", "ATAPI", "Virtual Interface");
+
         private DiskEventListener listener;
-        private final List<Predicate<DiskInfo>> filters = new ArrayList<>();
+        private BatchDiskEventListener batchListener;
+        private int maxBatchSize;
+        private Duration maxBatchLatency;
+        private final List<DiskFilter> filters = new ArrayList<>();
+        private final Map<DiskField, Object> nativeMatch = new LinkedHashMap<>();
+        private final Set<DiskField> filterFields = EnumSet.noneOf(DiskField.class);
+        private Set<DiskField> fields;
+        private boolean asyncDispatch;
+        private Executor dispatchExecutor;
+        private int dispatchQueueCapacity;
+        private OverflowPolicy overflowPolicy;
+        private boolean lazyDiskInfo;
+        private boolean diskRegistry;
+        private boolean sharedSession;
+        private Executor mappingExecutor;
+        private int mappingThreads;
+        private Duration descriptionQuietWindow;
+        private Set<DiskEvent.Type> eventTypes;
+        private Set<DiskField> watchedFields;
+        private NativeBackend backend;
+        private boolean metrics;
+        private InetSocketAddress metricsEndpoint;
 
         /**
          * Sets the listener that will receive disk event callbacks.
@@ -96,26 +175,396 @@ public class DiskEventManager {
             return this;
         }
 
+        /**
+         * Sets a listener that receives events in batches, in place of {@link #listener(DiskEventListener)}.
+         *
+         * <p>Events are collected on the DiskArbitration run-loop thread and delivered there as one
+         * ordered list when the run loop has handled every pending callback and is about to sleep. A
+         * batch is delivered earlier once it holds {@code maxBatchSize} events, or once its oldest
+         * event has waited {@code maxLatency} while the run loop stays busy. Whatever is still pending
+         * when the manager stops is delivered by {@link DiskEventManager#stop()}, on its caller's
+         * thread.
+         *
+         * @param listener     the batch listener
+         * @param maxBatchSize the largest batch to deliver
+         * @param maxLatency   how long an event may wait for the rest of its batch
+         * @return this builder
+         */
+        public Builder batchListener(BatchDiskEventListener listener, int maxBatchSize, Duration maxLatency) {
+            if (listener == null) {
+                throw new IllegalArgumentException("Listener must not be null");
+            }
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+            }
+            if (maxLatency == null || maxLatency.isNegative()) {
+                throw new IllegalArgumentException("Max latency must not be negative: " + maxLatency);
+            }
+            this.batchListener = listener;
+            this.maxBatchSize = maxBatchSize;
+            this.maxBatchLatency = maxLatency;
+            return this;
+        }
+
+        /**
+         * Delivers events to the listener asynchronously instead of on the DiskArbitration run-loop thread.
+         *
+         * <p>The run-loop thread captures each event and hands it to a bounded queue, so a slow listener
+         * no longer delays the native callbacks. Events are still delivered one at a time, in order,
+         * except with {@link OverflowPolicy#CALLER_RUNS}: an event that finds the queue full is
+         * delivered on the run-loop thread right away, ahead of the events still queued and possibly
+         * while the executor is delivering one of them, so the listener must then be thread-safe.
+         *
+         * @param executor       the executor that delivers events to the listener
+         * @param queueCapacity  the maximum number of events waiting for delivery
+         * @param overflowPolicy what to do when the queue is full
+         * @return this builder
+         */
+        public Builder dispatchExecutor(Executor executor, int queueCapacity, OverflowPolicy overflowPolicy) {
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor must not be null");
+            }
+            return configureDispatch(executor, queueCapacity, overflowPolicy);
+        }
+
+        /**
+         * Delivers events to the listener asynchronously on a dedicated {@code DiskWatcher-Dispatch} thread.
+         *
+         * @param queueCapacity  the maximum number of events waiting for delivery
+         * @param overflowPolicy what to do when the queue is full
+         * @return this builder
+         * @see #dispatchExecutor(Executor, int, OverflowPolicy)
+         */
+        public Builder dispatchExecutor(int queueCapacity, OverflowPolicy overflowPolicy) {
+            return configureDispatch(null, queueCapacity, overflowPolicy);
+        }
+
+        private Builder configureDispatch(Executor executor, int queueCapacity, OverflowPolicy overflowPolicy) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+            }
+            if (overflowPolicy == null) {
+                throw new IllegalArgumentException("Overflow policy must not be null");
+            }
+            this.asyncDispatch = true;
+            this.dispatchExecutor = executor;
+            this.dispatchQueueCapacity = queueCapacity;
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Decodes disk properties on demand instead of reading every property for every event.
+         *
+         * <p>The native description of each disk is kept until its callback returns, and each field is
+         * decoded from it the first time it is needed. A filter that declared its fields reads only
+         * those, and description changes that leave the projected fields unchanged are detected from
+         * the description itself, so disks filtered out and suppressed changes are never decoded in
+         * full. Listeners still receive fully decoded DiskInfo records.
+         *
+         * @return this builder
+         */
+        public Builder lazyDiskInfo() {
+            this.lazyDiskInfo = true;
+            return this;
+        }
+
+        /**
+         * Keeps an indexed registry of the attached disks that pass the filters, available
+         * through {@link DiskEventManager#disks()}.
+         *
+         * @return this builder
+         */
+        public Builder diskRegistry() {
+            this.diskRegistry = true;
+            return this;
+        }
+
+        /**
+         * Merges bursts of description changes to the same disk into a single
+         * {@link DiskEventListener#onDiskDescriptionChanged(DiskInfo, Set)} call.
+         *
+         * <p>A change is delivered once its disk has been quiet for the given window (and after at most
+         * ten windows while it keeps changing), carrying the latest DiskInfo and every field that changed
+         * in the burst. Mount, unmount and disappearance still arrive in order: a held change is
+         * delivered before any of them.
+         *
+         * @param quietWindow how long a disk must go without changes before its change is delivered
+         * @return this builder
+         */
+        public Builder coalesceDescriptionChanges(Duration quietWindow) {
+            if (quietWindow == null || quietWindow.isZero() || quietWindow.isNegative()) {
+                throw new IllegalArgumentException("Quiet window must be positive: " + quietWindow);
+            }
+            this.descriptionQuietWindow = quietWindow;
+            return this;
+        }
+
+        /**
+         * Delivers only events of the given types, and leaves out the work behind the others.
+         *
+         * <p>By default the types are those whose listener method is overridden: a
+         * {@link DiskEventAdapter} that only overrides {@link DiskEventListener#onDiskMounted(DiskInfo)}
+         * receives mounts alone. Disks are then only mapped for the callbacks that can lead to a
+         * delivered event, and DiskArbitration is not asked for description changes when neither those
+         * nor mounts and unmounts are wanted. Mount tracking stays correct whatever the types. A batch
+         * listener receives every type unless this is called.
+         *
+         * @param types the event types to deliver
+         * @return this builder
+         */
+        public Builder eventTypes(DiskEvent.Type... types) {
+            if (types.length == 0) {
+                throw new IllegalArgumentException("At least one event type is required");
+            }
+            this.eventTypes = EnumSet.copyOf(Arrays.asList(types));
+            return this;
+        }
+
+        /**
+         * Asks DiskArbitration to report description changes of the given fields only, so changes to
+         * any other key, such as icon or TDM state churn, never reach the JVM.
+         *
+         * <p>The volume path is always watched because mount tracking depends on it. Unless this is
+         * called, only the volume path is watched when neither description changes nor the
+         * {@link #diskRegistry() registry} are wanted, and every key otherwise. Since the other keys
+         * go unreported, each reported change reads the disk afresh, and a registered disk may be out
+         * of date in unwatched fields until its next reported change. Has no effect with
+         * {@link #sharedSession()}.
+         *
+         * @param fields the fields whose changes to report
+         * @return this builder
+         */
+        public Builder watchFields(DiskField... fields) {
+            Set<DiskField> watched = EnumSet.of(DiskField.VOLUME_PATH);
+            watched.addAll(Arrays.asList(fields));
+            this.watchedFields = watched;
+            return this;
+        }
+
+        /**
+         * Runs on the given native backend instead of the macOS frameworks. Only reachable from the
+         * test fixtures, through {@code DiskEventManagerTestSupport}, to drive the manager with the
+         * scripted disk events of a {@code SimulatedBackend}.
+         *
+         * @param backend the backend providing DiskArbitration and CoreFoundation
+         * @return this builder
+         */
+        Builder backend(NativeBackend backend) {
+            if (backend == null) {
+                throw new IllegalArgumentException("Backend must not be null");
+            }
+            this.backend = backend;
+            return this;
+        }
+
+        /**
+         * Shares one DiskArbitration session and run-loop thread with every other started manager
+         * built with {@code sharedSession()} on the same backend.
+         *
+         * <p>Each disk is then mapped once per event for all of those managers, reading every field.
+         * Filters still apply to each manager on its own, but are no longer matched natively, and
+         * {@link #lazyDiskInfo()} has no effect. A manager started while the session is running first
+         * receives an appearance for every disk already attached. The session is released when the
+         * last of its managers is stopped.
+         *
+         * @return this builder
+         */
+        public Builder sharedSession() {
+            this.sharedSession = true;
+            return this;
+        }
+
+        /**
+         * Maps disks on the given executor instead of the DiskArbitration run-loop thread.
+         *
+         * <p>The native callback then only retains the disk and records its place in the sequence of
+         * events; reading and decoding its description happens on the executor, so the disks of a burst
+         * are mapped in parallel. Events of the same disk are still mapped one after the other, and every
+         * event reaches the filters and the listener on the run-loop thread in the order DiskArbitration
+         * reported it.
+         *
+         * @param executor the executor that maps disks
+         * @return this builder
+         */
+        public Builder mappingExecutor(Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor must not be null");
+            }
+            this.mappingExecutor = executor;
+            this.mappingThreads = 0;
+            return this;
+        }
+
+        /**
+         * Maps disks on {@code threads} dedicated {@code DiskWatcher-Mapper} daemon threads, which are
+         * stopped with the manager.
+         *
+         * @param threads the number of mapping threads
+         * @return this builder
+         * @see #mappingExecutor(Executor)
+         */
+        public Builder mappingExecutor(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Mapping threads must be positive: " + threads);
+            }
+            this.mappingExecutor = null;
+            this.mappingThreads = threads;
+            return this;
+        }
+
+        /**
+         * Collects the event pipeline's counters, latencies and queue depths, returned by
+         * {@link DiskEventManager#metrics()}.
+         *
+         * <p>Counters are striped and histograms lock-free, but every event still costs a few clock
+         * reads and counter updates, and the listener is wrapped to time its calls. Without this,
+         * none of that happens.
+         *
+         * @return this builder
+         */
+        public Builder metrics() {
+            this.metrics = true;
+            return this;
+        }
+
+        /**
+         * Serves {@link DiskEventManager#metrics()} in the Prometheus text format at {@code /metrics},
+         * from the JDK's built-in HTTP server.
+         *
+         * <p>The server is bound by {@link DiskEventManager#start()}, which fails with an
+         * {@link java.io.UncheckedIOException} if the address is unavailable, and closed by
+         * {@link DiskEventManager#stop()}. Scrapes are served on the server's own daemon thread.
+         * Enables {@link #metrics()}.
+         *
+         * @param address the address to listen on, e.g. {@code new InetSocketAddress("127.0.0.1", 9464)}
+         * @return this builder
+         */
+        public Builder metricsEndpoint(InetSocketAddress address) {
+            if (address == null) {
+                throw new IllegalArgumentException("Address must not be null");
+            }
+            this.metricsEndpoint = address;
+            this.metrics = true;
+            return this;
+        }
+
         /**
          * Adds a custom filter for disk events.
          *
-         * <p>Only disks that pass all filters will trigger listener callbacks.
+         * <p>Only disks that pass all filters will trigger listener callbacks. Filters are evaluated
+         * cheapest and most selective first rather than in the order they were added; a filter added
+         * with this method is assumed to read every field, so it runs after the others.
          *
          * @param filter the filter predicate
          * @return this builder
+         * @see #filter(Predicate, DiskField...)
          */
         public Builder filter(Predicate<DiskInfo> filter) {
-            this.filters.add(filter);
+            this.filters.add(new DiskFilter(filter, null));
             return this;
         }
 
+        /**
+         * Adds a custom filter that only reads the given fields.
+         *
+         * <p>Like the built-in filters, it is then ordered by how many fields it reads and how often it
+         * rejects a disk. Unless {@link #sharedSession()} is used, disks are first mapped with just the
+         * fields of such filters, or with {@link #lazyDiskInfo()} decoded only as far as each filter
+         * declared, and only those that pass them are mapped in full. The predicate must therefore not
+         * read any other field, and may be called on a mapping thread when
+         * {@link #mappingExecutor(Executor)} is used.
+         *
+         * @param filter the filter predicate
+         * @param fields the fields the predicate reads, which must be in the projection
+         * @return this builder
+         */
+        public Builder filter(Predicate<DiskInfo> filter, DiskField... fields) {
+            if (filter == null) {
+                throw new IllegalArgumentException("Filter must not be null");
+            }
+            Set<DiskField> declared = EnumSet.noneOf(DiskField.class);
+            declared.addAll(Arrays.asList(fields));
+            filterFields.addAll(declared);
+            this.filters.add(new DiskFilter(filter, declared));
+            return this;
+        }
+
+        /**
+         * Restricts the properties read for each disk to the given fields.
+         *
+         * <p>Properties outside the projection are never read from the native description and are
+         * left null ({@code false} for primitive booleans). The volume path is always read because
+         * mount tracking depends on it. Built-in filters must only use projected fields, otherwise
+         * {@link #build()} fails. May be combined with {@link #fields(DiskField.Group...)}.
+         *
+         * @param fields the fields to read
+         * @return this builder
+         */
+        public Builder fields(DiskField... fields) {
+            projection().addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        /**
+         * Restricts the properties read for each disk to every field of the given records.
+         *
+         * @param groups the records to read
+         * @return this builder
+         * @see #fields(DiskField...)
+         */
+        public Builder fields(DiskField.Group... groups) {
+            Set<DiskField.Group> selected = EnumSet.noneOf(DiskField.Group.class);
+            selected.addAll(Arrays.asList(groups));
+            for (DiskField field : DiskField.values()) {
+                if (selected.contains(field.group())) {
+                    projection().add(field);
+                }
+            }
+            return this;
+        }
+
+        private Set<DiskField> projection() {
+            if (fields == null) {
+                fields = EnumSet.of(DiskField.VOLUME_PATH);
+            }
+            return fields;
+        }
+
+        /**
+         * Adds a built-in filter that reads a single field.
+         */
+        private Builder fieldFilter(DiskField field, Predicate<DiskInfo> filter) {
+            return filter(filter, field);
+        }
+
+        /**
+         * Returns the filters added so far, in the order they were added.
+         */
+        List<DiskFilter> filters() {
+            return List.copyOf(filters);
+        }
+
+        /**
+         * Adds a filter that DiskArbitration can also evaluate natively, so that disks it rejects
+         * are never mapped. The predicate still runs in Java to keep its exact semantics.
+         */
+        private Builder nativeFilter(DiskField field, Object value, Predicate<DiskInfo> filter) {
+            // Conflicting values can never both match, so keeping the first one is enough
+            nativeMatch.putIfAbsent(field, value);
+            return fieldFilter(field, filter);
+        }
+
         /**
          * Filters to only external devices (not internal drives).
          *
+         * <p>Disks without a device, such as network volumes, count as external. DiskArbitration would
+         * reject them for lacking the internal flag, so this filter is not matched natively.
+         *
          * @return this builder
          */
         public Builder externalOnly() {
-            return filter(DiskInfo::isExternal);
+            return fieldFilter(DiskField.DEVICE_INTERNAL, DiskInfo::isExternal);
         }
 
         /**
@@ -124,7 +573,7 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder usbOnly() {
-            return filter(DiskInfo::isUSB);
+            return nativeFilter(DiskField.DEVICE_PROTOCOL, "USB", DiskInfo::isUSB);
         }
 
         /**
@@ -133,7 +582,7 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder removableOnly() {
-            return filter(info -> info.mediaInfo().isRemovable());
+            return nativeFilter(DiskField.MEDIA_REMOVABLE, true, DiskInfo::isRemovable);
         }
 
         /**
@@ -142,7 +591,7 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder ejectableOnly() {
-            return filter(info -> info.mediaInfo().isEjectable());
+            return nativeFilter(DiskField.MEDIA_EJECTABLE, true, info -> info.mediaInfo().isEjectable());
         }
 
         /**
@@ -151,7 +600,7 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder writableOnly() {
-            return filter(info -> info.mediaInfo().isWritable());
+            return nativeFilter(DiskField.MEDIA_WRITABLE, true, info -> info.mediaInfo().isWritable());
         }
 
         /**
@@ -161,7 +610,8 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder minSize(long minBytes) {
-            return filter(info -> info.mediaInfo().mediaSize() != null && info.mediaInfo().mediaSize() >= minBytes);
+            return fieldFilter(DiskField.MEDIA_SIZE,
+                info -> info.mediaInfo().mediaSize() != null && info.mediaInfo().mediaSize() >= minBytes);
         }
 
         /**
@@ -171,7 +621,8 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder maxSize(long maxBytes) {
-            return filter(info -> info.mediaInfo().mediaSize() != null && info.mediaInfo().mediaSize() <= maxBytes);
+            return fieldFilter(DiskField.MEDIA_SIZE,
+                info -> info.mediaInfo().mediaSize() != null && info.mediaInfo().mediaSize() <= maxBytes);
         }
 
         /**
@@ -181,7 +632,14 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder protocol(String protocol) {
-            return filter(info -> protocol.equalsIgnoreCase(info.deviceInfo().protocol()));
+            Predicate<DiskInfo> filter = info -> protocol.equalsIgnoreCase(info.deviceInfo().protocol());
+            // Native matching is case-sensitive, so only well-known spellings can be pushed down
+            for (String knownProtocol : KNOWN_PROTOCOLS) {
+                if (knownProtocol.equalsIgnoreCase(protocol)) {
+                    return nativeFilter(DiskField.DEVICE_PROTOCOL, knownProtocol, filter);
+                }
+            }
+            return fieldFilter(DiskField.DEVICE_PROTOCOL, filter);
         }
 
         /**
@@ -191,20 +649,109 @@ public class DiskEventManager {
          * @return this builder
          */
         public Builder volumeKind(String kind) {
-            return filter(info -> kind.equalsIgnoreCase(info.volumeInfo().kind()));
+            // DiskArbitration reports filesystem types in lower case, which native matching relies on
+            return nativeFilter(DiskField.VOLUME_KIND, kind.toLowerCase(Locale.ROOT),
+                info -> kind.equalsIgnoreCase(info.volumeInfo().kind()));
         }
 
         /**
          * Builds the DiskEventManager.
          *
          * @return a new DiskEventManager instance
-         * @throws IllegalStateException if no listener was set
+         * @throws IllegalStateException if not exactly one of a listener and a batch listener was set,
+         *                               a batch listener was combined with a dispatch executor, a
+         *                               mapping executor with a shared session, or a built-in filter
+         *                               or a filter declaring its fields uses a field outside the
+         *                               {@link #fields(DiskField...) projection}
          */
         public DiskEventManager build() {
-            if (listener == null) {
-                throw new IllegalStateException("Listener must be set");
+            if ((listener == null) == (batchListener == null)) {
+                throw new IllegalStateException("Exactly one of listener and batch listener must be set");
+            }
+            if (batchListener != null && asyncDispatch) {
+                throw new IllegalStateException("A batch listener cannot be combined with a dispatch executor");
+            }
+            if (sharedSession && (mappingExecutor != null || mappingThreads > 0)) {
+                throw new IllegalStateException("A shared session cannot be combined with a mapping executor");
+            }
+            Set<DiskField> projectedFields = fields == null ? EnumSet.allOf(DiskField.class) : fields;
+            Set<DiskField> missingFields = EnumSet.copyOf(filterFields);
+            missingFields.removeAll(projectedFields);
+            if (!missingFields.isEmpty()) {
+                throw new IllegalStateException("Filters depend on fields outside the projection: " + missingFields);
+            }
+            Set<DiskEvent.Type> deliveredTypes = eventTypes != null ? eventTypes
+                : listener != null ? handledTypes(listener) : EnumSet.allOf(DiskEvent.Type.class);
+            Set<DiskField> watched = watchedFields;
+            if (watched == null && !deliveredTypes.contains(DiskEvent.Type.DESCRIPTION_CHANGED) && !diskRegistry) {
+                // Mounts and unmounts are all that description changes are needed for
+                watched = EnumSet.of(DiskField.VOLUME_PATH);
+            }
+            // Listener calls are timed wherever the dispatcher makes them
+            PipelineMetrics metrics = this.metrics ? new PipelineMetrics() : PipelineMetrics.disabled();
+            EventDispatcher dispatcher;
+            if (batchListener != null) {
+                dispatcher = new BatchingEventDispatcher(metrics.meter(batchListener), maxBatchSize,
+                        maxBatchLatency.toNanos(), System::nanoTime);
+            } else if (asyncDispatch) {
+                dispatcher = new QueuedEventDispatcher(metrics.meter(listener), dispatchExecutor, dispatchQueueCapacity,
+                        overflowPolicy);
+            } else {
+                dispatcher = new DirectEventDispatcher(metrics.meter(listener));
+            }
+            return new DiskEventManager(new WatcherConfig()
+                    .backend(backend)
+                    .dispatcher(dispatcher)
+                    .filters(filters)
+                    .nativeMatch(nativeMatch)
+                    .lazyDiskInfo(lazyDiskInfo)
+                    .fields(projectedFields)
+                    .diskRegistry(diskRegistry)
+                    .sharedSession(sharedSession)
+                    .mappingExecutor(mappingExecutor)
+                    .mappingThreads(mappingThreads)
+                    .descriptionQuietWindow(descriptionQuietWindow)
+                    .eventTypes(deliveredTypes)
+                    .watchedFields(watched)
+                    .metrics(metrics)
+                    .metricsEndpoint(metricsEndpoint));
+        }
+
+        /**
+         * Returns the event types whose listener method the listener overrides. A listener method
+         * left to {@link DiskEventAdapter} or to a default of {@link DiskEventListener} is a no-op or
+         * forwards to another one, so its events need not be delivered for themselves.
+         */
+        private static Set<DiskEvent.Type> handledTypes(DiskEventListener listener) {
+            Set<DiskEvent.Type> types = EnumSet.noneOf(DiskEvent.Type.class);
+            if (overrides(listener, "onDiskAppeared", DiskInfo.class)
+                    || overrides(listener, "onInitialSnapshot", List.class)) {
+                types.add(DiskEvent.Type.APPEARED);
+            }
+            if (overrides(listener, "onDiskDisappeared", DiskInfo.class)) {
+                types.add(DiskEvent.Type.DISAPPEARED);
+            }
+            if (overrides(listener, "onDiskDescriptionChanged", DiskInfo.class)
+                    || overrides(listener, "onDiskDescriptionChanged", DiskInfo.class, Set.class)) {
+                types.add(DiskEvent.Type.DESCRIPTION_CHANGED);
+            }
+            if (overrides(listener, "onDiskMounted", DiskInfo.class)) {
+                types.add(DiskEvent.Type.MOUNTED);
+            }
+            if (overrides(listener, "onDiskUnmounted", DiskInfo.class)) {
+                types.add(DiskEvent.Type.UNMOUNTED);
+            }
+            return types;
+        }
+
+        private static boolean overrides(DiskEventListener listener, String name, Class<?>... parameterTypes) {
+            try {
+                Class<?> declaringClass = listener.getClass().getMethod(name, parameterTypes).getDeclaringClass();
+                return declaringClass != DiskEventAdapter.class && declaringClass != DiskEventListener.class;
+            } catch (NoSuchMethodException e) {
+                // Cannot happen for a listener; deliver the events rather than lose them
+                return true;
             }
-            return new DiskEventManager(listener, filters);
         }
     }
 }
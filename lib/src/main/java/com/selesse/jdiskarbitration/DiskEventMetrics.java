@@ -0,0 +1,151 @@
+package com.selesse.jdiskarbitration;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A point-in-time view of the event pipeline's metrics, returned by {@link DiskEventManager#metrics()}.
+ *
+ * <p>Counters and latencies accumulate from the moment the manager is built; gauges describe the
+ * pipeline at the time of the call.
+ *
+ * @param received           native callbacks received, by type ({@code APPEARED}, {@code DISAPPEARED}
+ *                           or {@code DESCRIPTION_CHANGED})
+ * @param filtered           received callbacks rejected by the filters, by type
+ * @param delivered          events handed to the listener, by type
+ * @param mapping            time spent reading DADisk descriptions into DiskInfo
+ * @param filtering          time spent evaluating the filters
+ * @param listener           time spent in the listener, per event or per batch
+ * @param runLoopBusyNanos   time the run-loop thread spent handling callbacks
+ * @param runLoopBusyRatio   the fraction of time since start the run-loop thread spent handling callbacks
+ * @param dispatchQueueDepth events captured but not yet delivered
+ * @param heldChanges        description changes held back by coalescing
+ * @param droppedEvents      events discarded by the dispatch overflow policy
+ * @param suppressedChanges  description changes not delivered because no projected field changed
+ */
+public record DiskEventMetrics(
+        Map<DiskEvent.Type, Long> received,
+        Map<DiskEvent.Type, Long> filtered,
+        Map<DiskEvent.Type, Long> delivered,
+        Latency mapping,
+        Latency filtering,
+        Latency listener,
+        long runLoopBusyNanos,
+        double runLoopBusyRatio,
+        int dispatchQueueDepth,
+        int heldChanges,
+        long droppedEvents,
+        long suppressedChanges) {
+
+    private static final String PREFIX = "jdiskarbitration_";
+
+    /**
+     * A latency distribution.
+     *
+     * @param count      the number of samples
+     * @param totalNanos the sum of all samples
+     * @param buckets    cumulative sample counts by upper bound, in increasing order; the last bound
+     *                   is {@link Long#MAX_VALUE}
+     */
+    public record Latency(long count, long totalNanos, List<Bucket> buckets) {
+
+        /**
+         * Returns the mean latency, or 0 if there are no samples.
+         */
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given quantile, or 0 if there are no samples.
+         *
+         * @param quantile between 0 and 1, e.g. 0.99
+         */
+        public long quantileUpperBoundNanos(double quantile) {
+            if (quantile < 0 || quantile > 1) {
+                throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            for (Bucket bucket : buckets) {
+                if (bucket.cumulativeCount() >= rank) {
+                    return bucket.upperBoundNanos();
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param upperBoundNanos the largest latency counted in this bucket
+     * @param cumulativeCount the number of samples up to the bound
+     */
+    public record Bucket(long upperBoundNanos, long cumulativeCount) {
+    }
+
+    /**
+     * Formats these metrics in the Prometheus text exposition format, version 0.0.4.
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        counterByType(out, "events_received_total", "Disk events received from DiskArbitration.", received);
+        counterByType(out, "events_filtered_total", "Received disk events rejected by the filters.", filtered);
+        counterByType(out, "events_delivered_total", "Disk events handed to the listener.", delivered);
+        histogram(out, "mapping_seconds", "Time spent reading disk descriptions.", mapping);
+        histogram(out, "filtering_seconds", "Time spent evaluating filters.", filtering);
+        histogram(out, "listener_seconds", "Time spent in the listener.", listener);
+        metric(out, "run_loop_busy_seconds_total", "counter", "Time the run-loop thread spent handling callbacks.",
+                seconds(runLoopBusyNanos));
+        metric(out, "run_loop_busy_ratio", "gauge", "Fraction of time since start spent handling callbacks.",
+                format(runLoopBusyRatio));
+        metric(out, "dispatch_queue_depth", "gauge", "Events waiting for delivery.", Integer.toString(dispatchQueueDepth));
+        metric(out, "held_description_changes", "gauge", "Description changes held back by coalescing.",
+                Integer.toString(heldChanges));
+        metric(out, "events_dropped_total", "counter", "Events discarded by the dispatch overflow policy.",
+                Long.toString(droppedEvents));
+        metric(out, "description_changes_suppressed_total", "counter",
+                "Description changes not delivered because no projected field changed.", Long.toString(suppressedChanges));
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void metric(StringBuilder out, String name, String type, String help, String value) {
+        header(out, name, type, help);
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counterByType(StringBuilder out, String name, String help, Map<DiskEvent.Type, Long> counts) {
+        header(out, name, "counter", help);
+        for (DiskEvent.Type type : DiskEvent.Type.values()) {
+            out.append(PREFIX).append(name)
+                    .append("{type=\"").append(type.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                    .append(counts.getOrDefault(type, 0L)).append('\n');
+        }
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, Latency latency) {
+        header(out, name, "histogram", help);
+        for (Bucket bucket : latency.buckets()) {
+            String bound = bucket.upperBoundNanos() == Long.MAX_VALUE ? "+Inf" : seconds(bucket.upperBoundNanos());
+            out.append(PREFIX).append(name).append("_bucket{le=\"").append(bound).append("\"} ")
+                    .append(bucket.cumulativeCount()).append('\n');
+        }
+        out.append(PREFIX).append(name).append("_sum ").append(seconds(latency.totalNanos())).append('\n');
+        out.append(PREFIX).append(name).append("_count ").append(latency.count()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return format(nanos / 1e9);
+    }
+
+    private static String format(double value) {
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,85 @@
+package com.selesse.jdiskarbitration;
+
+/**
+ * Identifies a {@link DiskInfo} property and the DiskArbitration description key it is read from.
+ */
+public enum DiskField {
+    // Volume information
+    VOLUME_PATH(Group.VOLUME, "kDADiskDescriptionVolumePathKey"),
+    VOLUME_NAME(Group.VOLUME, "kDADiskDescriptionVolumeNameKey"),
+    VOLUME_KIND(Group.VOLUME, "kDADiskDescriptionVolumeKindKey"),
+    VOLUME_UUID(Group.VOLUME, "kDADiskDescriptionVolumeUUIDKey"),
+    VOLUME_MOUNTABLE(Group.VOLUME, "kDADiskDescriptionVolumeMountableKey"),
+    VOLUME_NETWORK(Group.VOLUME, "kDADiskDescriptionVolumeNetworkKey"),
+    VOLUME_TYPE(Group.VOLUME, "kDADiskDescriptionVolumeTypeKey"),
+
+    // Device information
+    DEVICE_PROTOCOL(Group.DEVICE, "kDADiskDescriptionDeviceProtocolKey"),
+    DEVICE_MODEL(Group.DEVICE, "kDADiskDescriptionDeviceModelKey"),
+    DEVICE_VENDOR(Group.DEVICE, "kDADiskDescriptionDeviceVendorKey"),
+    DEVICE_REVISION(Group.DEVICE, "kDADiskDescriptionDeviceRevisionKey"),
+    DEVICE_UNIT(Group.DEVICE, "kDADiskDescriptionDeviceUnitKey"),
+    DEVICE_INTERNAL(Group.DEVICE, "kDADiskDescriptionDeviceInternalKey"),
+    DEVICE_GUID(Group.DEVICE, "kDADiskDescriptionDeviceGUIDKey"),
+    DEVICE_PATH(Group.DEVICE, "kDADiskDescriptionDevicePathKey"),
+    DEVICE_TDM_LOCKED(Group.DEVICE, "kDADiskDescriptionDeviceTDMLockedKey"),
+
+    // Media information
+    MEDIA_REMOVABLE(Group.MEDIA, "kDADiskDescriptionMediaRemovableKey"),
+    MEDIA_SIZE(Group.MEDIA, "kDADiskDescriptionMediaSizeKey"),
+    MEDIA_BLOCK_SIZE(Group.MEDIA, "kDADiskDescriptionMediaBlockSizeKey"),
+    MEDIA_WRITABLE(Group.MEDIA, "kDADiskDescriptionMediaWritableKey"),
+    MEDIA_WHOLE(Group.MEDIA, "kDADiskDescriptionMediaWholeKey"),
+    MEDIA_EJECTABLE(Group.MEDIA, "kDADiskDescriptionMediaEjectableKey"),
+    MEDIA_LEAF(Group.MEDIA, "kDADiskDescriptionMediaLeafKey"),
+    MEDIA_TYPE(Group.MEDIA, "kDADiskDescriptionMediaTypeKey"),
+    MEDIA_CONTENT(Group.MEDIA, "kDADiskDescriptionMediaContentKey"),
+    MEDIA_UUID(Group.MEDIA, "kDADiskDescriptionMediaUUIDKey"),
+    MEDIA_BSD_MAJOR(Group.MEDIA, "kDADiskDescriptionMediaBSDMajorKey"),
+    MEDIA_BSD_MINOR(Group.MEDIA, "kDADiskDescriptionMediaBSDMinorKey"),
+    MEDIA_BSD_NAME(Group.MEDIA, "kDADiskDescriptionMediaBSDNameKey"),
+    MEDIA_BSD_UNIT(Group.MEDIA, "kDADiskDescriptionMediaBSDUnitKey"),
+    MEDIA_ICON(Group.MEDIA, "kDADiskDescriptionMediaIconKey"),
+    MEDIA_KIND(Group.MEDIA, "kDADiskDescriptionMediaKindKey"),
+    MEDIA_NAME(Group.MEDIA, "kDADiskDescriptionMediaNameKey"),
+    MEDIA_PATH(Group.MEDIA, "kDADiskDescriptionMediaPathKey"),
+    MEDIA_ENCRYPTED(Group.MEDIA, "kDADiskDescriptionMediaEncryptedKey"),
+    MEDIA_ENCRYPTION_DETAIL(Group.MEDIA, "kDADiskDescriptionMediaEncryptionDetailKey"),
+
+    // Bus information
+    BUS_NAME(Group.BUS, "kDADiskDescriptionBusNameKey"),
+    BUS_PATH(Group.BUS, "kDADiskDescriptionBusPathKey");
+
+    /**
+     * The {@link DiskInfo} record a field belongs to.
+     */
+    public enum Group {
+        VOLUME,
+        DEVICE,
+        MEDIA,
+        BUS
+    }
+
+    private final Group group;
+    private final String descriptionKey;
+
+    DiskField(Group group, String descriptionKey) {
+        this.group = group;
+        this.descriptionKey = descriptionKey;
+    }
+
+    /**
+     * Returns the record this field belongs to.
+     */
+    public Group group() {
+        return group;
+    }
+
+    /**
+     * Returns the name of the DiskArbitration constant holding this field's description key,
+     * e.g. {@code kDADiskDescriptionVolumePathKey}.
+     */
+    public String descriptionKey() {
+        return descriptionKey;
+    }
+}
@@ -53,8 +53,17 @@ public record DiskInfo(
     ) {}
     public record BusInfo(String name, String path) {}
 
+    /**
+     * Returns a copy of this DiskInfo packed into a single word of flags, the numbers that are present
+     * and one array of strings.
+     */
+    public PackedDiskInfo compact() {
+        return PackedDiskInfo.pack(this);
+    }
+
     public boolean isExternal() { return !deviceInfo.isInternal(); }
     public boolean isUSB() { return "USB".equalsIgnoreCase(deviceInfo.protocol()); }
+    public boolean isRemovable() { return mediaInfo.isRemovable(); }
 
     public String getFormattedSize() {
         if (mediaInfo.mediaSize() == null) return "Unknown";
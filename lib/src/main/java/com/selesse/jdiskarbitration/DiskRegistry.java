@@ -0,0 +1,51 @@
+package com.selesse.jdiskarbitration;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An immutable, indexed view of the disks currently known to a {@link DiskEventManager}.
+ *
+ * <p>The manager replaces its registry with a new instance on every disk event, so a registry
+ * obtained from {@link DiskEventManager#disks()} is a consistent snapshot that can be queried from
+ * any thread without locking. Only disks that pass the manager's filters are included.
+ *
+ * <p>Lookups by BSD name, volume UUID, media UUID and mount path take logarithmic time. Protocol and
+ * vendor lookups are case-insensitive and ignore surrounding whitespace.
+ */
+public interface DiskRegistry {
+
+    /**
+     * Returns every disk, in the order they first appeared.
+     */
+    Collection<DiskInfo> all();
+
+    int size();
+
+    Optional<DiskInfo> byBsdName(String bsdName);
+
+    Optional<DiskInfo> byVolumeUUID(String uuid);
+
+    Optional<DiskInfo> byMediaUUID(String uuid);
+
+    /**
+     * Returns the disk mounted at the given path (e.g., "/Volumes/MyDisk").
+     */
+    Optional<DiskInfo> byMountPath(String path);
+
+    /**
+     * Returns the disks using the given protocol (e.g., "USB").
+     */
+    List<DiskInfo> byProtocol(String protocol);
+
+    /**
+     * Returns the disks from the given device vendor.
+     */
+    List<DiskInfo> byVendor(String vendor);
+
+    /**
+     * Returns the disks whose media size is between the given bounds, inclusive, smallest first.
+     */
+    List<DiskInfo> bySizeRange(long minBytes, long maxBytes);
+}
@@ -0,0 +1,30 @@
+package com.selesse.jdiskarbitration;
+
+/**
+ * Policy applied when the asynchronous dispatch queue is full.
+ *
+ * @see DiskEventManager.Builder#dispatchExecutor(java.util.concurrent.Executor, int, OverflowPolicy)
+ */
+public enum OverflowPolicy {
+    /**
+     * Blocks the DiskArbitration run-loop thread until there is room in the queue.
+     * No events are lost, but a slow listener stalls the native session again.
+     */
+    BLOCK,
+
+    /**
+     * Discards the oldest queued event to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discards the event being enqueued.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Delivers the event on the run-loop thread itself. The event may be delivered
+     * before events that are still queued, and concurrently with the dispatch thread.
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,313 @@
+package com.selesse.jdiskarbitration;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The fields of a {@link DiskInfo} packed for long-term storage, returned by {@link DiskInfo#compact()}.
+ *
+ * <p>Booleans and whether each nullable field is present share one {@code long} of flags. The
+ * numbers that are present are stored as primitives in a {@code long[]} holding only those, and
+ * every string sits in a single array. Nothing else is held: each record accessor builds a new record
+ * from these, so read a record once into a local, or call {@link #toDiskInfo()} to get them all.
+ * {@link #isExternal()}, {@link #isUSB()} and {@link #isRemovable()} are bit tests.
+ */
+public final class PackedDiskInfo {
+    // Boolean values, and presence bits for the nullable ones
+    private static final int VOLUME_MOUNTABLE = 0;
+    private static final int VOLUME_MOUNTABLE_PRESENT = 1;
+    private static final int VOLUME_NETWORK = 2;
+    private static final int VOLUME_NETWORK_PRESENT = 3;
+    private static final int DEVICE_INTERNAL = 4;
+    private static final int DEVICE_TDM_LOCKED = 5;
+    private static final int DEVICE_TDM_LOCKED_PRESENT = 6;
+    private static final int MEDIA_REMOVABLE = 7;
+    private static final int MEDIA_WRITABLE = 8;
+    private static final int MEDIA_WHOLE = 9;
+    private static final int MEDIA_EJECTABLE = 10;
+    private static final int MEDIA_LEAF = 11;
+    private static final int MEDIA_ENCRYPTED = 12;
+    private static final int MEDIA_ENCRYPTED_PRESENT = 13;
+    // Whether the device protocol is USB, so DiskInfo.isUSB() is a bit test
+    private static final int DEVICE_USB = 14;
+
+    // Presence bits of the numbers, from NUMBERS upwards in this order
+    private static final int NUMBERS = 16;
+    private static final int DEVICE_UNIT = 0;
+    private static final int MEDIA_SIZE = 1;
+    private static final int MEDIA_BLOCK_SIZE = 2;
+    private static final int MEDIA_BSD_MAJOR = 3;
+    private static final int MEDIA_BSD_MINOR = 4;
+    private static final int MEDIA_BSD_UNIT = 5;
+    private static final int MEDIA_ENCRYPTION_DETAIL = 6;
+    private static final int NUMBER_COUNT = 7;
+
+    // Whether each record is present at all
+    private static final int VOLUME_PRESENT = 24;
+    private static final int DEVICE_PRESENT = 25;
+    private static final int MEDIA_PRESENT = 26;
+    private static final int BUS_PRESENT = 27;
+
+    // Indexes into the string array
+    private static final int VOLUME_PATH = 0;
+    private static final int VOLUME_NAME = 1;
+    private static final int VOLUME_KIND = 2;
+    private static final int VOLUME_UUID = 3;
+    private static final int VOLUME_TYPE = 4;
+    private static final int DEVICE_PROTOCOL = 5;
+    private static final int DEVICE_MODEL = 6;
+    private static final int DEVICE_VENDOR = 7;
+    private static final int DEVICE_REVISION = 8;
+    private static final int DEVICE_GUID = 9;
+    private static final int DEVICE_PATH = 10;
+    private static final int MEDIA_TYPE = 11;
+    private static final int MEDIA_CONTENT = 12;
+    private static final int MEDIA_UUID = 13;
+    private static final int MEDIA_BSD_NAME = 14;
+    private static final int MEDIA_ICON = 15;
+    private static final int MEDIA_KIND = 16;
+    private static final int MEDIA_NAME = 17;
+    private static final int MEDIA_PATH = 18;
+    private static final int BUS_NAME = 19;
+    private static final int BUS_PATH = 20;
+    private static final int STRING_COUNT = 21;
+
+    private static final long[] NO_NUMBERS = new long[0];
+
+    private final String bsdName;
+    private final long flags;
+    private final long[] numbers;
+    private final String[] strings;
+
+    private PackedDiskInfo(String bsdName, long flags, long[] numbers, String[] strings) {
+        this.bsdName = bsdName;
+        this.flags = flags;
+        this.numbers = numbers;
+        this.strings = strings;
+    }
+
+    /**
+     * Packs the records of a disk, reading each of them once.
+     */
+    static PackedDiskInfo pack(DiskInfo diskInfo) {
+        DiskInfo.VolumeInfo volume = diskInfo.volumeInfo();
+        DiskInfo.DeviceInfo device = diskInfo.deviceInfo();
+        DiskInfo.MediaInfo media = diskInfo.mediaInfo();
+        DiskInfo.BusInfo bus = diskInfo.busInfo();
+        Packer packer = new Packer(diskInfo.bsdName());
+
+        if (volume != null) {
+            packer.flag(VOLUME_PRESENT, true);
+            packer.flag(VOLUME_MOUNTABLE, VOLUME_MOUNTABLE_PRESENT, volume.mountable());
+            packer.flag(VOLUME_NETWORK, VOLUME_NETWORK_PRESENT, volume.network());
+            packer.strings[VOLUME_PATH] = volume.path();
+            packer.strings[VOLUME_NAME] = volume.name();
+            packer.strings[VOLUME_KIND] = volume.kind();
+            packer.strings[VOLUME_UUID] = volume.uuid();
+            packer.strings[VOLUME_TYPE] = volume.type();
+        }
+        if (device != null) {
+            packer.flag(DEVICE_PRESENT, true);
+            packer.flag(DEVICE_INTERNAL, device.isInternal());
+            packer.flag(DEVICE_TDM_LOCKED, DEVICE_TDM_LOCKED_PRESENT, device.tdmLocked());
+            packer.flag(DEVICE_USB, "USB".equalsIgnoreCase(device.protocol()));
+            packer.number(DEVICE_UNIT, device.unit());
+            packer.strings[DEVICE_PROTOCOL] = device.protocol();
+            packer.strings[DEVICE_MODEL] = device.model();
+            packer.strings[DEVICE_VENDOR] = device.vendor();
+            packer.strings[DEVICE_REVISION] = device.revision();
+            packer.strings[DEVICE_GUID] = device.guid();
+            packer.strings[DEVICE_PATH] = device.path();
+        }
+        if (media != null) {
+            packer.flag(MEDIA_PRESENT, true);
+            packer.flag(MEDIA_REMOVABLE, media.isRemovable());
+            packer.flag(MEDIA_WRITABLE, media.isWritable());
+            packer.flag(MEDIA_WHOLE, media.isWholeDisk());
+            packer.flag(MEDIA_EJECTABLE, media.isEjectable());
+            packer.flag(MEDIA_LEAF, media.isLeaf());
+            packer.flag(MEDIA_ENCRYPTED, MEDIA_ENCRYPTED_PRESENT, media.encrypted());
+            packer.number(MEDIA_SIZE, media.mediaSize());
+            packer.number(MEDIA_BLOCK_SIZE, media.mediaBlockSize());
+            packer.number(MEDIA_BSD_MAJOR, media.bsdMajor());
+            packer.number(MEDIA_BSD_MINOR, media.bsdMinor());
+            packer.number(MEDIA_BSD_UNIT, media.bsdUnit());
+            packer.number(MEDIA_ENCRYPTION_DETAIL, media.encryptionDetail());
+            packer.strings[MEDIA_TYPE] = media.mediaType();
+            packer.strings[MEDIA_CONTENT] = media.mediaContent();
+            packer.strings[MEDIA_UUID] = media.mediaUUID();
+            packer.strings[MEDIA_BSD_NAME] = media.bsdName();
+            packer.strings[MEDIA_ICON] = media.icon();
+            packer.strings[MEDIA_KIND] = media.kind();
+            packer.strings[MEDIA_NAME] = media.name();
+            packer.strings[MEDIA_PATH] = media.path();
+        }
+        if (bus != null) {
+            packer.flag(BUS_PRESENT, true);
+            packer.strings[BUS_NAME] = bus.name();
+            packer.strings[BUS_PATH] = bus.path();
+        }
+        return packer.build();
+    }
+
+    /**
+     * Collects flags and numbers in any order, keeping the numbers in presence-bit order.
+     */
+    private static final class Packer {
+        private final String bsdName;
+        private final String[] strings = new String[STRING_COUNT];
+        private final long[] numbers = new long[NUMBER_COUNT];
+        private long flags;
+
+        Packer(String bsdName) {
+            this.bsdName = bsdName;
+        }
+
+        void flag(int bit, boolean value) {
+            if (value) {
+                flags |= 1L << bit;
+            }
+        }
+
+        void flag(int bit, int presentBit, Boolean value) {
+            if (value != null) {
+                flags |= 1L << presentBit;
+                flag(bit, value);
+            }
+        }
+
+        void number(int index, Number value) {
+            if (value != null) {
+                flags |= 1L << (NUMBERS + index);
+                numbers[index] = value.longValue();
+            }
+        }
+
+        PackedDiskInfo build() {
+            int present = Long.bitCount(numberBits(flags));
+            long[] packed = present == 0 ? NO_NUMBERS : new long[present];
+            for (int index = 0, next = 0; index < NUMBER_COUNT; index++) {
+                if ((flags & (1L << (NUMBERS + index))) != 0) {
+                    packed[next++] = numbers[index];
+                }
+            }
+            return new PackedDiskInfo(bsdName, flags, packed, strings);
+        }
+    }
+
+    private static long numberBits(long flags) {
+        return (flags >>> NUMBERS) & ((1L << NUMBER_COUNT) - 1);
+    }
+
+    public String bsdName() {
+        return bsdName;
+    }
+
+    /**
+     * Same as {@link DiskInfo#isExternal()}.
+     */
+    public boolean isExternal() {
+        return !flag(DEVICE_INTERNAL);
+    }
+
+    /**
+     * Same as {@link DiskInfo#isUSB()}.
+     */
+    public boolean isUSB() {
+        return flag(DEVICE_USB);
+    }
+
+    /**
+     * Same as {@link DiskInfo#isRemovable()}.
+     */
+    public boolean isRemovable() {
+        return flag(MEDIA_REMOVABLE);
+    }
+
+    /**
+     * Unpacks every record into a DiskInfo equal to the one this was packed from.
+     */
+    public DiskInfo toDiskInfo() {
+        return new DiskInfo(bsdName, volumeInfo(), deviceInfo(), mediaInfo(), busInfo());
+    }
+
+    private boolean flag(int bit) {
+        return (flags & (1L << bit)) != 0;
+    }
+
+    private Boolean flag(int bit, int presentBit) {
+        return flag(presentBit) ? Boolean.valueOf(flag(bit)) : null;
+    }
+
+    private Long longNumber(int index) {
+        int bit = NUMBERS + index;
+        if (!flag(bit)) {
+            return null;
+        }
+        // Only present numbers are stored, in presence-bit order
+        long lowerPresent = numberBits(flags) & ((1L << index) - 1);
+        return numbers[Long.bitCount(lowerPresent)];
+    }
+
+    private Integer intNumber(int index) {
+        Long value = longNumber(index);
+        return value == null ? null : Integer.valueOf(value.intValue());
+    }
+
+    public DiskInfo.VolumeInfo volumeInfo() {
+        if (!flag(VOLUME_PRESENT)) {
+            return null;
+        }
+        return new DiskInfo.VolumeInfo(strings[VOLUME_PATH], strings[VOLUME_NAME], strings[VOLUME_KIND],
+            strings[VOLUME_UUID], flag(VOLUME_MOUNTABLE, VOLUME_MOUNTABLE_PRESENT),
+            flag(VOLUME_NETWORK, VOLUME_NETWORK_PRESENT), strings[VOLUME_TYPE]);
+    }
+
+    public DiskInfo.DeviceInfo deviceInfo() {
+        if (!flag(DEVICE_PRESENT)) {
+            return null;
+        }
+        return new DiskInfo.DeviceInfo(strings[DEVICE_PROTOCOL], strings[DEVICE_MODEL], strings[DEVICE_VENDOR],
+            strings[DEVICE_REVISION], longNumber(DEVICE_UNIT), flag(DEVICE_INTERNAL), strings[DEVICE_GUID],
+            strings[DEVICE_PATH], flag(DEVICE_TDM_LOCKED, DEVICE_TDM_LOCKED_PRESENT));
+    }
+
+    public DiskInfo.MediaInfo mediaInfo() {
+        if (!flag(MEDIA_PRESENT)) {
+            return null;
+        }
+        return new DiskInfo.MediaInfo(flag(MEDIA_REMOVABLE), longNumber(MEDIA_SIZE), longNumber(MEDIA_BLOCK_SIZE),
+            flag(MEDIA_WRITABLE), flag(MEDIA_WHOLE), flag(MEDIA_EJECTABLE), flag(MEDIA_LEAF),
+            strings[MEDIA_TYPE], strings[MEDIA_CONTENT], strings[MEDIA_UUID],
+            intNumber(MEDIA_BSD_MAJOR), intNumber(MEDIA_BSD_MINOR), strings[MEDIA_BSD_NAME], intNumber(MEDIA_BSD_UNIT),
+            strings[MEDIA_ICON], strings[MEDIA_KIND], strings[MEDIA_NAME], strings[MEDIA_PATH],
+            flag(MEDIA_ENCRYPTED, MEDIA_ENCRYPTED_PRESENT), intNumber(MEDIA_ENCRYPTION_DETAIL));
+    }
+
+    public DiskInfo.BusInfo busInfo() {
+        if (!flag(BUS_PRESENT)) {
+            return null;
+        }
+        return new DiskInfo.BusInfo(strings[BUS_NAME], strings[BUS_PATH]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PackedDiskInfo other)) return false;
+        return flags == other.flags
+            && Objects.equals(bsdName, other.bsdName)
+            && Arrays.equals(numbers, other.numbers)
+            && Arrays.equals(strings, other.strings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bsdName, flags, Arrays.hashCode(numbers), Arrays.hashCode(strings));
+    }
+
+    @Override
+    public String toString() {
+        return "PackedDiskInfo[" + toDiskInfo() + "]";
+    }
+}
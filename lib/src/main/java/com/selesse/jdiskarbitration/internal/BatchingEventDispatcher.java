@@ -0,0 +1,135 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.BatchDiskEventListener;
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects events and delivers them to a {@link BatchDiskEventListener} in batches.
+ *
+ * <p>A batch is delivered when the run loop is about to sleep, which makes it span exactly the
+ * callbacks of one run-loop pass, or earlier when it reaches the maximum size or its oldest event
+ * the maximum latency. The latency deadline is a run-loop timer, so it is kept even when no further
+ * event arrives. Delivery happens on the run-loop thread, except for what {@link #stop()} delivers.
+ *
+ * <p>Events are captured on the run-loop thread, but {@link #stop()} and {@link #queueDepth()} may be
+ * called from any thread: the batch is guarded by this dispatcher's lock, and its size is published
+ * for readers that do not take it.
+ */
+public class BatchingEventDispatcher implements EventDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingEventDispatcher.class);
+
+    private final BatchDiskEventListener listener;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final LongSupplier clock;
+    private final List<CapturedEvent> batch = new ArrayList<>();
+    private volatile int queueDepth;
+    private long oldestCaptured;
+    private LongConsumer wakeUpAt = deadline -> { };
+
+    /**
+     * @param listener        the listener to deliver batches to
+     * @param maxBatchSize    the number of events that triggers delivery before the run loop sleeps
+     * @param maxLatencyNanos how long the oldest event may wait before the batch is delivered
+     * @param clock           the source of {@link System#nanoTime()}-like timestamps
+     */
+    public BatchingEventDispatcher(BatchDiskEventListener listener, int maxBatchSize, long maxLatencyNanos,
+                                   LongSupplier clock) {
+        this.listener = listener;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = maxLatencyNanos;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void dispatch(CapturedEvent event) {
+        if (event.initialSnapshot() != null) {
+            // Batches already deliver a burst at once, so the snapshot joins the batch disk by disk
+            for (DiskInfo diskInfo : event.initialSnapshot()) {
+                dispatch(new CapturedEvent(DiskEvent.Type.APPEARED, diskInfo));
+            }
+            return;
+        }
+        long now = clock.getAsLong();
+        if (batch.isEmpty()) {
+            oldestCaptured = now;
+            wakeUpAt.accept(System.nanoTime() + maxLatencyNanos);
+        }
+        batch.add(event);
+        queueDepth = batch.size();
+        if (batch.size() >= maxBatchSize || now - oldestCaptured >= maxLatencyNanos) {
+            flush();
+        }
+    }
+
+    @Override
+    public boolean needsIdleCallback() {
+        return true;
+    }
+
+    @Override
+    public synchronized void onIdle() {
+        flush();
+    }
+
+    @Override
+    public synchronized void attach(LongConsumer wakeUpAt) {
+        this.wakeUpAt = wakeUpAt;
+    }
+
+    /**
+     * Delivers the batch whose oldest event has reached the maximum latency. The deadline of a batch
+     * delivered earlier is replaced by the next batch's, so whatever is pending has reached it.
+     */
+    @Override
+    public synchronized void onDeadline() {
+        flush();
+    }
+
+    @Override
+    public synchronized void stop() {
+        flush();
+    }
+
+    /**
+     * Returns the number of events waiting for the next batch.
+     */
+    @Override
+    public int queueDepth() {
+        return queueDepth;
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<DiskEvent> events = new ArrayList<>(batch.size());
+        for (CapturedEvent event : batch) {
+            events.add(event.toDiskEvent());
+        }
+        ListenerJfrEvent listenerEvent = new ListenerJfrEvent();
+        listenerEvent.begin();
+        try {
+            listener.onDiskEvents(Collections.unmodifiableList(events));
+        } catch (RuntimeException e) {
+            LOGGER.error("Batch listener threw while handling {} events", events.size(), e);
+        } finally {
+            if (listenerEvent.shouldCommit()) {
+                listenerEvent.kind = ListenerJfrEvent.BATCH;
+                listenerEvent.events = events.size();
+                listenerEvent.commit();
+            }
+            batch.clear();
+            queueDepth = 0;
+        }
+    }
+}
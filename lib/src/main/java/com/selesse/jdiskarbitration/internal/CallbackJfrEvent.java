@@ -0,0 +1,30 @@
+package com.selesse.jdiskarbitration.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans one native DiskArbitration callback on the run-loop thread, from entry until the event
+ * has been handed to the dispatcher. Mapping, filter and listener events nest inside it. When disks
+ * are mapped in parallel, it spans the hand-out of the mapped disk instead.
+ */
+@Name("com.selesse.jdiskarbitration.Callback")
+@Label("Disk Callback")
+@Category({"jdiskarbitration"})
+@Description("A native DiskArbitration callback handled on the run-loop thread")
+@Enabled(false)
+final class CallbackJfrEvent extends Event {
+    @Label("BSD Name")
+    String bsdName;
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Accepted")
+    @Description("Whether the disk passed the filters")
+    boolean accepted;
+}
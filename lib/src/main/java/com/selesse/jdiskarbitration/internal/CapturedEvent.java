@@ -0,0 +1,86 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskEventListener;
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A disk event captured on the run-loop thread, waiting to be delivered to a listener.
+ *
+ * <p>The DiskInfo is fully decoded when the event is captured, so it does not depend on the native
+ * description once the callback returns. Description changes carry the fields that changed; every
+ * other event type has an empty set.
+ *
+ * <p>The disks of the initial enumeration are captured as a single appearance carrying all of them
+ * in {@code initialSnapshot}, with no DiskInfo of its own.
+ */
+record CapturedEvent(DiskEvent.Type type, DiskInfo diskInfo, Set<DiskField> changedFields,
+                     List<DiskInfo> initialSnapshot) {
+
+    CapturedEvent(DiskEvent.Type type, DiskInfo diskInfo, Set<DiskField> changedFields) {
+        this(type, diskInfo, changedFields, null);
+    }
+
+    CapturedEvent(DiskEvent.Type type, DiskInfo diskInfo) {
+        this(type, diskInfo, Set.of());
+    }
+
+    /**
+     * Creates the event delivering the disks of the initial enumeration at once.
+     */
+    static CapturedEvent initialSnapshot(List<DiskInfo> disks) {
+        return new CapturedEvent(DiskEvent.Type.APPEARED, null, Set.of(), List.copyOf(disks));
+    }
+
+    /**
+     * Creates the event of a snapshot, decoding whatever of its DiskInfo has not been decoded yet.
+     */
+    static CapturedEvent of(DiskEvent.Type type, DiskSnapshot snapshot, Set<DiskField> changedFields) {
+        return new CapturedEvent(type, snapshot.diskInfo(), changedFields);
+    }
+
+    /**
+     * Returns the BSD name of the event's disk, or null for an initial snapshot.
+     */
+    String bsdName() {
+        return diskInfo == null ? null : diskInfo.bsdName();
+    }
+
+    /**
+     * Returns the public view of this event, for listeners that receive events as values.
+     */
+    DiskEvent toDiskEvent() {
+        return new DiskEvent(type, diskInfo, changedFields);
+    }
+
+    void deliverTo(DiskEventListener listener) {
+        ListenerJfrEvent event = new ListenerJfrEvent();
+        event.begin();
+        try {
+            switch (type) {
+                case APPEARED -> {
+                    if (initialSnapshot != null) {
+                        listener.onInitialSnapshot(initialSnapshot);
+                    } else {
+                        listener.onDiskAppeared(diskInfo);
+                    }
+                }
+                case DISAPPEARED -> listener.onDiskDisappeared(diskInfo);
+                case DESCRIPTION_CHANGED -> listener.onDiskDescriptionChanged(diskInfo, changedFields);
+                case MOUNTED -> listener.onDiskMounted(diskInfo);
+                case UNMOUNTED -> listener.onDiskUnmounted(diskInfo);
+            }
+        } finally {
+            if (event.shouldCommit()) {
+                event.bsdName = bsdName();
+                event.kind = type.name();
+                event.events = initialSnapshot == null ? 1 : initialSnapshot.size();
+                event.commit();
+            }
+        }
+    }
+}
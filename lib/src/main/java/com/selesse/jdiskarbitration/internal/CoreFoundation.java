@@ -1,21 +1,59 @@
 package com.selesse.jdiskarbitration.internal;
 
+import com.sun.jna.Callback;
 import com.sun.jna.Library;
-import com.sun.jna.Native;
 import com.sun.jna.NativeLibrary;
 import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
 
 interface CoreFoundation extends Library {
-    CoreFoundation INSTANCE = Native.load("CoreFoundation", CoreFoundation.class);
-
     Pointer CFRunLoopGetCurrent();
 
     void CFRunLoopRun();
 
     void CFRunLoopStop(Pointer rl);
 
+    void CFRunLoopWakeUp(Pointer rl);
+
+    interface CFRunLoopTimerCallBack extends Callback {
+        void invoke(Pointer timer, Pointer info);
+    }
+
+    Pointer CFRunLoopTimerCreate(Pointer allocator, double fireDate, double interval, long flags, long order,
+                                 CFRunLoopTimerCallBack callout, Pointer context);
+
+    void CFRunLoopAddTimer(Pointer rl, Pointer timer, Pointer mode);
+
+    void CFRunLoopTimerSetNextFireDate(Pointer timer, double fireDate);
+
+    void CFRunLoopTimerInvalidate(Pointer timer);
+
+    double CFAbsoluteTimeGetCurrent();
+
+    long kCFRunLoopBeforeWaiting = 1L << 5;
+    long kCFRunLoopExit = 1L << 7;
+
+    interface CFRunLoopObserverCallBack extends Callback {
+        void invoke(Pointer observer, long activity, Pointer info);
+    }
+
+    Pointer CFRunLoopObserverCreate(Pointer allocator, long activities, boolean repeats, long order,
+                                    CFRunLoopObserverCallBack callout, Pointer context);
+
+    void CFRunLoopAddObserver(Pointer rl, Pointer observer, Pointer mode);
+
+    void CFRunLoopObserverInvalidate(Pointer observer);
+
     Pointer CFDictionaryGetValue(Pointer dict, Pointer key);
 
+    long CFDictionaryGetCount(Pointer dict);
+
+    long CFArrayGetCount(Pointer theArray);
+
+    Pointer CFArrayGetValueAtIndex(Pointer theArray, long idx);
+
+    void CFDictionaryGetKeysAndValues(Pointer dict, Pointer keys, Pointer values);
+
     Pointer CFStringGetCStringPtr(Pointer theString, int encoding);
 
     boolean CFStringGetCString(Pointer theString, byte[] buffer, long bufferSize, int encoding);
@@ -24,10 +62,24 @@ interface CoreFoundation extends Library {
 
     long CFStringGetMaximumSizeForEncoding(long length, int encoding);
 
+    long CFStringGetBytes(Pointer theString, CFRange.ByValue range, int encoding, byte lossByte,
+                          boolean isExternalRepresentation, Pointer buffer, long maxBufLen, Pointer usedBufLen);
+
+    @Structure.FieldOrder({"location", "length"})
+    class CFRange extends Structure {
+        public long location;
+        public long length;
+
+        public static class ByValue extends CFRange implements Structure.ByValue {
+        }
+    }
+
     Pointer CFStringCreateWithCString(Pointer allocator, String cStr, int encoding);
 
     int kCFStringEncodingUTF8 = 0x08000100;
 
+    Pointer CFRetain(Pointer cf);
+
     void CFRelease(Pointer cf);
 
     boolean CFBooleanGetValue(Pointer booleanRef);
@@ -40,14 +92,60 @@ interface CoreFoundation extends Library {
     // Using a method to get the pointer to the global constant after the library is loaded
     // This avoids the 'incompatible types' error for static final fields initialized with Native.findSymbol directly
     default Pointer getkCFRunLoopDefaultMode() {
-        NativeLibrary lib = NativeLibrary.getInstance("CoreFoundation");
-        Pointer symbol = lib.getGlobalVariableAddress("kCFRunLoopDefaultMode");
-        if (symbol == null) {
-            throw new IllegalStateException("Could not find symbol kCFRunLoopDefaultMode in CoreFoundation framework.");
+        return Globals.kCFRunLoopDefaultMode;
+    }
+
+    default Pointer getkCFBooleanTrue() {
+        return Globals.kCFBooleanTrue;
+    }
+
+    default Pointer getkCFBooleanFalse() {
+        return Globals.kCFBooleanFalse;
+    }
+
+    // The dictionary callback constants are structs, so their address is passed rather than their value
+    default Pointer getkCFTypeDictionaryKeyCallBacks() {
+        return Globals.kCFTypeDictionaryKeyCallBacks;
+    }
+
+    default Pointer getkCFTypeDictionaryValueCallBacks() {
+        return Globals.kCFTypeDictionaryValueCallBacks;
+    }
+
+    default Pointer getkCFTypeArrayCallBacks() {
+        return Globals.kCFTypeArrayCallBacks;
+    }
+
+    /**
+     * The global constants of the framework, looked up once when the first of them is asked for.
+     */
+    final class Globals {
+        static final Pointer kCFRunLoopDefaultMode = address("kCFRunLoopDefaultMode").getPointer(0);
+        static final Pointer kCFBooleanTrue = address("kCFBooleanTrue").getPointer(0);
+        static final Pointer kCFBooleanFalse = address("kCFBooleanFalse").getPointer(0);
+        static final Pointer kCFTypeDictionaryKeyCallBacks = address("kCFTypeDictionaryKeyCallBacks");
+        static final Pointer kCFTypeDictionaryValueCallBacks = address("kCFTypeDictionaryValueCallBacks");
+        static final Pointer kCFTypeArrayCallBacks = address("kCFTypeArrayCallBacks");
+
+        private Globals() {
+        }
+
+        private static Pointer address(String symbolName) {
+            NativeLibrary lib = NativeLibrary.getInstance("CoreFoundation");
+            Pointer symbol = lib.getGlobalVariableAddress(symbolName);
+            if (symbol == null) {
+                throw new IllegalStateException("Could not find symbol " + symbolName + " in CoreFoundation framework.");
+            }
+            return symbol;
         }
-        return symbol.getPointer(0);
     }
 
+    Pointer CFDictionaryCreateMutable(Pointer allocator, long capacity, Pointer keyCallBacks, Pointer valueCallBacks);
+
+    void CFDictionarySetValue(Pointer dict, Pointer key, Pointer value);
+
+    Pointer CFArrayCreate(Pointer allocator, Pointer[] values, long numValues, Pointer callBacks);
+
     Pointer CFURLCopyFileSystemPath(Pointer url, int pathStyle);
     long CFURLGetTypeID();
 
@@ -59,6 +157,7 @@ interface CoreFoundation extends Library {
 
     // Type checking functions
     long CFGetTypeID(Pointer cf);
+    boolean CFEqual(Pointer cf1, Pointer cf2);
     long CFStringGetTypeID();
     long CFNumberGetTypeID();
     long CFBooleanGetTypeID();
@@ -1,11 +1,13 @@
 package com.selesse.jdiskarbitration.internal;
 
 import com.sun.jna.Memory;
+import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.function.Function;
 
 /**
@@ -16,9 +18,187 @@ class CoreFoundationValueReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(CoreFoundationValueReader.class);
 
     private final CoreFoundation cf;
+    private final ThreadLocal<Prefetch> currentPrefetch = new ThreadLocal<>();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private volatile TypeIds typeIds;
+    private volatile Pointer bundleIdentifierKey;
+    // Whether dictionary keys are the indexed key constants themselves, which prefetching relies on
+    private volatile KeyIdentity keyIdentity = KeyIdentity.UNKNOWN;
+
+    // Converters are created once, since a capturing lambda would allocate on every read
+    private final Function<Pointer, String> stringConverter = this::convertToString;
+    private final Function<Pointer, String> uuidConverter = this::convertUUID;
+    private final Function<Pointer, String> volumePathConverter = this::convertVolumePath;
+    private final Function<Pointer, String> iconConverter = this::convertIconBundleIdentifier;
+    private final Function<Pointer, Long> longConverter = this::convertToLong;
+    private final Function<Pointer, Integer> integerConverter = this::convertToInteger;
+    private final Function<Pointer, Boolean> booleanConverter;
 
     CoreFoundationValueReader(CoreFoundation cf) {
         this.cf = cf;
+        this.booleanConverter = cf::CFBooleanGetValue;
+    }
+
+    /**
+     * Type IDs never change for the lifetime of the process, so they are only asked for once.
+     */
+    private record TypeIds(long string, long number, long booleanType, long uuid, long url, long dictionary) {
+    }
+
+    private TypeIds typeIds() {
+        TypeIds ids = typeIds;
+        if (ids == null) {
+            ids = new TypeIds(cf.CFStringGetTypeID(), cf.CFNumberGetTypeID(), cf.CFBooleanGetTypeID(),
+                cf.CFUUIDGetTypeID(), cf.CFURLGetTypeID(), cf.CFDictionaryGetTypeID());
+            typeIds = ids;
+        }
+        return ids;
+    }
+
+    private enum KeyIdentity {
+        UNKNOWN,
+        IDENTICAL,
+        // Equal to the constants but other objects, so no dictionary can be matched against an index
+        EQUAL_ONLY
+    }
+
+    /**
+     * The set of keys a {@link Prefetch} can answer lookups for, matched by pointer identity.
+     */
+    static final class KeyIndex {
+        private final long[] peers;
+
+        KeyIndex(List<Pointer> keys) {
+            this.peers = new long[keys.size()];
+            for (int i = 0; i < peers.length; i++) {
+                peers[i] = Pointer.nativeValue(keys.get(i));
+            }
+        }
+
+        int slotOf(long peer) {
+            for (int i = 0; i < peers.length; i++) {
+                if (peers[i] == peer) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int size() {
+            return peers.length;
+        }
+
+        Pointer key(int slot) {
+            return new Pointer(peers[slot]);
+        }
+    }
+
+    /**
+     * All values of one dictionary, copied out in a single native call. While open, lookups of
+     * indexed keys in that dictionary on the same thread are answered without crossing into native code.
+     */
+    final class Prefetch implements AutoCloseable {
+        private final Pointer dict;
+        private final KeyIndex index;
+        private final Pointer[] values;
+        // Every key of the dictionary is indexed, so an empty slot means the key is absent
+        private final boolean complete;
+
+        private Prefetch(Pointer dict, KeyIndex index, Pointer[] values, boolean complete) {
+            this.dict = dict;
+            this.index = index;
+            this.values = values;
+            this.complete = complete;
+        }
+
+        @Override
+        public void close() {
+            currentPrefetch.remove();
+        }
+    }
+
+    /**
+     * Copies every value of the dictionary with {@code CFDictionaryGetKeysAndValues} and serves
+     * subsequent reads of indexed keys from that copy until the returned prefetch is closed.
+     *
+     * <p>Dictionary keys are matched against the index by identity, which holds when the dictionary
+     * was built from the exported key constants. A dictionary sharing no key with the index is read
+     * one key at a time. If its keys turn out to equal indexed keys without being them, prefetching
+     * is turned off for good and every read goes through {@code CFDictionaryGetValue}.
+     *
+     * @return an open prefetch, or null if reads should go through per-key lookups
+     */
+    Prefetch prefetch(Pointer dict, KeyIndex index) {
+        if (keyIdentity == KeyIdentity.EQUAL_ONLY || dict == null || dict == Pointer.NULL) {
+            return null;
+        }
+        try {
+            int count = (int) cf.CFDictionaryGetCount(dict);
+            Pointer[] values = new Pointer[index.size()];
+            boolean complete = true;
+            int matched = 0;
+            if (count > 0) {
+                Scratch buffers = scratch();
+                buffers.ensureEntries(count);
+                Memory keyBuffer = buffers.keys;
+                Memory valueBuffer = buffers.values;
+                cf.CFDictionaryGetKeysAndValues(dict, keyBuffer, valueBuffer);
+                for (int i = 0; i < count; i++) {
+                    long offset = (long) i * Native.POINTER_SIZE;
+                    int slot = index.slotOf(Pointer.nativeValue(keyBuffer.getPointer(offset)));
+                    if (slot < 0) {
+                        complete = false;
+                    } else {
+                        values[slot] = valueBuffer.getPointer(offset);
+                        matched++;
+                    }
+                }
+                if (matched == 0) {
+                    // Usually the dictionary just lacks the indexed keys, as with a narrow projection
+                    if (keyIdentity == KeyIdentity.UNKNOWN && sharesKeyByValue(keyBuffer, count, index)) {
+                        LOGGER.debug("Dictionary keys are not the indexed constants, reading keys one at a time");
+                        keyIdentity = KeyIdentity.EQUAL_ONLY;
+                    }
+                    return null;
+                }
+                if (keyIdentity == KeyIdentity.UNKNOWN) {
+                    keyIdentity = KeyIdentity.IDENTICAL;
+                }
+            }
+            Prefetch prefetch = new Prefetch(dict, index, values, complete);
+            currentPrefetch.set(prefetch);
+            return prefetch;
+        } catch (Exception e) {
+            LOGGER.debug("Failed to prefetch dictionary", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether any of the copied dictionary keys is equal to an indexed key. Only asked until
+     * a dictionary has matched an index by identity, since this takes a native call per pair of keys.
+     */
+    private boolean sharesKeyByValue(Memory keyBuffer, int count, KeyIndex index) {
+        for (int i = 0; i < count; i++) {
+            Pointer key = keyBuffer.getPointer((long) i * Native.POINTER_SIZE);
+            for (int slot = 0; slot < index.size(); slot++) {
+                if (cf.CFEqual(key, index.key(slot))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Pointer lookup(Pointer dict, Pointer key) {
+        Prefetch prefetch = currentPrefetch.get();
+        if (prefetch != null && prefetch.dict.equals(dict)) {
+            int slot = prefetch.index.slotOf(Pointer.nativeValue(key));
+            if (slot >= 0 && (prefetch.values[slot] != null || prefetch.complete)) {
+                return prefetch.values[slot];
+            }
+        }
+        return cf.CFDictionaryGetValue(dict, key);
     }
 
     private <T> T getValue(Pointer dict, Pointer key, long expectedTypeID, Function<Pointer, T> converter) {
@@ -26,7 +206,7 @@ class CoreFoundationValueReader {
             return null;
         }
         try {
-            Pointer ref = cf.CFDictionaryGetValue(dict, key);
+            Pointer ref = lookup(dict, key);
             if (ref == null || ref == Pointer.NULL) {
                 return null;
             }
@@ -44,12 +224,33 @@ class CoreFoundationValueReader {
         }
     }
 
+    /**
+     * Converts a CFString that is not read from a dictionary, such as a dictionary key.
+     * Returns null if the pointer is not a CFString.
+     */
+    String toJavaString(Pointer ref) {
+        if (ref == null || ref == Pointer.NULL) {
+            return null;
+        }
+        try {
+            long typeID = cf.CFGetTypeID(ref);
+            if (typeID != typeIds().string()) {
+                LOGGER.debug("Type mismatch: actual={}, expected={}", typeID, typeIds().string());
+                return null;
+            }
+            return convertToString(ref);
+        } catch (Exception e) {
+            LOGGER.debug("Failed to convert CFString", e);
+            return null;
+        }
+    }
+
     /**
      * Reads a string value from a CFDictionary.
      * Returns null if the key doesn't exist or the value is not a CFString.
      */
     String getString(Pointer dict, Pointer key) {
-        return getValue(dict, key, cf.CFStringGetTypeID(), this::convertToString);
+        return getValue(dict, key, typeIds().string(), stringConverter);
     }
 
     /**
@@ -57,17 +258,7 @@ class CoreFoundationValueReader {
      * Converts CFUUIDRef to a string representation.
      */
     String getUUID(Pointer dict, Pointer key) {
-        return getValue(dict, key, cf.CFUUIDGetTypeID(), uuidRef -> {
-            Pointer uuidString = cf.CFUUIDCreateString(null, uuidRef);
-            if (uuidString == null || uuidString == Pointer.NULL) {
-                return null;
-            }
-            try {
-                return convertToString(uuidString);
-            } finally {
-                cf.CFRelease(uuidString);
-            }
-        });
+        return getValue(dict, key, typeIds().uuid(), uuidConverter);
     }
 
     /**
@@ -75,7 +266,7 @@ class CoreFoundationValueReader {
      * Returns false if the key doesn't exist.
      */
     boolean getBoolean(Pointer dict, Pointer key) {
-        Boolean value = getValue(dict, key, cf.CFBooleanGetTypeID(), cf::CFBooleanGetValue);
+        Boolean value = getValue(dict, key, typeIds().booleanType(), booleanConverter);
         return value != null && value;
     }
 
@@ -84,7 +275,7 @@ class CoreFoundationValueReader {
      * Returns null if the key doesn't exist, allowing distinction between absent and false.
      */
     Boolean getBooleanNullable(Pointer dict, Pointer key) {
-        return getValue(dict, key, cf.CFBooleanGetTypeID(), cf::CFBooleanGetValue);
+        return getValue(dict, key, typeIds().booleanType(), booleanConverter);
     }
 
     /**
@@ -92,11 +283,7 @@ class CoreFoundationValueReader {
      * Returns null if the key doesn't exist or conversion fails.
      */
     Long getLong(Pointer dict, Pointer key) {
-        return getValue(dict, key, cf.CFNumberGetTypeID(), ref -> {
-            Memory mem = new Memory(8);
-            boolean success = cf.CFNumberGetValue(ref, CoreFoundation.kCFNumberSInt64Type, mem);
-            return success ? mem.getLong(0) : null;
-        });
+        return getValue(dict, key, typeIds().number(), longConverter);
     }
 
     /**
@@ -104,11 +291,7 @@ class CoreFoundationValueReader {
      * Returns null if the key doesn't exist or conversion fails.
      */
     Integer getInteger(Pointer dict, Pointer key) {
-        return getValue(dict, key, cf.CFNumberGetTypeID(), ref -> {
-            Memory mem = new Memory(4);
-            boolean success = cf.CFNumberGetValue(ref, CoreFoundation.kCFNumberSInt32Type, mem);
-            return success ? mem.getInt(0) : null;
-        });
+        return getValue(dict, key, typeIds().number(), integerConverter);
     }
 
     /**
@@ -116,17 +299,7 @@ class CoreFoundationValueReader {
      * The value is a CFURL which needs special handling.
      */
     String getVolumePath(Pointer dict, Pointer key) {
-        return getValue(dict, key, cf.CFURLGetTypeID(), volumePathRef -> {
-            Pointer cfStringPath = cf.CFURLCopyFileSystemPath(volumePathRef, CoreFoundation.kCFURLPOSIXPathStyle);
-            if (cfStringPath == null || cfStringPath == Pointer.NULL) {
-                return null;
-            }
-            try {
-                return convertToString(cfStringPath);
-            } finally {
-                cf.CFRelease(cfStringPath);
-            }
-        });
+        return getValue(dict, key, typeIds().url(), volumePathConverter);
     }
 
     /**
@@ -135,33 +308,85 @@ class CoreFoundationValueReader {
      * Returns the bundle identifier as a string, or null if not found.
      */
     String getIconBundleIdentifier(Pointer dict, Pointer key) {
-        return getValue(dict, key, cf.CFDictionaryGetTypeID(), iconDict -> {
-            // Create CFString key for "CFBundleIdentifier"
-            Pointer bundleIdKey = cf.CFStringCreateWithCString(null, "CFBundleIdentifier", CoreFoundation.kCFStringEncodingUTF8);
-            if (bundleIdKey == null || bundleIdKey == Pointer.NULL) {
-                return null;
-            }
-            try {
-                // Get the value from the icon dictionary
-                Pointer bundleIdValue = cf.CFDictionaryGetValue(iconDict, bundleIdKey);
-                if (bundleIdValue == null || bundleIdValue == Pointer.NULL) {
-                    return null;
-                }
-                // Check if it's a CFString
-                long typeID = cf.CFGetTypeID(bundleIdValue);
-                if (typeID != cf.CFStringGetTypeID()) {
-                    return null;
+        return getValue(dict, key, typeIds().dictionary(), iconConverter);
+    }
+
+    private Long convertToLong(Pointer ref) {
+        Memory number = scratch().number;
+        boolean success = cf.CFNumberGetValue(ref, CoreFoundation.kCFNumberSInt64Type, number);
+        return success ? number.getLong(0) : null;
+    }
+
+    private Integer convertToInteger(Pointer ref) {
+        Memory number = scratch().number;
+        boolean success = cf.CFNumberGetValue(ref, CoreFoundation.kCFNumberSInt32Type, number);
+        return success ? number.getInt(0) : null;
+    }
+
+    private String convertUUID(Pointer uuidRef) {
+        Pointer uuidString = cf.CFUUIDCreateString(null, uuidRef);
+        if (uuidString == null || uuidString == Pointer.NULL) {
+            return null;
+        }
+        try {
+            return convertToString(uuidString);
+        } finally {
+            cf.CFRelease(uuidString);
+        }
+    }
+
+    private String convertVolumePath(Pointer volumePathRef) {
+        Pointer cfStringPath = cf.CFURLCopyFileSystemPath(volumePathRef, CoreFoundation.kCFURLPOSIXPathStyle);
+        if (cfStringPath == null || cfStringPath == Pointer.NULL) {
+            return null;
+        }
+        try {
+            return convertToString(cfStringPath);
+        } finally {
+            cf.CFRelease(cfStringPath);
+        }
+    }
+
+    private String convertIconBundleIdentifier(Pointer iconDict) {
+        Pointer bundleIdKey = bundleIdentifierKey();
+        if (bundleIdKey == null || bundleIdKey == Pointer.NULL) {
+            return null;
+        }
+        // Get the value from the icon dictionary
+        Pointer bundleIdValue = cf.CFDictionaryGetValue(iconDict, bundleIdKey);
+        if (bundleIdValue == null || bundleIdValue == Pointer.NULL) {
+            return null;
+        }
+        // Check if it's a CFString
+        long typeID = cf.CFGetTypeID(bundleIdValue);
+        if (typeID != typeIds().string()) {
+            return null;
+        }
+        return convertToString(bundleIdValue);
+    }
+
+    /**
+     * Returns the "CFBundleIdentifier" key, created once and kept for the reader's lifetime
+     * like a {@code CFSTR} constant.
+     */
+    private Pointer bundleIdentifierKey() {
+        Pointer key = bundleIdentifierKey;
+        if (key == null) {
+            synchronized (this) {
+                key = bundleIdentifierKey;
+                if (key == null) {
+                    key = cf.CFStringCreateWithCString(null, "CFBundleIdentifier", CoreFoundation.kCFStringEncodingUTF8);
+                    bundleIdentifierKey = key;
                 }
-                return convertToString(bundleIdValue);
-            } finally {
-                cf.CFRelease(bundleIdKey);
             }
-        });
+        }
+        return key;
     }
 
     /**
      * Converts a CFString pointer to a Java String.
-     * Performs type checking to ensure the pointer is actually a CFString.
+     * Callers must have checked the type already, either against the dictionary value
+     * or because the API that produced the pointer always returns a CFString.
      */
     private String convertToString(Pointer pointer) {
         if (pointer == null || pointer == Pointer.NULL) {
@@ -169,16 +394,6 @@ class CoreFoundationValueReader {
         }
 
         try {
-            // Check if the pointer is actually a CFString
-            long typeID = cf.CFGetTypeID(pointer);
-            long stringTypeID = cf.CFStringGetTypeID();
-
-            if (typeID != stringTypeID) {
-                // Not a string - might be CFData, CFDictionary, etc.
-                LOGGER.debug("Value is not a CFString (typeID: {}, expected: {})", typeID, stringTypeID);
-                return null;
-            }
-
             // Try fast path first
             Pointer cStringPtr = cf.CFStringGetCStringPtr(pointer, CoreFoundation.kCFStringEncodingUTF8);
             if (cStringPtr != null && cStringPtr != Pointer.NULL) {
@@ -191,26 +406,75 @@ class CoreFoundationValueReader {
                 return "";
             }
 
-            // Allocate buffer (use max size for safety)
-            long maxSize = cf.CFStringGetMaximumSizeForEncoding(length, CoreFoundation.kCFStringEncodingUTF8) + 1;
-            byte[] buffer = new byte[(int) maxSize];
-
-            boolean success = cf.CFStringGetCString(pointer, buffer, maxSize, CoreFoundation.kCFStringEncodingUTF8);
-            if (!success) {
-                return null;
-            }
-
-            // Find null terminator and convert to String
-            int nullIndex = 0;
-            while (nullIndex < buffer.length && buffer[nullIndex] != 0) {
-                nullIndex++;
+            Scratch scratch = scratch();
+            scratch.range.location = 0;
+            scratch.range.length = length;
+            long converted = cf.CFStringGetBytes(pointer, scratch.range, CoreFoundation.kCFStringEncodingUTF8, (byte) 0,
+                false, scratch.bytes, scratch.bytes.size(), scratch.usedBytes);
+            if (converted < length) {
+                // Too long for the scratch buffer: ask for the exact size, then grow it
+                cf.CFStringGetBytes(pointer, scratch.range, CoreFoundation.kCFStringEncodingUTF8, (byte) 0,
+                    false, null, 0, scratch.usedBytes);
+                scratch.ensureBytes(scratch.usedBytes.getLong(0));
+                converted = cf.CFStringGetBytes(pointer, scratch.range, CoreFoundation.kCFStringEncodingUTF8, (byte) 0,
+                    false, scratch.bytes, scratch.bytes.size(), scratch.usedBytes);
+                if (converted < length) {
+                    return null;
+                }
             }
-
-            return new String(buffer, 0, nullIndex, StandardCharsets.UTF_8);
+            return scratch.decode((int) scratch.usedBytes.getLong(0));
         } catch (Exception e) {
             // Value is not a CFString (might be CFData, CFDictionary, etc.)
             LOGGER.debug("Failed to convert pointer to string", e);
             return null;
         }
     }
+
+    private Scratch scratch() {
+        return scratch.get();
+    }
+
+    /**
+     * Native and heap buffers reused by every read on one thread, so decoding a value does not
+     * allocate once the buffers have grown to fit.
+     */
+    private static final class Scratch {
+        private static final int INITIAL_SIZE = 256;
+
+        final Memory number = new Memory(8);
+        final Memory usedBytes = new Memory(8);
+        final CoreFoundation.CFRange.ByValue range = new CoreFoundation.CFRange.ByValue();
+        Memory bytes = new Memory(INITIAL_SIZE);
+        byte[] heapBytes = new byte[INITIAL_SIZE];
+        Memory keys = new Memory(64L * Native.POINTER_SIZE);
+        Memory values = new Memory(64L * Native.POINTER_SIZE);
+
+        void ensureBytes(long size) {
+            if (bytes.size() < size) {
+                bytes = new Memory(Math.max(size, bytes.size() * 2));
+            }
+        }
+
+        void ensureEntries(int count) {
+            long size = (long) count * Native.POINTER_SIZE;
+            if (keys.size() < size) {
+                keys = new Memory(size);
+                values = new Memory(size);
+            }
+        }
+
+        String decode(int length) {
+            if (heapBytes.length < length) {
+                heapBytes = new byte[Math.max(length, heapBytes.length * 2)];
+            }
+            bytes.read(0, heapBytes, 0, length);
+            for (int i = 0; i < length; i++) {
+                if (heapBytes[i] < 0) {
+                    return new String(heapBytes, 0, length, StandardCharsets.UTF_8);
+                }
+            }
+            // Pure ASCII: Latin-1 copies the bytes straight into a compact string without decoding
+            return new String(heapBytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Merges bursts of description changes to the same disk into a single event.
+ *
+ * <p>A description change is held back until its disk has been quiet for the configured window;
+ * further changes in the meantime replace the held DiskInfo and add their fields to the reported set.
+ * A disk that keeps changing is still flushed once the maximum delay since its first held change has
+ * passed. Any other event for a disk flushes its held change first, so mount, unmount and
+ * disappearance are never reordered with respect to description changes.
+ *
+ * <p>Not thread-safe: every method must be called on the run-loop thread.
+ */
+class DescriptionChangeCoalescer {
+
+    /**
+     * Asks to be woken up, by a call to {@link #flushDue()}, no earlier than the given time.
+     */
+    interface Scheduler {
+        void wakeUpAt(long deadlineNanos);
+    }
+
+    private static final int MAX_DELAY_WINDOWS = 10;
+
+    private final EventDispatcher dispatcher;
+    private final long quietWindowNanos;
+    private final LongSupplier clock;
+    private final Scheduler scheduler;
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+    private static final class Pending {
+        CapturedEvent event;
+        Set<DiskField> changedFields;
+        final long firstSeen;
+        long deadline;
+
+        Pending(CapturedEvent event, long firstSeen) {
+            this.event = event;
+            this.changedFields = EnumSet.noneOf(DiskField.class);
+            this.firstSeen = firstSeen;
+        }
+    }
+
+    DescriptionChangeCoalescer(EventDispatcher dispatcher, long quietWindowNanos, LongSupplier clock, Scheduler scheduler) {
+        this.dispatcher = dispatcher;
+        this.quietWindowNanos = quietWindowNanos;
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Holds a description change, merging it with one already held for the same disk.
+     */
+    void offer(CapturedEvent event) {
+        long now = clock.getAsLong();
+        String bsdName = event.diskInfo().bsdName();
+        Pending held = pending.get(bsdName);
+        if (held == null) {
+            held = new Pending(event, now);
+            pending.put(bsdName, held);
+        } else {
+            // The newer DiskInfo supersedes the held one
+            held.event = event;
+        }
+        held.changedFields.addAll(event.changedFields());
+        held.deadline = Math.min(now + quietWindowNanos, held.firstSeen + MAX_DELAY_WINDOWS * quietWindowNanos);
+        scheduleNext();
+    }
+
+    /**
+     * Dispatches the change held for the disk, if any.
+     */
+    void flush(String bsdName) {
+        Pending held = pending.remove(bsdName);
+        if (held != null) {
+            dispatcher.dispatch(merged(held));
+        }
+    }
+
+    /**
+     * Dispatches every held change whose window has elapsed, oldest first.
+     */
+    void flushDue() {
+        long now = clock.getAsLong();
+        Iterator<Pending> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            Pending held = iterator.next();
+            if (held.deadline - now <= 0) {
+                iterator.remove();
+                dispatcher.dispatch(merged(held));
+            }
+        }
+        scheduleNext();
+    }
+
+    /**
+     * Dispatches every held change regardless of its window.
+     */
+    void flushAll() {
+        Iterator<Pending> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            Pending held = iterator.next();
+            iterator.remove();
+            dispatcher.dispatch(merged(held));
+        }
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private CapturedEvent merged(Pending held) {
+        CapturedEvent event = held.event;
+        return new CapturedEvent(event.type(), event.diskInfo(),
+            Collections.unmodifiableSet(held.changedFields));
+    }
+
+    private void scheduleNext() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (Pending held : pending.values()) {
+            earliest = Math.min(earliest, held.deadline);
+        }
+        scheduler.wakeUpAt(earliest);
+    }
+}
@@ -0,0 +1,19 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEventListener;
+
+/**
+ * Delivers events synchronously on the run-loop thread. This is the default dispatch mode.
+ */
+public class DirectEventDispatcher implements EventDispatcher {
+    private final DiskEventListener listener;
+
+    public DirectEventDispatcher(DiskEventListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void dispatch(CapturedEvent event) {
+        event.deliverTo(listener);
+    }
+}
@@ -2,15 +2,12 @@ package com.selesse.jdiskarbitration.internal;
 
 import com.sun.jna.Callback;
 import com.sun.jna.Library;
-import com.sun.jna.Native;
 import com.sun.jna.Pointer;
-import com.sun.jna.ptr.PointerByReference;
 
 interface DiskArbitration extends Library {
-    DiskArbitration INSTANCE = Native.load("DiskArbitration", DiskArbitration.class);
-
     interface DADiskDescriptionChangedCallback extends Callback {
-        void invoke(Pointer daDisk, PointerByReference p, Pointer context);
+        // keys is a CFArray of the description keys whose values changed
+        void invoke(Pointer daDisk, Pointer keys, Pointer context);
     }
 
     interface DADiskDisappearedCallback extends Callback {
@@ -1,108 +1,95 @@
 package com.selesse.jdiskarbitration.internal;
 
+import com.selesse.jdiskarbitration.DiskField;
 import com.sun.jna.NativeLibrary;
 import com.sun.jna.Pointer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
 // https://developer.apple.com/documentation/diskarbitration/diskarbitration-constants
+/**
+ * The description keys DiskArbitration exports, each resolved the first time it is asked for and
+ * cached from then on, so mapping only looks up the symbols of the projected fields.
+ */
 class DiskArbitrationKeys {
+    private static final DiskField[] FIELDS = DiskField.values();
+    // Present in every description but not mapped
+    static final String APPEARANCE_TIME_SYMBOL = "kDADiskDescriptionAppearanceTimeKey";
+    // Caches a symbol this version of macOS does not export, since null means not yet resolved
+    private static final Pointer MISSING = new Pointer(0);
 
-    // Volume information
-    public final Pointer kDADiskDescriptionVolumePathKey;
-    public final Pointer kDADiskDescriptionVolumeNameKey;
-    public final Pointer kDADiskDescriptionVolumeKindKey;
-    public final Pointer kDADiskDescriptionVolumeUUIDKey;
-    public final Pointer kDADiskDescriptionVolumeMountableKey;
-    public final Pointer kDADiskDescriptionVolumeNetworkKey;
-    public final Pointer kDADiskDescriptionVolumeTypeKey;
-
-    // Device information
-    public final Pointer kDADiskDescriptionDeviceProtocolKey;
-    public final Pointer kDADiskDescriptionDeviceInternalKey;
-    public final Pointer kDADiskDescriptionDeviceModelKey;
-    public final Pointer kDADiskDescriptionDeviceVendorKey;
-    public final Pointer kDADiskDescriptionDeviceRevisionKey;
-    public final Pointer kDADiskDescriptionDeviceUnitKey;
-    public final Pointer kDADiskDescriptionDeviceGUIDKey;
-    public final Pointer kDADiskDescriptionDevicePathKey;
-    public final Pointer kDADiskDescriptionDeviceTDMLockedKey;
+    private final Function<String, Pointer> symbols;
+    // One slot per field, followed by the appearance time key
+    private final AtomicReferenceArray<Pointer> resolved = new AtomicReferenceArray<>(FIELDS.length + 1);
 
-    // Media information
-    public final Pointer kDADiskDescriptionMediaRemovableKey;
-    public final Pointer kDADiskDescriptionMediaSizeKey;
-    public final Pointer kDADiskDescriptionMediaBlockSizeKey;
-    public final Pointer kDADiskDescriptionMediaWritableKey;
-    public final Pointer kDADiskDescriptionMediaWholeKey;
-    public final Pointer kDADiskDescriptionMediaEjectableKey;
-    public final Pointer kDADiskDescriptionMediaLeafKey;
-    public final Pointer kDADiskDescriptionMediaTypeKey;
-    public final Pointer kDADiskDescriptionMediaContentKey;
-    public final Pointer kDADiskDescriptionMediaUUIDKey;
-    public final Pointer kDADiskDescriptionMediaBSDMajorKey;
-    public final Pointer kDADiskDescriptionMediaBSDMinorKey;
-    public final Pointer kDADiskDescriptionMediaBSDNameKey;
-    public final Pointer kDADiskDescriptionMediaBSDUnitKey;
-    public final Pointer kDADiskDescriptionMediaIconKey;
-    public final Pointer kDADiskDescriptionMediaKindKey;
-    public final Pointer kDADiskDescriptionMediaNameKey;
-    public final Pointer kDADiskDescriptionMediaPathKey;
-    public final Pointer kDADiskDescriptionMediaEncryptedKey;
-    public final Pointer kDADiskDescriptionMediaEncryptionDetailKey;
+    public DiskArbitrationKeys() {
+        this(symbolName -> getSymbol(Framework.LIBRARY, symbolName));
+    }
 
-    // Bus information
-    public final Pointer kDADiskDescriptionBusNameKey;
-    public final Pointer kDADiskDescriptionBusPathKey;
+    /**
+     * Resolves keys through the given function, which returns the CFStringRef a symbol name
+     * refers to, or null if it is unavailable. Nothing is resolved until a key is asked for.
+     */
+    DiskArbitrationKeys(Function<String, Pointer> symbols) {
+        this.symbols = symbols;
+    }
 
-    public DiskArbitrationKeys() {
-        NativeLibrary lib = NativeLibrary.getInstance("DiskArbitration");
+    /**
+     * Returns every resolved description key, including keys that are not mapped to a {@link DiskField}.
+     */
+    public List<Pointer> descriptionKeys() {
+        List<Pointer> descriptionKeys = descriptionKeys(Set.of(FIELDS));
+        Pointer appearanceTime = resolve(FIELDS.length, APPEARANCE_TIME_SYMBOL);
+        if (appearanceTime != null) {
+            descriptionKeys.add(appearanceTime);
+        }
+        return descriptionKeys;
+    }
 
-        // Volume information
-        this.kDADiskDescriptionVolumePathKey = getSymbol(lib, "kDADiskDescriptionVolumePathKey");
-        this.kDADiskDescriptionVolumeNameKey = getSymbol(lib, "kDADiskDescriptionVolumeNameKey");
-        this.kDADiskDescriptionVolumeKindKey = getSymbol(lib, "kDADiskDescriptionVolumeKindKey");
-        this.kDADiskDescriptionVolumeUUIDKey = getSymbol(lib, "kDADiskDescriptionVolumeUUIDKey");
-        this.kDADiskDescriptionVolumeMountableKey = getSymbol(lib, "kDADiskDescriptionVolumeMountableKey");
-        this.kDADiskDescriptionVolumeNetworkKey = getSymbol(lib, "kDADiskDescriptionVolumeNetworkKey");
-        this.kDADiskDescriptionVolumeTypeKey = getSymbol(lib, "kDADiskDescriptionVolumeTypeKey");
+    /**
+     * Returns the resolved description keys of the given fields, in field order.
+     */
+    public List<Pointer> descriptionKeys(Set<DiskField> fields) {
+        List<Pointer> descriptionKeys = new ArrayList<>();
+        for (DiskField field : FIELDS) {
+            Pointer key = fields.contains(field) ? key(field) : null;
+            if (key != null) {
+                descriptionKeys.add(key);
+            }
+        }
+        return descriptionKeys;
+    }
 
-        // Device information
-        this.kDADiskDescriptionDeviceProtocolKey = getSymbol(lib, "kDADiskDescriptionDeviceProtocolKey");
-        this.kDADiskDescriptionDeviceInternalKey = getSymbol(lib, "kDADiskDescriptionDeviceInternalKey");
-        this.kDADiskDescriptionDeviceModelKey = getSymbol(lib, "kDADiskDescriptionDeviceModelKey");
-        this.kDADiskDescriptionDeviceVendorKey = getSymbol(lib, "kDADiskDescriptionDeviceVendorKey");
-        this.kDADiskDescriptionDeviceRevisionKey = getSymbol(lib, "kDADiskDescriptionDeviceRevisionKey");
-        this.kDADiskDescriptionDeviceUnitKey = getSymbol(lib, "kDADiskDescriptionDeviceUnitKey");
-        this.kDADiskDescriptionDeviceGUIDKey = getSymbol(lib, "kDADiskDescriptionDeviceGUIDKey");
-        this.kDADiskDescriptionDevicePathKey = getSymbol(lib, "kDADiskDescriptionDevicePathKey");
-        this.kDADiskDescriptionDeviceTDMLockedKey = getSymbol(lib, "kDADiskDescriptionDeviceTDMLockedKey");
+    /**
+     * Returns the resolved description key for a field, or null if the symbol is unavailable.
+     */
+    public Pointer key(DiskField field) {
+        return resolve(field.ordinal(), field.descriptionKey());
+    }
 
-        // Media information
-        this.kDADiskDescriptionMediaRemovableKey = getSymbol(lib, "kDADiskDescriptionMediaRemovableKey");
-        this.kDADiskDescriptionMediaSizeKey = getSymbol(lib, "kDADiskDescriptionMediaSizeKey");
-        this.kDADiskDescriptionMediaBlockSizeKey = getSymbol(lib, "kDADiskDescriptionMediaBlockSizeKey");
-        this.kDADiskDescriptionMediaWritableKey = getSymbol(lib, "kDADiskDescriptionMediaWritableKey");
-        this.kDADiskDescriptionMediaWholeKey = getSymbol(lib, "kDADiskDescriptionMediaWholeKey");
-        this.kDADiskDescriptionMediaEjectableKey = getSymbol(lib, "kDADiskDescriptionMediaEjectableKey");
-        this.kDADiskDescriptionMediaLeafKey = getSymbol(lib, "kDADiskDescriptionMediaLeafKey");
-        this.kDADiskDescriptionMediaTypeKey = getSymbol(lib, "kDADiskDescriptionMediaTypeKey");
-        this.kDADiskDescriptionMediaContentKey = getSymbol(lib, "kDADiskDescriptionMediaContentKey");
-        this.kDADiskDescriptionMediaUUIDKey = getSymbol(lib, "kDADiskDescriptionMediaUUIDKey");
-        this.kDADiskDescriptionMediaBSDMajorKey = getSymbol(lib, "kDADiskDescriptionMediaBSDMajorKey");
-        this.kDADiskDescriptionMediaBSDMinorKey = getSymbol(lib, "kDADiskDescriptionMediaBSDMinorKey");
-        this.kDADiskDescriptionMediaBSDNameKey = getSymbol(lib, "kDADiskDescriptionMediaBSDNameKey");
-        this.kDADiskDescriptionMediaBSDUnitKey = getSymbol(lib, "kDADiskDescriptionMediaBSDUnitKey");
-        this.kDADiskDescriptionMediaIconKey = getSymbol(lib, "kDADiskDescriptionMediaIconKey");
-        this.kDADiskDescriptionMediaKindKey = getSymbol(lib, "kDADiskDescriptionMediaKindKey");
-        this.kDADiskDescriptionMediaNameKey = getSymbol(lib, "kDADiskDescriptionMediaNameKey");
-        this.kDADiskDescriptionMediaPathKey = getSymbol(lib, "kDADiskDescriptionMediaPathKey");
-        this.kDADiskDescriptionMediaEncryptedKey = getSymbol(lib, "kDADiskDescriptionMediaEncryptedKey");
-        this.kDADiskDescriptionMediaEncryptionDetailKey = getSymbol(lib, "kDADiskDescriptionMediaEncryptionDetailKey");
+    private Pointer resolve(int slot, String symbolName) {
+        Pointer key = resolved.get(slot);
+        if (key == null) {
+            // Resolving twice on a race is harmless: both threads find the same constant
+            Pointer symbol = symbols.apply(symbolName);
+            key = symbol == null ? MISSING : symbol;
+            resolved.set(slot, key);
+        }
+        return key == MISSING ? null : key;
+    }
 
-        // Bus information
-        this.kDADiskDescriptionBusNameKey = getSymbol(lib, "kDADiskDescriptionBusNameKey");
-        this.kDADiskDescriptionBusPathKey = getSymbol(lib, "kDADiskDescriptionBusPathKey");
+    /**
+     * Holds the framework, so it is only opened once the first key is resolved.
+     */
+    private static final class Framework {
+        static final NativeLibrary LIBRARY = NativeLibrary.getInstance("DiskArbitration");
     }
 
-    private Pointer getSymbol(NativeLibrary lib, String symbolName) {
+    private static Pointer getSymbol(NativeLibrary lib, String symbolName) {
         try {
             Pointer symbolAddress = lib.getGlobalVariableAddress(symbolName);
             if (symbolAddress == null || symbolAddress == Pointer.NULL) {
@@ -115,6 +102,4 @@ class DiskArbitrationKeys {
             return null;
         }
     }
-
-    public static final DiskArbitrationKeys INSTANCE = new DiskArbitrationKeys();
 }
@@ -1,164 +1,611 @@
 package com.selesse.jdiskarbitration.internal;
 
-import com.selesse.jdiskarbitration.DiskEventListener;
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskEventMetrics;
+import com.selesse.jdiskarbitration.DiskField;
 import com.selesse.jdiskarbitration.DiskInfo;
+import com.selesse.jdiskarbitration.DiskRegistry;
 import com.sun.jna.Pointer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
- * Internal implementation that handles JNA interactions with macOS DiskArbitration framework.
+ * Internal implementation that turns the disk callbacks of a {@link DiskSession} into listener events.
  * This class should not be used directly by library consumers.
+ *
+ * <p>The session owns the DiskArbitration resources and its run-loop thread; this class keeps what
+ * belongs to one manager: filters, disk lifecycle, registry, coalescing and dispatch.
  */
 public class DiskEventWatcher {
     private static final Logger LOGGER = LoggerFactory.getLogger(DiskEventWatcher.class);
+    // The coalescing timer only fires when rescheduled; a long interval keeps it valid in between
+    private static final double IDLE_TIMER_INTERVAL_SECONDS = 365 * 24 * 3600.0;
+    private static final Set<DiskField> VOLUME_PATH = Set.of(DiskField.VOLUME_PATH);
 
-    private final DiskArbitration da;
-    private final CoreFoundation cf;
-    private final DiskInfoMapper diskInfoMapper;
-    private Pointer session;
-    private Pointer runLoop;
-    private Thread runLoopThread;
-
-    private final DiskArbitration.DADiskAppearedCallback appearedCallback;
-    private final DiskArbitration.DADiskDisappearedCallback disappearedCallback;
-    private final DiskArbitration.DADiskDescriptionChangedCallback descriptionChangedCallback;
-
-    private final Set<String> mountedDisks = new HashSet<>();
-    private Thread shutdownHook;
-
-    private final List<Predicate<DiskInfo>> filters;
-
-    public DiskEventWatcher(DiskEventListener listener, List<Predicate<DiskInfo>> filters) {
-        this.filters = filters;
-        da = DiskArbitration.INSTANCE;
-        cf = CoreFoundation.INSTANCE;
-        CoreFoundationValueReader cfReader = new CoreFoundationValueReader(cf);
-        diskInfoMapper = new DiskInfoMapper(da, cf, cfReader);
-
-        appearedCallback = (disk, context) -> {
-            DiskInfo diskInfo = getDiskInfo(disk);
-            if (diskInfo == null || shouldIgnore(diskInfo)) {
-                return;
-            }
-            listener.onDiskAppeared(diskInfo);
+    private final NativeBackend backend;
+    // Bound on the run-loop thread, so building a manager does not load the framework
+    private CoreFoundation cf;
+    private final EventDispatcher dispatcher;
+    private final boolean lazyDiskInfo;
+    private final boolean sharedSession;
+    private final Executor mappingExecutor;
+    private final int mappingThreads;
+    private DiskSession session;
+
+    private final DiskLifecycle lifecycle = new DiskLifecycle();
+    // Run-loop thread only: the fingerprint of each accepted disk's projected fields as last seen,
+    // updated in place, so description changes that leave them all unchanged are not delivered
+    private final Map<String, long[]> fingerprints = new HashMap<>();
+    private final DiskField[] fingerprintFields;
+    // Run-loop thread only: the filter verdict on each known disk as of its last mapping, and the
+    // DiskInfo of the accepted ones, so a disappearance is handled without reading the dying disk
+    private final Map<String, Verdict> verdicts = new HashMap<>();
+    private final boolean cacheVerdicts;
+    // Whether a description change can keep the cached verdict when it touches no filtered field
+    private final boolean reuseVerdicts;
+
+    // Completed with the disks accepted until the session's initial enumeration is drained, which
+    // are collected in initialDisks meanwhile; their appearances are held for a single
+    // onInitialSnapshot call until then, or until another event has to be delivered first
+    private CompletableFuture<List<DiskInfo>> initialSnapshot;
+    private Map<String, DiskInfo> initialDisks;
+    private Map<String, DiskInfo> heldAppearances;
+
+    private final FilterChain filters;
+    private final Map<DiskField, Object> nativeMatch;
+    private final Set<DiskField> fields;
+    private final boolean trackDisks;
+    // Events of other types are dropped, and the callbacks that can only lead to them are not mapped
+    private final Set<DiskEvent.Type> eventTypes;
+    private final Set<DiskField> watchedFields;
+    // Replaced wholesale on every change, so readers on other threads never need a lock
+    private volatile IndexedDiskRegistry registry = IndexedDiskRegistry.empty();
+
+    private final DescriptionChangeCoalescer coalescer;
+    private final CoreFoundation.CFRunLoopTimerCallBack coalescerTimerCallback;
+    private Pointer coalescerTimer;
+
+    private final CoreFoundation.CFRunLoopObserverCallBack idleObserverCallback;
+    private Pointer idleObserver;
+    private final CoreFoundation.CFRunLoopTimerCallBack dispatcherTimerCallback;
+    private Pointer dispatcherTimer;
+
+    private final PipelineMetrics metrics;
+    private final InetSocketAddress metricsAddress;
+    private MetricsEndpoint metricsEndpoint;
+
+    /**
+     * @param diskInfo the disk as last mapped, or null if the filters rejected it
+     */
+    private record Verdict(boolean accepted, DiskInfo diskInfo) {
+    }
+
+    public DiskEventWatcher(WatcherConfig config) {
+        this.dispatcher = config.dispatcher();
+        this.filters = new FilterChain(config.filters());
+        this.nativeMatch = config.nativeMatch();
+        this.lazyDiskInfo = config.lazyDiskInfo();
+        this.fields = config.fields();
+        this.fingerprintFields = fields.toArray(DiskField[]::new);
+        this.trackDisks = config.diskRegistry();
+        this.eventTypes = config.eventTypes();
+        this.watchedFields = config.watchedFields();
+        // Kept only when disappearances would otherwise be mapped; see needsMapping. Not with lazy
+        // DiskInfo, which would have to be decoded in full to outlive its description
+        this.cacheVerdicts = !(config.lazyDiskInfo() && !config.sharedSession())
+            && (trackDisks || eventTypes.contains(DiskEvent.Type.DISAPPEARED)
+                || eventTypes.contains(DiskEvent.Type.UNMOUNTED));
+        // Changes to unwatched fields go unreported, so with a watch list the filters run on every change
+        this.reuseVerdicts = filters.allDeclared() && (config.sharedSession() || watchedFields == null);
+        this.sharedSession = config.sharedSession();
+        this.mappingExecutor = config.mappingExecutor();
+        this.mappingThreads = config.mappingThreads();
+        this.metrics = config.metrics();
+        this.metricsAddress = config.metricsEndpoint();
+        this.backend = config.backend();
+
+        Duration quietWindow = config.descriptionQuietWindow();
+        if (quietWindow != null) {
+            coalescer = new DescriptionChangeCoalescer(dispatcher, quietWindow.toNanos(), System::nanoTime, this::wakeUpAt);
+            coalescerTimerCallback = (timer, info) -> busy(coalescer::flushDue);
+        } else {
+            coalescer = null;
+            coalescerTimerCallback = null;
+        }
+
+        if (dispatcher.needsIdleCallback()) {
+            idleObserverCallback = (observer, activity, info) -> busy(dispatcher::onIdle);
+            dispatcherTimerCallback = (timer, info) -> busy(dispatcher::onDeadline);
+        } else {
+            idleObserverCallback = null;
+            dispatcherTimerCallback = null;
+        }
+    }
+
+    /**
+     * Returns whether a callback must be mapped for this watcher, or could only lead to events it
+     * drops. Called on the run-loop thread, from within the callback.
+     *
+     * @param bsdName the disk's BSD name
+     * @param ordered whether mapped callbacks are handled later, after the ones still being mapped,
+     *                so the disk's lifecycle may not be up to date yet
+     */
+    boolean needsMapping(DiskEvent.Type kind, String bsdName, boolean ordered) {
+        if (trackDisks) {
+            return true;
+        }
+        return switch (kind) {
+            // The disks attached at start are collected for the initial snapshot whatever the types
+            case APPEARED -> eventTypes.contains(DiskEvent.Type.APPEARED) || initialDisks != null;
+            // A disappearance is also the unmount of a disk still mounted
+            case DISAPPEARED -> eventTypes.contains(DiskEvent.Type.DISAPPEARED)
+                || eventTypes.contains(DiskEvent.Type.UNMOUNTED)
+                    && (ordered || bsdName == null || lifecycle.state(bsdName) == DiskLifecycle.State.MOUNTED);
+            default -> needsDescriptionChanges();
         };
+    }
 
-        disappearedCallback = (daDisk, context) -> {
-            DiskInfo diskInfo = getDiskInfo(daDisk);
-            if (diskInfo == null || shouldIgnore(diskInfo)) {
-                return;
-            }
-            String bsdName = diskInfo.bsdName();
-            if (mountedDisks.contains(bsdName)) {
-                listener.onDiskUnmounted(diskInfo);
-                mountedDisks.remove(bsdName);
+    /**
+     * Returns whether description changes must be reported at all, mounts and unmounts being
+     * derived from them.
+     */
+    boolean needsDescriptionChanges() {
+        return trackDisks || eventTypes.contains(DiskEvent.Type.DESCRIPTION_CHANGED)
+            || eventTypes.contains(DiskEvent.Type.MOUNTED) || eventTypes.contains(DiskEvent.Type.UNMOUNTED);
+    }
+
+    /**
+     * Counts a callback that was not mapped, and keeps the disk's lifecycle in step with it. Called
+     * on the run-loop thread in place of {@link #received} and {@link #handle}.
+     */
+    void skipped(DiskEvent.Type kind, String bsdName) {
+        metrics.received(kind);
+        if (bsdName == null) {
+            return;
+        }
+        if (kind == DiskEvent.Type.APPEARED) {
+            lifecycle.appear(bsdName);
+        } else if (kind == DiskEvent.Type.DISAPPEARED) {
+            verdicts.remove(bsdName);
+            disappear(bsdName);
+        }
+    }
+
+    /**
+     * Returns whether the verdict on the disk and its DiskInfo as last mapped are cached, so its
+     * disappearance can be handled by {@link #disappearedFromCache(String)}. Called on the run-loop thread.
+     */
+    boolean knows(String bsdName) {
+        return verdicts.containsKey(bsdName);
+    }
+
+    /**
+     * Handles the disappearance of a disk it {@link #knows(String) knows} from the cached verdict
+     * and DiskInfo, in place of {@link #received} and {@link #handle}. The filters are not run
+     * again, as the dying disk's description may no longer give the answers it gave before. Called
+     * on the run-loop thread.
+     */
+    void disappearedFromCache(String bsdName) {
+        Verdict verdict = verdicts.remove(bsdName);
+        metrics.received(DiskEvent.Type.DISAPPEARED);
+        if (trackDisks) {
+            registry = registry.without(bsdName);
+        }
+        if (!verdict.accepted()) {
+            metrics.filtered(DiskEvent.Type.DISAPPEARED);
+            disappear(bsdName);
+            return;
+        }
+        onDisappeared(DiskSnapshot.of(verdict.diskInfo()));
+    }
+
+    /**
+     * Counts a callback of the session, which took the given time to map its disk. Called on the
+     * run-loop thread for every callback, ahead of {@link #handle}.
+     */
+    void received(DiskEvent.Type kind, long mappingNanos) {
+        metrics.received(kind);
+        metrics.recordMapping(mappingNanos);
+    }
+
+    void recordRunLoopBusy(long nanos) {
+        metrics.recordRunLoopBusy(nanos);
+    }
+
+    /**
+     * Runs the handler of a mapped disk if it passes the filters, and keeps the registry in step.
+     * Called on the run-loop thread; the session releases the snapshot afterwards.
+     *
+     * @param kind          the callback's event type; disks are still attached after anything but a disappearance
+     * @param changedFields the fields reported as changed by a description change
+     * @return whether the disk passed the filters
+     */
+    boolean handle(DiskEvent.Type kind, DiskSnapshot snapshot, Set<DiskField> changedFields) {
+        String bsdName = snapshot.bsdName();
+        Verdict cached = verdicts.get(bsdName);
+        boolean accepted;
+        if (kind == DiskEvent.Type.DESCRIPTION_CHANGED && cached != null && reuseVerdicts
+                && Collections.disjoint(changedFields, filters.declaredFields())) {
+            accepted = cached.accepted();
+        } else {
+            long start = metrics.now();
+            accepted = !shouldIgnore(snapshot, kind);
+            metrics.recordFiltering(metrics.now() - start);
+        }
+        if (kind == DiskEvent.Type.DISAPPEARED) {
+            verdicts.remove(bsdName);
+        } else if (cacheVerdicts) {
+            // Never lazy here, so nothing is decoded to cache the DiskInfo
+            verdicts.put(bsdName, new Verdict(accepted, accepted ? snapshot.diskInfo() : null));
+        }
+        if (trackDisks) {
+            updateRegistry(snapshot, kind != DiskEvent.Type.DISAPPEARED && accepted);
+        }
+        if (!accepted) {
+            metrics.filtered(kind);
+            if (kind == DiskEvent.Type.APPEARED) {
+                // The name is attached again, so the previous disk's tombstone has served its purpose
+                lifecycle.forget(bsdName);
+            } else if (kind == DiskEvent.Type.DISAPPEARED) {
+                disappear(bsdName);
             }
-            listener.onDiskDisappeared(diskInfo);
-        };
+            return false;
+        }
+        switch (kind) {
+            case APPEARED -> onAppeared(snapshot);
+            case DISAPPEARED -> onDisappeared(snapshot);
+            default -> onDescriptionChanged(snapshot, projected(changedFields));
+        }
+        return true;
+    }
 
-        descriptionChangedCallback = (daDisk, p, context) -> {
-            DiskInfo diskInfo = getDiskInfo(daDisk);
-            if (diskInfo == null || shouldIgnore(diskInfo)) {
-                return;
+    private void onAppeared(DiskSnapshot snapshot) {
+        String bsdName = snapshot.bsdName();
+        if (lifecycle.appear(bsdName)) {
+            if (eventTypes.contains(DiskEvent.Type.DESCRIPTION_CHANGED)) {
+                fingerprints.put(bsdName, new long[]{snapshot.fingerprint(fingerprintFields)});
             }
-            String bsdName = diskInfo.bsdName();
-            String volumePath = diskInfo.volumeInfo().path();
-
-            // Check if this is a mount or unmount event
-            if (volumePath != null && !mountedDisks.contains(bsdName)) {
-                listener.onDiskMounted(diskInfo);
-                mountedDisks.add(bsdName);
-            } else if (volumePath == null && mountedDisks.contains(bsdName)) {
-                listener.onDiskUnmounted(diskInfo);
-                mountedDisks.remove(bsdName);
+            if (initialDisks != null) {
+                DiskInfo diskInfo = snapshot.diskInfo();
+                initialDisks.put(bsdName, diskInfo);
+                if (heldAppearances != null) {
+                    heldAppearances.put(bsdName, diskInfo);
+                    return;
+                }
             }
+            dispatch(DiskEvent.Type.APPEARED, snapshot);
+        } else {
+            LOGGER.debug("Ignoring duplicate appearance of {}", bsdName);
+        }
+    }
 
-            listener.onDiskDescriptionChanged(diskInfo);
-        };
+    private void onDisappeared(DiskSnapshot snapshot) {
+        DiskLifecycle.State previous = disappear(snapshot.bsdName());
+        if (previous == DiskLifecycle.State.DISAPPEARED) {
+            LOGGER.debug("Ignoring duplicate disappearance of {}", snapshot.bsdName());
+            return;
+        }
+        if (previous == DiskLifecycle.State.MOUNTED) {
+            dispatch(DiskEvent.Type.UNMOUNTED, snapshot);
+        }
+        dispatch(DiskEvent.Type.DISAPPEARED, snapshot);
+    }
+
+    /**
+     * Ends the disk's lifecycle and drops what was kept of it, whether or not the filters let its
+     * disappearance through, so a disk appearing later under the same name starts afresh.
+     *
+     * @return the state the disk was in, or DISAPPEARED if this is a duplicate
+     */
+    private DiskLifecycle.State disappear(String bsdName) {
+        if (initialDisks != null) {
+            initialDisks.remove(bsdName);
+        }
+        fingerprints.remove(bsdName);
+        return lifecycle.disappear(bsdName);
+    }
+
+    private void onDescriptionChanged(DiskSnapshot snapshot, Set<DiskField> changedFields) {
+        String bsdName = snapshot.bsdName();
+        String volumePath = snapshot.diskInfo(VOLUME_PATH).volumeInfo().path();
+
+        if (lifecycle.state(bsdName) == DiskLifecycle.State.DISAPPEARED) {
+            // Callbacks reach the watcher in the order DiskArbitration issued them, so this is a new disk
+            // under the same name whose appearance was filtered out, natively or here
+            LOGGER.debug("Description change of {} after it disappeared, tracking it as a new disk", bsdName);
+            lifecycle.appear(bsdName);
+        }
+
+        // Check if this is a mount or unmount event of the disk currently under this name
+        long generation = lifecycle.generation(bsdName);
+        if (volumePath != null && lifecycle.mount(bsdName, generation)) {
+            dispatch(DiskEvent.Type.MOUNTED, snapshot);
+        } else if (volumePath == null && lifecycle.unmount(bsdName, generation)) {
+            dispatch(DiskEvent.Type.UNMOUNTED, snapshot);
+        }
+
+        if (eventTypes.contains(DiskEvent.Type.DESCRIPTION_CHANGED) && unchanged(snapshot)) {
+            LOGGER.debug("Suppressing description change of {} that left its projected fields unchanged", bsdName);
+            metrics.suppressedChange();
+            return;
+        }
+        dispatch(DiskEvent.Type.DESCRIPTION_CHANGED, snapshot, changedFields);
+    }
+
+    /**
+     * Returns whether the projected fields of the disk are as they were last seen, and records them.
+     */
+    private boolean unchanged(DiskSnapshot snapshot) {
+        long fingerprint = snapshot.fingerprint(fingerprintFields);
+        long[] last = fingerprints.get(snapshot.bsdName());
+        if (last == null) {
+            fingerprints.put(snapshot.bsdName(), new long[]{fingerprint});
+            return false;
+        }
+        if (last[0] == fingerprint) {
+            return true;
+        }
+        last[0] = fingerprint;
+        return false;
+    }
+
+    /**
+     * Narrows changed fields to this watcher's projection, which a shared session reads beyond.
+     */
+    private Set<DiskField> projected(Set<DiskField> changedFields) {
+        if (fields.containsAll(changedFields)) {
+            return Collections.unmodifiableSet(changedFields);
+        }
+        Set<DiskField> projected = EnumSet.noneOf(DiskField.class);
+        projected.addAll(changedFields);
+        projected.retainAll(fields);
+        return Collections.unmodifiableSet(projected);
+    }
+
+    /**
+     * Runs run-loop work other than disk callbacks, counting it towards the busy time.
+     */
+    private void busy(Runnable work) {
+        long start = metrics.now();
+        try {
+            work.run();
+        } finally {
+            metrics.recordRunLoopBusy(metrics.now() - start);
+        }
     }
 
-    private DiskInfo getDiskInfo(Pointer daDisk) {
-        return diskInfoMapper.fromDADisk(daDisk);
+    private void updateRegistry(DiskSnapshot snapshot, boolean include) {
+        registry = include
+                ? registry.with(snapshot.diskInfo())
+                : registry.without(snapshot.bsdName());
     }
 
-    public void start() {
-        runLoopThread = new Thread(this::runLoopThread, "DiskWatcher-Mac");
-        runLoopThread.setDaemon(true);
-        runLoopThread.start();
+    /**
+     * Returns the disks currently attached that pass the filters.
+     *
+     * @throws IllegalStateException if the registry was not enabled
+     */
+    public DiskRegistry disks() {
+        if (!trackDisks) {
+            throw new IllegalStateException("Disk registry is not enabled; call Builder.diskRegistry()");
+        }
+        return registry;
+    }
 
-        // Register shutdown hook to clean up resources automatically
-        shutdownHook = new Thread(this::stop, "DiskEventWatcher-ShutdownHook");
-        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    /**
+     * Returns whether the pipeline's metrics are collected, and so whether its callbacks need timing.
+     */
+    boolean collectsMetrics() {
+        return metrics.enabled();
     }
 
-    private void runLoopThread() {
-        session = da.DASessionCreate(null);
-        runLoop = cf.CFRunLoopGetCurrent();
+    /**
+     * Returns the pipeline's metrics as of now. Safe to call from any thread.
+     *
+     * @throws IllegalStateException if metrics were not enabled
+     */
+    public DiskEventMetrics metrics() {
+        if (!metrics.enabled()) {
+            throw new IllegalStateException("Metrics are not enabled; call Builder.metrics()");
+        }
+        return metrics.snapshot(dispatcher.queueDepth(), coalescer == null ? 0 : coalescer.pendingCount(),
+            dispatcher.droppedEvents());
+    }
 
-        da.DARegisterDiskAppearedCallback(session, null, appearedCallback, null);
-        da.DARegisterDiskDisappearedCallback(session, null, disappearedCallback, null);
-        da.DARegisterDiskDescriptionChangedCallback(session, null, null, descriptionChangedCallback, null);
+    /**
+     * Marks the end of the session's initial enumeration: delivers the held appearances and
+     * completes the future returned by {@link #start()}. Called on the run-loop thread.
+     */
+    void enumerated() {
+        if (initialDisks == null) {
+            return;
+        }
+        if (heldAppearances != null) {
+            deliverHeldAppearances();
+        }
+        List<DiskInfo> disks = List.copyOf(initialDisks.values());
+        initialDisks = null;
+        initialSnapshot.complete(disks);
+    }
 
-        // Schedule session with CFRunLoop (mandatory!)
-        da.DASessionScheduleWithRunLoop(session, runLoop, cf.getkCFRunLoopDefaultMode());
+    private void deliverHeldAppearances() {
+        List<DiskInfo> disks = List.copyOf(heldAppearances.values());
+        heldAppearances = null;
+        if (!disks.isEmpty()) {
+            dispatcher.dispatch(CapturedEvent.initialSnapshot(disks));
+        }
+    }
 
-        cf.CFRunLoopRun();
+    private void dispatch(DiskEvent.Type type, DiskSnapshot snapshot, Set<DiskField> changedFields) {
+        if (!eventTypes.contains(type)) {
+            return;
+        }
+        if (heldAppearances != null) {
+            // The held appearances happened first, so the snapshot goes out before this event
+            deliverHeldAppearances();
+        }
+        CapturedEvent event = CapturedEvent.of(type, snapshot, changedFields);
+        if (coalescer == null) {
+            dispatcher.dispatch(event);
+        } else if (type == DiskEvent.Type.DESCRIPTION_CHANGED) {
+            coalescer.offer(event);
+        } else {
+            // A held description change happened before this event, so it must be delivered first
+            coalescer.flush(snapshot.bsdName());
+            dispatcher.dispatch(event);
+        }
+    }
 
-        // Clean up CoreFoundation resources on the same thread that created them
+    private void dispatch(DiskEvent.Type type, DiskSnapshot snapshot) {
+        dispatch(type, snapshot, Set.of());
+    }
+
+    private void wakeUpAt(long deadlineNanos) {
+        wakeUpAt(coalescerTimer, deadlineNanos);
+    }
+
+    private void wakeUpAt(Pointer timer, long deadlineNanos) {
+        if (timer != null) {
+            double delaySeconds = Math.max(0, deadlineNanos - System.nanoTime()) / 1e9;
+            cf.CFRunLoopTimerSetNextFireDate(timer, cf.CFAbsoluteTimeGetCurrent() + delaySeconds);
+        }
+    }
+
+    /**
+     * Adds this watcher's timers and observer to the session's run loop. Called on the run-loop
+     * thread before the first event is handled.
+     */
+    void attach(Pointer runLoop) {
+        cf = backend.coreFoundation();
+        // Held description changes are flushed on this thread too, so events keep a single producer
+        if (coalescer != null) {
+            coalescerTimer = cf.CFRunLoopTimerCreate(null, cf.CFAbsoluteTimeGetCurrent() + IDLE_TIMER_INTERVAL_SECONDS,
+                IDLE_TIMER_INTERVAL_SECONDS, 0, 0, coalescerTimerCallback, null);
+            cf.CFRunLoopAddTimer(runLoop, coalescerTimer, cf.getkCFRunLoopDefaultMode());
+        }
+
+        // Lets the dispatcher act once per run-loop pass, after all of that pass's callbacks
+        if (idleObserverCallback != null) {
+            idleObserver = cf.CFRunLoopObserverCreate(null, CoreFoundation.kCFRunLoopBeforeWaiting | CoreFoundation.kCFRunLoopExit,
+                true, 0, idleObserverCallback, null);
+            cf.CFRunLoopAddObserver(runLoop, idleObserver, cf.getkCFRunLoopDefaultMode());
+
+            // Delivers a batch that reaches its maximum latency while the run loop stays busy
+            dispatcherTimer = cf.CFRunLoopTimerCreate(null, cf.CFAbsoluteTimeGetCurrent() + IDLE_TIMER_INTERVAL_SECONDS,
+                IDLE_TIMER_INTERVAL_SECONDS, 0, 0, dispatcherTimerCallback, null);
+            cf.CFRunLoopAddTimer(runLoop, dispatcherTimer, cf.getkCFRunLoopDefaultMode());
+            dispatcher.attach(deadlineNanos -> wakeUpAt(dispatcherTimer, deadlineNanos));
+        }
+    }
+
+    /**
+     * Delivers held description changes and removes this watcher's timers and observer. Called on
+     * the run-loop thread once the session has stopped handing events to this watcher.
+     */
+    void detach() {
+        if (heldAppearances != null) {
+            deliverHeldAppearances();
+        }
         try {
-            da.DAUnregisterCallback(session, appearedCallback, null);
-            da.DAUnregisterCallback(session, disappearedCallback, null);
-            da.DAUnregisterCallback(session, descriptionChangedCallback, null);
-            da.DASessionUnscheduleFromRunLoop(session, runLoop, cf.getkCFRunLoopDefaultMode());
-            cf.CFRelease(session);
+            if (coalescerTimer != null) {
+                coalescer.flushAll();
+                cf.CFRunLoopTimerInvalidate(coalescerTimer);
+                cf.CFRelease(coalescerTimer);
+                coalescerTimer = null;
+            }
+            if (idleObserver != null) {
+                cf.CFRunLoopObserverInvalidate(idleObserver);
+                cf.CFRelease(idleObserver);
+                idleObserver = null;
+            }
+            if (dispatcherTimer != null) {
+                cf.CFRunLoopTimerInvalidate(dispatcherTimer);
+                cf.CFRelease(dispatcherTimer);
+                dispatcherTimer = null;
+            }
         } catch (Exception e) {
-            LOGGER.error("Exception while trying to unregister callbacks", e);
+            LOGGER.error("Exception while trying to remove run-loop sources", e);
         }
     }
 
-    public void stop() {
-        // Stop the run loop - this will cause CFRunLoopRun() to return
-        if (runLoop != null) {
-            cf.CFRunLoopStop(runLoop);
+    /**
+     * Starts watching, and returns a future completed on the run-loop thread with the disks that
+     * were attached beforehand and pass the filters, once DiskArbitration has replayed them all.
+     * Cancelled if the watcher is stopped first.
+     */
+    public synchronized CompletableFuture<List<DiskInfo>> start() {
+        // Bound first, so an unavailable port fails start() before anything else is running
+        if (metricsAddress != null) {
+            metricsEndpoint = MetricsEndpoint.start(metricsAddress, this::metrics);
         }
+        metrics.started(metrics.now());
+        dispatcher.start();
 
-        // Wait for the run loop thread to finish
-        // This ensures all CoreFoundation operations complete on the correct thread
-        if (runLoopThread != null && runLoopThread.isAlive()) {
-            try {
-                runLoopThread.join(5000); // Wait up to 5 seconds
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        initialSnapshot = new CompletableFuture<>();
+        initialDisks = new LinkedHashMap<>();
+        heldAppearances = eventTypes.contains(DiskEvent.Type.APPEARED) ? new LinkedHashMap<>() : null;
+
+        session = sharedSession
+            ? DiskSession.acquireShared(backend)
+            : DiskSession.dedicated(backend, fields, nativeMatch, lazyDiskInfo, mappingExecutor, mappingThreads,
+                lazyDiskInfo || !filters.anyDeclared() ? null : filters, needsDescriptionChanges(),
+                watchedFields);
+        session.subscribe(this);
+        return initialSnapshot;
+    }
+
+    public synchronized void stop() {
+        // Once unsubscribed, no more events can be captured; the last watcher also ends the session
+        if (session != null) {
+            DiskSession subscribed = session;
+            session = null;
+            subscribed.unsubscribe(this);
         }
 
-        // Remove shutdown hook if it was registered and we're not being called from it
-        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
-            try {
-                Runtime.getRuntime().removeShutdownHook(shutdownHook);
-            } catch (IllegalStateException e) {
-                // Shutdown already in progress, ignore
-            }
+        // Deliver whatever is still queued now that no more events can be captured
+        dispatcher.stop();
+
+        if (metricsEndpoint != null) {
+            metricsEndpoint.stop();
+            metricsEndpoint = null;
+        }
+
+        if (initialSnapshot != null) {
+            initialSnapshot.cancel(false);
         }
 
         // Clear references
-        session = null;
-        runLoop = null;
-        runLoopThread = null;
+        initialDisks = null;
+        heldAppearances = null;
+        lifecycle.clear();
+        fingerprints.clear();
+        verdicts.clear();
+        registry = IndexedDiskRegistry.empty();
     }
 
-    private boolean shouldIgnore(DiskInfo diskInfo) {
-        for (Predicate<DiskInfo> filter : filters) {
-            if (!filter.test(diskInfo)) {
-                return true;
-            }
+    private boolean shouldIgnore(DiskSnapshot snapshot, DiskEvent.Type kind) {
+        FilterJfrEvent event = new FilterJfrEvent();
+        event.begin();
+        boolean ignored = !filters.accepts(snapshot);
+        if (event.shouldCommit()) {
+            event.bsdName = snapshot.bsdName();
+            event.kind = kind.name();
+            event.filtersEvaluated = filters.lastEvaluated();
+            event.accepted = !ignored;
+            event.commit();
         }
-        return false;
+        return ignored;
     }
 }
@@ -0,0 +1,28 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A filter of {@code DiskEventManager.Builder}, with the fields its predicate reads.
+ *
+ * @param predicate the filter
+ * @param fields    the fields the predicate reads, or null if they are not known
+ */
+public record DiskFilter(Predicate<DiskInfo> predicate, Set<DiskField> fields) {
+
+    public DiskFilter {
+        fields = fields == null ? null : Set.copyOf(fields);
+    }
+
+    /**
+     * Returns whether the fields the predicate reads are known, so it can run on a disk mapped
+     * with just those.
+     */
+    public boolean declared() {
+        return fields != null;
+    }
+}
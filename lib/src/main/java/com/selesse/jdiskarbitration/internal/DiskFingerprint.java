@@ -0,0 +1,137 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+
+/**
+ * Hashes the projected fields of a {@link DiskInfo} into 64 bits, so a description change that
+ * left all of them as they were can be told apart without keeping the previous DiskInfo.
+ *
+ * <p>Each value is folded in straight from its record accessor, or by {@link DiskInfoMapper} straight
+ * from the description for a lazy snapshot: strings by their characters, numbers and booleans as they
+ * are, and absent values as a marker of their own. Nothing is boxed or copied along the way.
+ */
+final class DiskFingerprint {
+    static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+    static final long ABSENT = 0x6a09e667f3bcc909L;
+
+    private DiskFingerprint() {
+    }
+
+    /**
+     * Returns the fingerprint of the given fields of the disk.
+     */
+    static long of(DiskInfo diskInfo, DiskField[] fields) {
+        DiskInfo.VolumeInfo volume = diskInfo.volumeInfo();
+        DiskInfo.DeviceInfo device = diskInfo.deviceInfo();
+        DiskInfo.MediaInfo media = diskInfo.mediaInfo();
+        DiskInfo.BusInfo bus = diskInfo.busInfo();
+        long fingerprint = SEED;
+        for (DiskField field : fields) {
+            long value = switch (field.group()) {
+                case VOLUME -> volume == null ? ABSENT : volumeValue(volume, field);
+                case DEVICE -> device == null ? ABSENT : deviceValue(device, field);
+                case MEDIA -> media == null ? ABSENT : mediaValue(media, field);
+                case BUS -> bus == null ? ABSENT : busValue(bus, field);
+            };
+            fingerprint = fold(fingerprint, field, value);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Folds the hash of a field's value into a fingerprint started from {@link #SEED}.
+     */
+    static long fold(long fingerprint, DiskField field, long value) {
+        // The field's position keeps equal values of different fields from cancelling out
+        return Long.rotateLeft((fingerprint ^ value) * MULTIPLIER, 31) + field.ordinal();
+    }
+
+    private static long volumeValue(DiskInfo.VolumeInfo volume, DiskField field) {
+        return switch (field) {
+            case VOLUME_PATH -> hash(volume.path());
+            case VOLUME_NAME -> hash(volume.name());
+            case VOLUME_KIND -> hash(volume.kind());
+            case VOLUME_UUID -> hash(volume.uuid());
+            case VOLUME_MOUNTABLE -> hash(volume.mountable());
+            case VOLUME_NETWORK -> hash(volume.network());
+            case VOLUME_TYPE -> hash(volume.type());
+            default -> throw new IllegalArgumentException("Not a volume field: " + field);
+        };
+    }
+
+    private static long deviceValue(DiskInfo.DeviceInfo device, DiskField field) {
+        return switch (field) {
+            case DEVICE_PROTOCOL -> hash(device.protocol());
+            case DEVICE_MODEL -> hash(device.model());
+            case DEVICE_VENDOR -> hash(device.vendor());
+            case DEVICE_REVISION -> hash(device.revision());
+            case DEVICE_UNIT -> hash(device.unit());
+            case DEVICE_INTERNAL -> hash(device.isInternal());
+            case DEVICE_GUID -> hash(device.guid());
+            case DEVICE_PATH -> hash(device.path());
+            case DEVICE_TDM_LOCKED -> hash(device.tdmLocked());
+            default -> throw new IllegalArgumentException("Not a device field: " + field);
+        };
+    }
+
+    private static long mediaValue(DiskInfo.MediaInfo media, DiskField field) {
+        return switch (field) {
+            case MEDIA_REMOVABLE -> hash(media.isRemovable());
+            case MEDIA_SIZE -> hash(media.mediaSize());
+            case MEDIA_BLOCK_SIZE -> hash(media.mediaBlockSize());
+            case MEDIA_WRITABLE -> hash(media.isWritable());
+            case MEDIA_WHOLE -> hash(media.isWholeDisk());
+            case MEDIA_EJECTABLE -> hash(media.isEjectable());
+            case MEDIA_LEAF -> hash(media.isLeaf());
+            case MEDIA_TYPE -> hash(media.mediaType());
+            case MEDIA_CONTENT -> hash(media.mediaContent());
+            case MEDIA_UUID -> hash(media.mediaUUID());
+            case MEDIA_BSD_MAJOR -> hash(media.bsdMajor());
+            case MEDIA_BSD_MINOR -> hash(media.bsdMinor());
+            case MEDIA_BSD_NAME -> hash(media.bsdName());
+            case MEDIA_BSD_UNIT -> hash(media.bsdUnit());
+            case MEDIA_ICON -> hash(media.icon());
+            case MEDIA_KIND -> hash(media.kind());
+            case MEDIA_NAME -> hash(media.name());
+            case MEDIA_PATH -> hash(media.path());
+            case MEDIA_ENCRYPTED -> hash(media.encrypted());
+            case MEDIA_ENCRYPTION_DETAIL -> hash(media.encryptionDetail());
+            default -> throw new IllegalArgumentException("Not a media field: " + field);
+        };
+    }
+
+    private static long busValue(DiskInfo.BusInfo bus, DiskField field) {
+        return switch (field) {
+            case BUS_NAME -> hash(bus.name());
+            case BUS_PATH -> hash(bus.path());
+            default -> throw new IllegalArgumentException("Not a bus field: " + field);
+        };
+    }
+
+    static long hash(String value) {
+        if (value == null) {
+            return ABSENT;
+        }
+        // 64-bit FNV-1a over the UTF-16 code units; String.hashCode() alone would only give 32 bits
+        long hash = SEED;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * PRIME;
+        }
+        return hash;
+    }
+
+    static long hash(Number value) {
+        return value == null ? ABSENT : value.longValue();
+    }
+
+    static long hash(Boolean value) {
+        return value == null ? ABSENT : hash(value.booleanValue());
+    }
+
+    static long hash(boolean value) {
+        return value ? 1 : 0;
+    }
+}
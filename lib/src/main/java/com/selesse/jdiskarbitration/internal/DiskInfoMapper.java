@@ -1,125 +1,409 @@
 package com.selesse.jdiskarbitration.internal;
 
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskField;
 import com.selesse.jdiskarbitration.DiskInfo;
 import com.sun.jna.Pointer;
 
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Maps DiskArbitration DADisk objects to DiskInfo records.
  * Handles extraction and conversion of all disk properties from CoreFoundation dictionaries.
+ * Properties outside the configured field projection are never read.
  */
 class DiskInfoMapper {
+    private static final Set<DiskField> ALL_FIELDS = EnumSet.allOf(DiskField.class);
+
     private final DiskArbitration da;
     private final CoreFoundation cf;
     private final CoreFoundationValueReader cfReader;
     private final DiskArbitrationKeys keys;
+    private final CoreFoundationValueReader.KeyIndex keyIndex;
+    private final boolean[] projected;
+    private final DiskField[] projectedFields;
+    private final int projectedCount;
+    // Contents of the projected fields' key constants, decoded on first use
+    private volatile Map<String, DiskField> fieldsByKeyName;
 
     DiskInfoMapper(DiskArbitration da, CoreFoundation cf, CoreFoundationValueReader cfReader) {
+        this(da, cf, cfReader, ALL_FIELDS);
+    }
+
+    DiskInfoMapper(DiskArbitration da, CoreFoundation cf, CoreFoundationValueReader cfReader, Set<DiskField> fields) {
+        this(da, cf, cfReader, MacOsBackend.INSTANCE.keys(), fields);
+    }
+
+    /**
+     * Creates a mapper that only reads the given fields, leaving the others null (or false).
+     */
+    DiskInfoMapper(DiskArbitration da, CoreFoundation cf, CoreFoundationValueReader cfReader,
+                   DiskArbitrationKeys keys, Set<DiskField> fields) {
         this.da = da;
         this.cf = cf;
         this.cfReader = cfReader;
-        this.keys = DiskArbitrationKeys.INSTANCE;
+        this.keys = keys;
+        // Only the projected keys are resolved; indexing every key of a full projection lets a
+        // prefetch tell an absent key from one that was not copied
+        this.keyIndex = new CoreFoundationValueReader.KeyIndex(fields.size() == DiskField.values().length
+            ? keys.descriptionKeys()
+            : keys.descriptionKeys(fields));
+        this.projected = new boolean[DiskField.values().length];
+        for (DiskField field : fields) {
+            projected[field.ordinal()] = true;
+        }
+        this.projectedFields = fields.toArray(DiskField[]::new);
+        this.projectedCount = fields.size();
+    }
+
+    /**
+     * Returns the BSD name of a DADisk, or null if it has none.
+     */
+    String bsdName(Pointer daDisk) {
+        Pointer bsdNamePtr = da.DADiskGetBSDName(daDisk);
+        return bsdNamePtr == null ? null : bsdNamePtr.getString(0);
     }
 
     /**
      * Converts a DADisk pointer to a DiskInfo object.
-     * Extracts all available disk properties from the DiskArbitration framework.
+     * Extracts all projected disk properties from the DiskArbitration framework,
+     * copying the description out in bulk rather than looking up each key separately.
      *
      * @param daDisk Pointer to a DADisk object
      * @return DiskInfo with all available properties, or null if BSD name is unavailable
      */
     DiskInfo fromDADisk(Pointer daDisk) {
-        Pointer bsdNamePtr = da.DADiskGetBSDName(daDisk);
-        if (bsdNamePtr == null) {
+        return fromDADisk(daDisk, null);
+    }
+
+    /**
+     * Converts a DADisk pointer to a DiskInfo object for a callback of the given kind, which is
+     * only recorded in the {@link MappingJfrEvent}.
+     */
+    DiskInfo fromDADisk(Pointer daDisk, DiskEvent.Type kind) {
+        MappingJfrEvent event = new MappingJfrEvent();
+        event.begin();
+        String bsdName = bsdName(daDisk);
+        if (bsdName == null) {
             return null;
         }
-        String bsdName = bsdNamePtr.getString(0);
 
         Pointer dict = da.DADiskCopyDescription(daDisk);
         if (dict == null) {
+            commit(event, bsdName, kind, 0);
             return new DiskInfo.Builder().bsdName(bsdName).build();
         }
 
+        CoreFoundationValueReader.Prefetch prefetch = cfReader.prefetch(dict, keyIndex);
         try {
             return buildDiskInfo(bsdName, dict);
+        } finally {
+            if (prefetch != null) {
+                prefetch.close();
+            }
+            cf.CFRelease(dict);
+            commit(event, bsdName, kind, projectedCount);
+        }
+    }
+
+    private static void commit(MappingJfrEvent event, String bsdName, DiskEvent.Type kind, int keysRead) {
+        if (event.shouldCommit()) {
+            event.bsdName = bsdName;
+            event.kind = kind == null ? null : kind.name();
+            event.keysRead = keysRead;
+            event.commit();
+        }
+    }
+
+    /**
+     * Captures a DADisk as a lazy snapshot that holds the disk description and decodes each field
+     * of its DiskInfo the first time it is needed.
+     *
+     * @param daDisk Pointer to a DADisk object
+     * @return a snapshot owning the description, or null if BSD name is unavailable
+     */
+    DiskSnapshot lazySnapshot(Pointer daDisk) {
+        String bsdName = bsdName(daDisk);
+        if (bsdName == null) {
+            return null;
+        }
+
+        Pointer dict = da.DADiskCopyDescription(daDisk);
+        if (dict == null) {
+            return DiskSnapshot.of(new DiskInfo.Builder().bsdName(bsdName).build());
+        }
+        return DiskSnapshot.lazy(bsdName, dict, cf, this);
+    }
+
+    /**
+     * Computes the {@link DiskFingerprint} of the given fields straight from a description, reading
+     * each value as the matching record would but building no record.
+     */
+    long fingerprint(Pointer dict, DiskField[] fields) {
+        long fingerprint = DiskFingerprint.SEED;
+        for (DiskField field : fields) {
+            fingerprint = DiskFingerprint.fold(fingerprint, field, valueHash(dict, field));
+        }
+        return fingerprint;
+    }
+
+    private long valueHash(Pointer dict, DiskField field) {
+        Pointer key = keys.key(field);
+        return switch (field) {
+            case VOLUME_PATH -> DiskFingerprint.hash(cfReader.getVolumePath(dict, key));
+            case VOLUME_UUID, DEVICE_GUID, MEDIA_UUID -> DiskFingerprint.hash(cfReader.getUUID(dict, key));
+            case VOLUME_MOUNTABLE, VOLUME_NETWORK, DEVICE_TDM_LOCKED, MEDIA_ENCRYPTED ->
+                DiskFingerprint.hash(cfReader.getBooleanNullable(dict, key));
+            case DEVICE_INTERNAL, MEDIA_REMOVABLE, MEDIA_WRITABLE, MEDIA_WHOLE, MEDIA_EJECTABLE, MEDIA_LEAF ->
+                DiskFingerprint.hash(cfReader.getBoolean(dict, key));
+            case DEVICE_UNIT, MEDIA_SIZE, MEDIA_BLOCK_SIZE -> DiskFingerprint.hash(cfReader.getLong(dict, key));
+            case MEDIA_BSD_MAJOR, MEDIA_BSD_MINOR, MEDIA_BSD_UNIT, MEDIA_ENCRYPTION_DETAIL ->
+                DiskFingerprint.hash(cfReader.getInteger(dict, key));
+            case MEDIA_ICON -> DiskFingerprint.hash(cfReader.getIconBundleIdentifier(dict, key));
+            default -> DiskFingerprint.hash(cfReader.getString(dict, key));
+        };
+    }
+
+    /**
+     * Re-reads only the changed fields of a disk. Every record of {@code previous} that none
+     * of the changed fields belongs to is shared with the returned DiskInfo.
+     *
+     * @param previous      the last DiskInfo produced for this disk
+     * @param daDisk        Pointer to a DADisk object
+     * @param changedFields the fields whose values changed
+     * @return the updated DiskInfo
+     */
+    DiskInfo update(DiskInfo previous, Pointer daDisk, Set<DiskField> changedFields) {
+        MappingJfrEvent event = new MappingJfrEvent();
+        event.begin();
+        boolean[] read = new boolean[projected.length];
+        int keysRead = 0;
+        Set<DiskField.Group> changedGroups = EnumSet.noneOf(DiskField.Group.class);
+        for (DiskField field : changedFields) {
+            if (projected[field.ordinal()]) {
+                read[field.ordinal()] = true;
+                keysRead++;
+                changedGroups.add(field.group());
+            }
+        }
+        if (changedGroups.isEmpty()) {
+            return previous;
+        }
+
+        Pointer dict = da.DADiskCopyDescription(daDisk);
+        if (dict == null) {
+            return previous;
+        }
+        try {
+            return merge(previous, dict, read, changedGroups);
         } finally {
             cf.CFRelease(dict);
+            // Only description changes are mapped incrementally
+            commit(event, previous.bsdName(), DiskEvent.Type.DESCRIPTION_CHANGED, keysRead);
         }
     }
 
+    /**
+     * Decodes the projected fields of a lazy snapshot's description that were not decoded before,
+     * and marks them in {@code decoded}. Every record none of them belongs to is shared with
+     * {@code partial}.
+     *
+     * @param partial the DiskInfo with the fields decoded so far, every other field null (or false)
+     * @param decoded the fields decoded so far, indexed by ordinal
+     * @param fields  the fields to decode, or null for every projected field
+     * @return the DiskInfo with these fields decoded too
+     */
+    DiskInfo decode(DiskInfo partial, Pointer dict, boolean[] decoded, Set<DiskField> fields) {
+        boolean[] read = new boolean[projected.length];
+        Set<DiskField.Group> groups = EnumSet.noneOf(DiskField.Group.class);
+        for (DiskField field : fields == null ? ALL_FIELDS : fields) {
+            int i = field.ordinal();
+            if (projected[i] && !decoded[i]) {
+                read[i] = true;
+                decoded[i] = true;
+                groups.add(field.group());
+            }
+        }
+        return groups.isEmpty() ? partial : merge(partial, dict, read, groups);
+    }
+
+    /**
+     * Re-maps the records of the given groups, reading the fields selected by {@code read} and taking
+     * every other field from {@code previous}.
+     */
+    private DiskInfo merge(DiskInfo previous, Pointer dict, boolean[] read, Set<DiskField.Group> groups) {
+        return new DiskInfo(
+            previous.bsdName(),
+            groups.contains(DiskField.Group.VOLUME) ? mapVolumeInfo(dict, previous.volumeInfo(), read) : previous.volumeInfo(),
+            groups.contains(DiskField.Group.DEVICE) ? mapDeviceInfo(dict, previous.deviceInfo(), read) : previous.deviceInfo(),
+            groups.contains(DiskField.Group.MEDIA) ? mapMediaInfo(dict, previous.mediaInfo(), read) : previous.mediaInfo(),
+            groups.contains(DiskField.Group.BUS) ? mapBusInfo(dict, previous.busInfo(), read) : previous.busInfo()
+        );
+    }
+
+    /**
+     * Translates the changed-keys array of a description-changed callback into projected fields.
+     * Keys that do not correspond to a projected field, such as the appearance time, are skipped.
+     * Only the keys of projected fields are compared, so no other symbol is resolved for it.
+     *
+     * @param keysArray CFArray of description keys
+     * @return the changed fields, or null if a key could not be identified
+     */
+    Set<DiskField> changedFields(Pointer keysArray) {
+        if (keysArray == null || keysArray == Pointer.NULL) {
+            return null;
+        }
+        Set<DiskField> changedFields = EnumSet.noneOf(DiskField.class);
+        long count = cf.CFArrayGetCount(keysArray);
+        for (long i = 0; i < count; i++) {
+            Pointer key = cf.CFArrayGetValueAtIndex(keysArray, i);
+            DiskField field = fieldForKey(key);
+            if (field == null) {
+                // Not one of the projected constants; fall back to comparing the key's contents
+                String keyName = cfReader.toJavaString(key);
+                if (keyName == null) {
+                    return null;
+                }
+                field = fieldsByKeyName().get(keyName);
+            }
+            if (field != null) {
+                changedFields.add(field);
+            }
+        }
+        return changedFields;
+    }
+
+    private DiskField fieldForKey(Pointer key) {
+        for (DiskField field : projectedFields) {
+            if (key != null && key.equals(keys.key(field))) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, DiskField> fieldsByKeyName() {
+        Map<String, DiskField> names = fieldsByKeyName;
+        if (names == null) {
+            names = new HashMap<>();
+            for (DiskField field : projectedFields) {
+                String name = cfReader.toJavaString(keys.key(field));
+                if (name != null) {
+                    names.put(name, field);
+                }
+            }
+            fieldsByKeyName = names;
+        }
+        return names;
+    }
+
     /**
      * Builds a complete DiskInfo object from a BSD name and CFDictionary.
      * Maps all volume, device, media, and bus properties.
      */
     private DiskInfo buildDiskInfo(String bsdName, Pointer dict) {
-        DiskInfo.Builder builder = new DiskInfo.Builder().bsdName(bsdName);
-
-        mapVolumeProperties(builder, dict);
-        mapDeviceProperties(builder, dict);
-        mapMediaProperties(builder, dict);
-        mapBusProperties(builder, dict);
+        return new DiskInfo(
+            bsdName,
+            mapVolumeInfo(dict),
+            mapDeviceInfo(dict),
+            mapMediaInfo(dict),
+            mapBusInfo(dict)
+        );
+    }
 
-        return builder.build();
+    /**
+     * Maps volume-related properties from the dictionary.
+     */
+    DiskInfo.VolumeInfo mapVolumeInfo(Pointer dict) {
+        return mapVolumeInfo(dict, null, projected);
     }
 
     /**
-     * Maps volume-related properties from the dictionary to the builder.
+     * Maps the volume fields selected by {@code read}, taking every other field from {@code previous}.
      */
-    private void mapVolumeProperties(DiskInfo.Builder builder, Pointer dict) {
-        builder.volumePath(cfReader.getVolumePath(dict, keys.kDADiskDescriptionVolumePathKey));
-        builder.volumeName(cfReader.getString(dict, keys.kDADiskDescriptionVolumeNameKey));
-        builder.volumeKind(cfReader.getString(dict, keys.kDADiskDescriptionVolumeKindKey));
-        builder.volumeUUID(cfReader.getUUID(dict, keys.kDADiskDescriptionVolumeUUIDKey));
-        builder.volumeMountable(cfReader.getBooleanNullable(dict, keys.kDADiskDescriptionVolumeMountableKey));
-        builder.volumeNetwork(cfReader.getBooleanNullable(dict, keys.kDADiskDescriptionVolumeNetworkKey));
-        builder.volumeType(cfReader.getString(dict, keys.kDADiskDescriptionVolumeTypeKey));
+    private DiskInfo.VolumeInfo mapVolumeInfo(Pointer dict, DiskInfo.VolumeInfo previous, boolean[] read) {
+        DiskInfo.VolumeInfo p = previous;
+        return new DiskInfo.VolumeInfo(
+            read[DiskField.VOLUME_PATH.ordinal()] ? cfReader.getVolumePath(dict, keys.key(DiskField.VOLUME_PATH)) : p == null ? null : p.path(),
+            read[DiskField.VOLUME_NAME.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.VOLUME_NAME)) : p == null ? null : p.name(),
+            read[DiskField.VOLUME_KIND.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.VOLUME_KIND)) : p == null ? null : p.kind(),
+            read[DiskField.VOLUME_UUID.ordinal()] ? cfReader.getUUID(dict, keys.key(DiskField.VOLUME_UUID)) : p == null ? null : p.uuid(),
+            read[DiskField.VOLUME_MOUNTABLE.ordinal()] ? cfReader.getBooleanNullable(dict, keys.key(DiskField.VOLUME_MOUNTABLE)) : p == null ? null : p.mountable(),
+            read[DiskField.VOLUME_NETWORK.ordinal()] ? cfReader.getBooleanNullable(dict, keys.key(DiskField.VOLUME_NETWORK)) : p == null ? null : p.network(),
+            read[DiskField.VOLUME_TYPE.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.VOLUME_TYPE)) : p == null ? null : p.type()
+        );
     }
 
     /**
-     * Maps device-related properties from the dictionary to the builder.
+     * Maps device-related properties from the dictionary.
      */
-    private void mapDeviceProperties(DiskInfo.Builder builder, Pointer dict) {
-        builder.deviceProtocol(cfReader.getString(dict, keys.kDADiskDescriptionDeviceProtocolKey));
-        builder.deviceModel(cfReader.getString(dict, keys.kDADiskDescriptionDeviceModelKey));
-        builder.deviceVendor(cfReader.getString(dict, keys.kDADiskDescriptionDeviceVendorKey));
-        builder.deviceRevision(cfReader.getString(dict, keys.kDADiskDescriptionDeviceRevisionKey));
-        builder.deviceUnit(cfReader.getLong(dict, keys.kDADiskDescriptionDeviceUnitKey));
-        builder.isInternal(cfReader.getBoolean(dict, keys.kDADiskDescriptionDeviceInternalKey));
-        builder.deviceGuid(cfReader.getUUID(dict, keys.kDADiskDescriptionDeviceGUIDKey));
-        builder.devicePath(cfReader.getString(dict, keys.kDADiskDescriptionDevicePathKey));
-        builder.deviceTdmLocked(cfReader.getBooleanNullable(dict, keys.kDADiskDescriptionDeviceTDMLockedKey));
+    DiskInfo.DeviceInfo mapDeviceInfo(Pointer dict) {
+        return mapDeviceInfo(dict, null, projected);
+    }
+
+    private DiskInfo.DeviceInfo mapDeviceInfo(Pointer dict, DiskInfo.DeviceInfo previous, boolean[] read) {
+        DiskInfo.DeviceInfo p = previous;
+        return new DiskInfo.DeviceInfo(
+            read[DiskField.DEVICE_PROTOCOL.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.DEVICE_PROTOCOL)) : p == null ? null : p.protocol(),
+            read[DiskField.DEVICE_MODEL.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.DEVICE_MODEL)) : p == null ? null : p.model(),
+            read[DiskField.DEVICE_VENDOR.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.DEVICE_VENDOR)) : p == null ? null : p.vendor(),
+            read[DiskField.DEVICE_REVISION.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.DEVICE_REVISION)) : p == null ? null : p.revision(),
+            read[DiskField.DEVICE_UNIT.ordinal()] ? cfReader.getLong(dict, keys.key(DiskField.DEVICE_UNIT)) : p == null ? null : p.unit(),
+            read[DiskField.DEVICE_INTERNAL.ordinal()] ? cfReader.getBoolean(dict, keys.key(DiskField.DEVICE_INTERNAL)) : p != null && p.isInternal(),
+            read[DiskField.DEVICE_GUID.ordinal()] ? cfReader.getUUID(dict, keys.key(DiskField.DEVICE_GUID)) : p == null ? null : p.guid(),
+            read[DiskField.DEVICE_PATH.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.DEVICE_PATH)) : p == null ? null : p.path(),
+            read[DiskField.DEVICE_TDM_LOCKED.ordinal()] ? cfReader.getBooleanNullable(dict, keys.key(DiskField.DEVICE_TDM_LOCKED)) : p == null ? null : p.tdmLocked()
+        );
     }
 
     /**
-     * Maps media-related properties from the dictionary to the builder.
+     * Maps media-related properties from the dictionary.
      */
-    private void mapMediaProperties(DiskInfo.Builder builder, Pointer dict) {
-        builder.isRemovable(cfReader.getBoolean(dict, keys.kDADiskDescriptionMediaRemovableKey));
-        builder.mediaSize(cfReader.getLong(dict, keys.kDADiskDescriptionMediaSizeKey));
-        builder.mediaBlockSize(cfReader.getLong(dict, keys.kDADiskDescriptionMediaBlockSizeKey));
-        builder.isWritable(cfReader.getBoolean(dict, keys.kDADiskDescriptionMediaWritableKey));
-        builder.isWholeDisk(cfReader.getBoolean(dict, keys.kDADiskDescriptionMediaWholeKey));
-        builder.isEjectable(cfReader.getBoolean(dict, keys.kDADiskDescriptionMediaEjectableKey));
-        builder.isLeaf(cfReader.getBoolean(dict, keys.kDADiskDescriptionMediaLeafKey));
-        builder.mediaType(cfReader.getString(dict, keys.kDADiskDescriptionMediaTypeKey));
-        builder.mediaContent(cfReader.getString(dict, keys.kDADiskDescriptionMediaContentKey));
-        builder.mediaUUID(cfReader.getUUID(dict, keys.kDADiskDescriptionMediaUUIDKey));
-        builder.mediaBsdMajor(cfReader.getInteger(dict, keys.kDADiskDescriptionMediaBSDMajorKey));
-        builder.mediaBsdMinor(cfReader.getInteger(dict, keys.kDADiskDescriptionMediaBSDMinorKey));
-        builder.mediaBsdName(cfReader.getString(dict, keys.kDADiskDescriptionMediaBSDNameKey));
-        builder.mediaBsdUnit(cfReader.getInteger(dict, keys.kDADiskDescriptionMediaBSDUnitKey));
-        builder.mediaIcon(cfReader.getIconBundleIdentifier(dict, keys.kDADiskDescriptionMediaIconKey));
-        builder.mediaKind(cfReader.getString(dict, keys.kDADiskDescriptionMediaKindKey));
-        builder.mediaName(cfReader.getString(dict, keys.kDADiskDescriptionMediaNameKey));
-        builder.mediaPath(cfReader.getString(dict, keys.kDADiskDescriptionMediaPathKey));
-        builder.mediaEncrypted(cfReader.getBooleanNullable(dict, keys.kDADiskDescriptionMediaEncryptedKey));
-        builder.mediaEncryptionDetail(cfReader.getInteger(dict, keys.kDADiskDescriptionMediaEncryptionDetailKey));
+    DiskInfo.MediaInfo mapMediaInfo(Pointer dict) {
+        return mapMediaInfo(dict, null, projected);
+    }
+
+    private DiskInfo.MediaInfo mapMediaInfo(Pointer dict, DiskInfo.MediaInfo previous, boolean[] read) {
+        DiskInfo.MediaInfo p = previous;
+        return new DiskInfo.MediaInfo(
+            read[DiskField.MEDIA_REMOVABLE.ordinal()] ? cfReader.getBoolean(dict, keys.key(DiskField.MEDIA_REMOVABLE)) : p != null && p.isRemovable(),
+            read[DiskField.MEDIA_SIZE.ordinal()] ? cfReader.getLong(dict, keys.key(DiskField.MEDIA_SIZE)) : p == null ? null : p.mediaSize(),
+            read[DiskField.MEDIA_BLOCK_SIZE.ordinal()] ? cfReader.getLong(dict, keys.key(DiskField.MEDIA_BLOCK_SIZE)) : p == null ? null : p.mediaBlockSize(),
+            read[DiskField.MEDIA_WRITABLE.ordinal()] ? cfReader.getBoolean(dict, keys.key(DiskField.MEDIA_WRITABLE)) : p != null && p.isWritable(),
+            read[DiskField.MEDIA_WHOLE.ordinal()] ? cfReader.getBoolean(dict, keys.key(DiskField.MEDIA_WHOLE)) : p != null && p.isWholeDisk(),
+            read[DiskField.MEDIA_EJECTABLE.ordinal()] ? cfReader.getBoolean(dict, keys.key(DiskField.MEDIA_EJECTABLE)) : p != null && p.isEjectable(),
+            read[DiskField.MEDIA_LEAF.ordinal()] ? cfReader.getBoolean(dict, keys.key(DiskField.MEDIA_LEAF)) : p != null && p.isLeaf(),
+            read[DiskField.MEDIA_TYPE.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.MEDIA_TYPE)) : p == null ? null : p.mediaType(),
+            read[DiskField.MEDIA_CONTENT.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.MEDIA_CONTENT)) : p == null ? null : p.mediaContent(),
+            read[DiskField.MEDIA_UUID.ordinal()] ? cfReader.getUUID(dict, keys.key(DiskField.MEDIA_UUID)) : p == null ? null : p.mediaUUID(),
+            read[DiskField.MEDIA_BSD_MAJOR.ordinal()] ? cfReader.getInteger(dict, keys.key(DiskField.MEDIA_BSD_MAJOR)) : p == null ? null : p.bsdMajor(),
+            read[DiskField.MEDIA_BSD_MINOR.ordinal()] ? cfReader.getInteger(dict, keys.key(DiskField.MEDIA_BSD_MINOR)) : p == null ? null : p.bsdMinor(),
+            read[DiskField.MEDIA_BSD_NAME.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.MEDIA_BSD_NAME)) : p == null ? null : p.bsdName(),
+            read[DiskField.MEDIA_BSD_UNIT.ordinal()] ? cfReader.getInteger(dict, keys.key(DiskField.MEDIA_BSD_UNIT)) : p == null ? null : p.bsdUnit(),
+            read[DiskField.MEDIA_ICON.ordinal()] ? cfReader.getIconBundleIdentifier(dict, keys.key(DiskField.MEDIA_ICON)) : p == null ? null : p.icon(),
+            read[DiskField.MEDIA_KIND.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.MEDIA_KIND)) : p == null ? null : p.kind(),
+            read[DiskField.MEDIA_NAME.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.MEDIA_NAME)) : p == null ? null : p.name(),
+            read[DiskField.MEDIA_PATH.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.MEDIA_PATH)) : p == null ? null : p.path(),
+            read[DiskField.MEDIA_ENCRYPTED.ordinal()] ? cfReader.getBooleanNullable(dict, keys.key(DiskField.MEDIA_ENCRYPTED)) : p == null ? null : p.encrypted(),
+            read[DiskField.MEDIA_ENCRYPTION_DETAIL.ordinal()] ? cfReader.getInteger(dict, keys.key(DiskField.MEDIA_ENCRYPTION_DETAIL)) : p == null ? null : p.encryptionDetail()
+        );
     }
 
     /**
-     * Maps bus-related properties from the dictionary to the builder.
+     * Maps bus-related properties from the dictionary.
      */
-    private void mapBusProperties(DiskInfo.Builder builder, Pointer dict) {
-        builder.busName(cfReader.getString(dict, keys.kDADiskDescriptionBusNameKey));
-        builder.busPath(cfReader.getString(dict, keys.kDADiskDescriptionBusPathKey));
+    DiskInfo.BusInfo mapBusInfo(Pointer dict) {
+        return mapBusInfo(dict, null, projected);
+    }
+
+    private DiskInfo.BusInfo mapBusInfo(Pointer dict, DiskInfo.BusInfo previous, boolean[] read) {
+        DiskInfo.BusInfo p = previous;
+        return new DiskInfo.BusInfo(
+            read[DiskField.BUS_NAME.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.BUS_NAME)) : p == null ? null : p.name(),
+            read[DiskField.BUS_PATH.ordinal()] ? cfReader.getString(dict, keys.key(DiskField.BUS_PATH)) : p == null ? null : p.path()
+        );
     }
 }
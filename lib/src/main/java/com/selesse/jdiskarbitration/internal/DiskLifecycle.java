@@ -0,0 +1,199 @@
+package com.selesse.jdiskarbitration.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks where each disk is in its lifecycle: APPEARED, then MOUNTED and UNMOUNTED any number of
+ * times, then DISAPPEARED.
+ *
+ * <p>Each disk's state and generation are packed into one {@code long} held in an {@link AtomicLong}
+ * per BSD name, so every transition is a single compare-and-set of a primitive and no lock is taken
+ * or value boxed. The generation is bumped each time a BSD name appears again. Mounts and unmounts
+ * name the generation they were computed for, so a late callback about an earlier disk of the same
+ * name is rejected instead of applying to the current one. Disappeared disks are kept as tombstones
+ * so late callbacks for them can be rejected, until their BSD name appears again.
+ */
+class DiskLifecycle {
+
+    enum State {
+        APPEARED,
+        MOUNTED,
+        UNMOUNTED,
+        DISAPPEARED
+    }
+
+    private static final State[] STATES = State.values();
+    private static final int STATE_BITS = 2;
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+    // A name no disk has appeared under yet: generation 0, with nothing attached
+    private static final long UNSEEN = pack(0, State.DISAPPEARED);
+    // Set on a tombstone as it is dropped, so no transition can land on it once it leaves the map
+    private static final long RETIRED = -1;
+
+    private final ConcurrentHashMap<String, AtomicLong> disks = new ConcurrentHashMap<>();
+
+    /**
+     * Starts a new generation for the disk, replacing the tombstone of an earlier disk of the same name.
+     *
+     * @return false if the disk is already attached, making this a duplicate
+     */
+    boolean appear(String bsdName) {
+        while (true) {
+            AtomicLong entry = entry(bsdName);
+            long word = entry.get();
+            if (word == RETIRED) {
+                disks.remove(bsdName, entry);
+                continue;
+            }
+            if (state(word) != State.DISAPPEARED) {
+                return false;
+            }
+            if (entry.compareAndSet(word, pack(generation(word) + 1, State.APPEARED))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves an attached, unmounted disk to MOUNTED. A disk never seen before, with generation 0, is
+     * taken to have appeared and is mounted as its first generation.
+     *
+     * @param generation the generation the mount was observed for, from {@link #generation(String)}
+     * @return true if the disk was not mounted before and is still of that generation
+     */
+    boolean mount(String bsdName, long generation) {
+        if (generation == 0) {
+            // Disks filtered out when they appeared are first seen here
+            while (true) {
+                AtomicLong entry = entry(bsdName);
+                long word = entry.get();
+                if (word == RETIRED) {
+                    disks.remove(bsdName, entry);
+                    continue;
+                }
+                return word == UNSEEN && entry.compareAndSet(UNSEEN, pack(1, State.MOUNTED));
+            }
+        }
+        return transition(bsdName, generation, State.MOUNTED, State.APPEARED, State.UNMOUNTED);
+    }
+
+    /**
+     * Moves a mounted disk to UNMOUNTED.
+     *
+     * @param generation the generation the unmount was observed for, from {@link #generation(String)}
+     * @return true if the disk was mounted before and is still of that generation
+     */
+    boolean unmount(String bsdName, long generation) {
+        return transition(bsdName, generation, State.UNMOUNTED, State.MOUNTED, State.MOUNTED);
+    }
+
+    /**
+     * Moves the disk to DISAPPEARED, whatever its state.
+     *
+     * @return the state the disk was in, or DISAPPEARED if this is a duplicate
+     */
+    State disappear(String bsdName) {
+        while (true) {
+            AtomicLong entry = entry(bsdName);
+            long word = entry.get();
+            if (word == RETIRED) {
+                disks.remove(bsdName, entry);
+                continue;
+            }
+            if (word == UNSEEN) {
+                // Never seen, so it was attached and unmounted as far as anyone here knows
+                if (entry.compareAndSet(UNSEEN, pack(1, State.DISAPPEARED))) {
+                    return State.APPEARED;
+                }
+                continue;
+            }
+            State state = state(word);
+            if (state == State.DISAPPEARED
+                    || entry.compareAndSet(word, pack(generation(word), State.DISAPPEARED))) {
+                return state;
+            }
+        }
+    }
+
+    /**
+     * Drops the tombstone of a disappeared disk, once a disk of the same name has appeared and
+     * been filtered out. Attached disks are left as they are.
+     */
+    void forget(String bsdName) {
+        AtomicLong entry = disks.get(bsdName);
+        if (entry == null) {
+            return;
+        }
+        while (true) {
+            long word = entry.get();
+            if (word == RETIRED || state(word) != State.DISAPPEARED) {
+                return;
+            }
+            if (entry.compareAndSet(word, RETIRED)) {
+                disks.remove(bsdName, entry);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the state of the disk, or null if it has never been seen.
+     */
+    State state(String bsdName) {
+        AtomicLong entry = disks.get(bsdName);
+        long word = entry == null ? UNSEEN : entry.get();
+        return word == UNSEEN || word == RETIRED ? null : state(word);
+    }
+
+    /**
+     * Returns how many times the BSD name has appeared, or 0 if it has never been seen.
+     */
+    long generation(String bsdName) {
+        AtomicLong entry = disks.get(bsdName);
+        long word = entry == null ? UNSEEN : entry.get();
+        return word == RETIRED ? 0 : generation(word);
+    }
+
+    void clear() {
+        disks.clear();
+    }
+
+    private AtomicLong entry(String bsdName) {
+        AtomicLong entry = disks.get(bsdName);
+        return entry != null ? entry : disks.computeIfAbsent(bsdName, name -> new AtomicLong(UNSEEN));
+    }
+
+    private boolean transition(String bsdName, long generation, State to, State from, State alsoFrom) {
+        AtomicLong entry = disks.get(bsdName);
+        if (entry == null) {
+            return false;
+        }
+        while (true) {
+            long word = entry.get();
+            // A retired tombstone matches no generation
+            if (word == RETIRED || generation(word) != generation) {
+                return false;
+            }
+            State state = state(word);
+            if (state != from && state != alsoFrom) {
+                return false;
+            }
+            if (entry.compareAndSet(word, pack(generation, to))) {
+                return true;
+            }
+        }
+    }
+
+    private static long pack(long generation, State state) {
+        return generation << STATE_BITS | state.ordinal();
+    }
+
+    private static long generation(long word) {
+        return word >>> STATE_BITS;
+    }
+
+    private static State state(long word) {
+        return STATES[(int) (word & STATE_MASK)];
+    }
+}
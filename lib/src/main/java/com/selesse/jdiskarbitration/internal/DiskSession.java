@@ -0,0 +1,655 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A DiskArbitration session and the {@code DiskWatcher-Mac} run-loop thread it is scheduled on,
+ * delivering every disk event to the {@link DiskEventWatcher}s subscribed to it.
+ *
+ * <p>Each DADisk is mapped once per callback, however many watchers are subscribed. A watcher
+ * normally has a session of its own, mapped with its own projection and native match. Watchers
+ * that opt in share the session of their backend instead: it reads every field, leaves matching
+ * to each watcher's filters, and is torn down when its last watcher unsubscribes.
+ *
+ * <p>Watchers joining a running session are attached on the run-loop thread, by way of a one-shot
+ * run-loop timer, so they never see an event twice or miss one in between.
+ *
+ * <p>The first time the run loop is about to wait marks the end of the initial enumeration:
+ * DiskArbitration queues the appeared callbacks of every disk attached beforehand when the session
+ * is scheduled, and the run loop handles everything it has queued before it waits.
+ *
+ * <p>A dedicated session may map its disks in parallel, off the run-loop thread; see
+ * {@link ParallelMapping}. Subscribers still handle every event on the run-loop thread, in order.
+ */
+class DiskSession {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskSession.class);
+    private static final long TIMEOUT_MILLIS = 5000;
+    // Run-loop observers are called in increasing order; the watchers' use the default of 0
+    private static final long ENUMERATED_OBSERVER_ORDER = -1;
+
+    // Shared sessions by backend, guarded by the class lock along with every session's reference count
+    private static final Map<NativeBackend, DiskSession> SHARED = new HashMap<>();
+
+    private final NativeBackend backend;
+    private final boolean shared;
+    private final DiskArbitration da;
+    private final CoreFoundation cf;
+    private final DiskArbitrationKeys keys;
+    private final DiskInfoMapper diskInfoMapper;
+    private final Set<DiskField> fields;
+    private final Map<DiskField, Object> nativeMatch;
+    private final boolean lazyDiskInfo;
+    private final ParallelMapping parallelMapping;
+    // Filters run on a disk mapped with just the fields they read, before mapping the rest
+    private final FilterChain prefilter;
+    private final DiskInfoMapper prefilterMapper;
+    private final boolean descriptionChanges;
+    // The fields whose changes DiskArbitration reports, or null for every field
+    private final Set<DiskField> watchedFields;
+    private int references;
+
+    private final List<DiskEventWatcher> subscribers = new CopyOnWriteArrayList<>();
+    // Last DiskInfo seen per BSD name, so description changes only re-read what changed; in order of
+    // appearance, so whole disks are replayed ahead of their partitions. Guarded by itself, as disks
+    // mapped in parallel update it from the mapping threads
+    private final Map<String, DiskInfo> lastKnown = new LinkedHashMap<>();
+    // Tasks posted to the run loop, kept reachable until their timer fires
+    private final Set<Task> pendingTasks = ConcurrentHashMap.newKeySet();
+
+    private final DiskArbitration.DADiskAppearedCallback appearedCallback;
+    private final DiskArbitration.DADiskDisappearedCallback disappearedCallback;
+    private final DiskArbitration.DADiskDescriptionChangedCallback descriptionChangedCallback;
+    private final CoreFoundation.CFRunLoopObserverCallBack enumeratedCallback;
+    private Pointer enumeratedObserver;
+    // Set on the run-loop thread once DiskArbitration has replayed the disks attached at scheduling
+    private boolean enumerated;
+
+    private Pointer session;
+    private volatile Pointer runLoop;
+    private volatile Thread runLoopThread;
+    private Thread shutdownHook;
+    private final CountDownLatch scheduled = new CountDownLatch(1);
+
+    private DiskSession(NativeBackend backend, boolean shared, Set<DiskField> fields,
+                        Map<DiskField, Object> nativeMatch, boolean lazyDiskInfo, Executor mappingExecutor,
+                        int mappingThreads, FilterChain prefilter, boolean descriptionChanges,
+                        Set<DiskField> watchedFields) {
+        this.backend = backend;
+        this.shared = shared;
+        this.fields = fields;
+        this.nativeMatch = nativeMatch;
+        this.lazyDiskInfo = lazyDiskInfo;
+        this.descriptionChanges = descriptionChanges;
+        this.watchedFields = watchedFields;
+        da = backend.diskArbitration();
+        cf = backend.coreFoundation();
+        keys = backend.keys();
+        CoreFoundationValueReader cfReader = new CoreFoundationValueReader(cf);
+        diskInfoMapper = new DiskInfoMapper(da, cf, cfReader, keys, fields);
+        this.prefilter = prefilter;
+        prefilterMapper = prefilter == null ? null : new DiskInfoMapper(da, cf, cfReader, keys, prefilter.declaredFields());
+        parallelMapping = mappingExecutor == null && mappingThreads == 0
+            ? null
+            : new ParallelMapping(cf, mappingExecutor, mappingThreads, this::post);
+
+        appearedCallback = (disk, context) -> deliver(disk, DiskEvent.Type.APPEARED,
+            () -> getDiskSnapshot(disk, DiskEvent.Type.APPEARED), Set.of());
+
+        disappearedCallback = (daDisk, context) -> {
+            if (parallelMapping == null && disappearFromCache(daDisk)) {
+                return;
+            }
+            deliver(daDisk, DiskEvent.Type.DISAPPEARED, () -> {
+                DiskSnapshot disappeared = getDiskSnapshot(daDisk, DiskEvent.Type.DISAPPEARED);
+                if (disappeared != null) {
+                    synchronized (lastKnown) {
+                        lastKnown.remove(disappeared.bsdName());
+                    }
+                }
+                return disappeared;
+            }, Set.of());
+        };
+
+        descriptionChangedCallback = (daDisk, keys, context) -> {
+            Set<DiskField> changedFields = diskInfoMapper.changedFields(keys);
+            // An unidentified key could be any field, so report the whole projection
+            deliver(daDisk, DiskEvent.Type.DESCRIPTION_CHANGED, () -> getChangedSnapshot(daDisk, changedFields),
+                changedFields == null ? this.fields : changedFields);
+        };
+
+        // The run loop first waits after the appeared callbacks of every disk attached beforehand,
+        // and the enumeration ends after their hand-out when they are mapped in parallel
+        enumeratedCallback = (observer, activity, info) -> {
+            if (parallelMapping != null) {
+                parallelMapping.enqueue(this::enumerationDrained);
+            } else {
+                enumerationDrained();
+            }
+        };
+    }
+
+    /**
+     * Creates a session of the watcher's own, reading only its fields and matching natively.
+     *
+     * @param prefilter          the watcher's filters, to reject disks after reading only the fields
+     *                           they declared; null to map every disk in full
+     * @param descriptionChanges whether to register for description changes at all
+     * @param watchedFields      the fields to have description changes reported for; null for every field
+     */
+    static DiskSession dedicated(NativeBackend backend, Set<DiskField> fields, Map<DiskField, Object> nativeMatch,
+                                 boolean lazyDiskInfo, Executor mappingExecutor, int mappingThreads,
+                                 FilterChain prefilter, boolean descriptionChanges, Set<DiskField> watchedFields) {
+        DiskSession session = new DiskSession(backend, false, fields, nativeMatch, lazyDiskInfo, mappingExecutor,
+            mappingThreads, prefilter, descriptionChanges, watchedFields);
+        synchronized (DiskSession.class) {
+            session.references = 1;
+        }
+        return session;
+    }
+
+    /**
+     * Returns the shared session of the backend, creating it if no watcher holds it, and takes a
+     * reference to it that {@link #unsubscribe(DiskEventWatcher)} gives back.
+     */
+    static DiskSession acquireShared(NativeBackend backend) {
+        synchronized (DiskSession.class) {
+            DiskSession session = SHARED.computeIfAbsent(backend,
+                b -> new DiskSession(b, true, EnumSet.allOf(DiskField.class), Map.of(), false, null, 0, null, true, null));
+            session.references++;
+            return session;
+        }
+    }
+
+    /**
+     * Starts delivering events to the watcher, beginning with every disk already attached.
+     */
+    void subscribe(DiskEventWatcher watcher) {
+        synchronized (this) {
+            if (runLoopThread == null) {
+                // Attached on the run-loop thread before it handles its first callback
+                subscribers.add(watcher);
+                start();
+                return;
+            }
+        }
+        runOnLoop(() -> {
+            watcher.attach(runLoop);
+            subscribers.add(watcher);
+            // DiskArbitration replays attached disks to new sessions only, so this one does it for late joiners
+            List<DiskInfo> attached;
+            synchronized (lastKnown) {
+                attached = List.copyOf(lastKnown.values());
+            }
+            for (DiskInfo diskInfo : attached) {
+                watcher.handle(DiskEvent.Type.APPEARED, DiskSnapshot.of(diskInfo), Set.of());
+            }
+            if (enumerated) {
+                watcher.enumerated();
+            }
+        });
+    }
+
+    /**
+     * Stops delivering events to the watcher. When no other watcher holds the session, it is
+     * unscheduled and released, and its thread ends.
+     */
+    void unsubscribe(DiskEventWatcher watcher) {
+        boolean last;
+        synchronized (DiskSession.class) {
+            last = --references == 0;
+            if (last && shared) {
+                SHARED.remove(backend);
+            }
+        }
+        if (last) {
+            close();
+        } else {
+            runOnLoop(() -> {
+                if (subscribers.remove(watcher)) {
+                    watcher.detach();
+                }
+            });
+        }
+    }
+
+    private void start() {
+        runLoopThread = new Thread(this::runLoopThread, "DiskWatcher-Mac");
+        runLoopThread.setDaemon(true);
+        runLoopThread.start();
+
+        // Register shutdown hook to clean up resources automatically
+        shutdownHook = new Thread(this::stopSubscribers, "DiskEventWatcher-ShutdownHook");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private void stopSubscribers() {
+        for (DiskEventWatcher watcher : subscribers) {
+            watcher.stop();
+        }
+    }
+
+    private void runLoopThread() {
+        session = da.DASessionCreate(null);
+        runLoop = cf.CFRunLoopGetCurrent();
+
+        // Filters with a native equivalent are matched by DiskArbitration itself, and only changes to
+        // the watched keys are reported; DARegister*Callback retains the dictionary and the array, so
+        // they can be released as soon as the callbacks are registered
+        Pointer match = MatchDictionary.create(cf, keys, nativeMatch);
+        Pointer watch = descriptionChanges ? WatchKeys.create(cf, keys, watchedFields) : null;
+        try {
+            da.DARegisterDiskAppearedCallback(session, match, appearedCallback, null);
+            da.DARegisterDiskDisappearedCallback(session, match, disappearedCallback, null);
+            if (descriptionChanges) {
+                da.DARegisterDiskDescriptionChangedCallback(session, match, watch, descriptionChangedCallback, null);
+            }
+        } finally {
+            if (match != null) {
+                cf.CFRelease(match);
+            }
+            if (watch != null) {
+                cf.CFRelease(watch);
+            }
+        }
+
+        // Schedule session with CFRunLoop (mandatory!)
+        da.DASessionScheduleWithRunLoop(session, runLoop, cf.getkCFRunLoopDefaultMode());
+        // Fires once, ahead of the watchers' own observers, which may deliver the initial snapshot
+        enumeratedObserver = cf.CFRunLoopObserverCreate(null, CoreFoundation.kCFRunLoopBeforeWaiting, false,
+            ENUMERATED_OBSERVER_ORDER, enumeratedCallback, null);
+        cf.CFRunLoopAddObserver(runLoop, enumeratedObserver, cf.getkCFRunLoopDefaultMode());
+
+        for (DiskEventWatcher watcher : subscribers) {
+            watcher.attach(runLoop);
+        }
+        scheduled.countDown();
+
+        cf.CFRunLoopRun();
+
+        // Clean up CoreFoundation resources on the same thread that created them
+        try {
+            if (parallelMapping != null) {
+                parallelMapping.close();
+            }
+            // Tasks posted while the run loop was stopping still run, so nobody waits on them
+            for (Task task : pendingTasks) {
+                task.run();
+            }
+            for (DiskEventWatcher watcher : subscribers) {
+                watcher.detach();
+            }
+            subscribers.clear();
+            da.DAUnregisterCallback(session, appearedCallback, null);
+            da.DAUnregisterCallback(session, disappearedCallback, null);
+            if (descriptionChanges) {
+                da.DAUnregisterCallback(session, descriptionChangedCallback, null);
+            }
+            cf.CFRunLoopObserverInvalidate(enumeratedObserver);
+            cf.CFRelease(enumeratedObserver);
+            enumeratedObserver = null;
+            da.DASessionUnscheduleFromRunLoop(session, runLoop, cf.getkCFRunLoopDefaultMode());
+            cf.CFRelease(session);
+        } catch (Exception e) {
+            LOGGER.error("Exception while trying to unregister callbacks", e);
+        }
+        synchronized (lastKnown) {
+            lastKnown.clear();
+        }
+        session = null;
+    }
+
+    private void close() {
+        if (runLoopThread == null) {
+            return;
+        }
+        awaitScheduled();
+        // Stop the run loop - this will cause CFRunLoopRun() to return
+        Pointer loop = runLoop;
+        if (loop != null) {
+            cf.CFRunLoopStop(loop);
+        }
+
+        // Wait for the run loop thread to finish
+        // This ensures all CoreFoundation operations complete on the correct thread
+        Thread thread = runLoopThread;
+        if (thread != null && thread.isAlive() && thread != Thread.currentThread()) {
+            try {
+                thread.join(TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Remove shutdown hook if it was registered and we're not being called from it
+        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Shutdown already in progress, ignore
+            }
+        }
+    }
+
+    private void awaitScheduled() {
+        if (Thread.currentThread() == runLoopThread) {
+            return;
+        }
+        try {
+            if (!scheduled.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("DiskArbitration session was not scheduled within {} ms", TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the task on the run-loop thread and waits for it, or runs it directly when already there.
+     */
+    private void runOnLoop(Runnable work) {
+        if (Thread.currentThread() == runLoopThread) {
+            work.run();
+            return;
+        }
+        awaitScheduled();
+        Task task = post(work);
+        try {
+            if (!task.done.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Run-loop thread did not run a subscription change within {} ms", TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Posts the work to the scheduled run loop without waiting for it. Safe to call from any thread.
+     */
+    private Task post(Runnable work) {
+        Task task = new Task(work);
+        task.timer = cf.CFRunLoopTimerCreate(null, cf.CFAbsoluteTimeGetCurrent(), 0, 0, 0, task, null);
+        pendingTasks.add(task);
+        cf.CFRunLoopAddTimer(runLoop, task.timer, cf.getkCFRunLoopDefaultMode());
+        cf.CFRunLoopWakeUp(runLoop);
+        return task;
+    }
+
+    /**
+     * Work posted to the run loop as the callout of a one-shot timer.
+     */
+    private final class Task implements CoreFoundation.CFRunLoopTimerCallBack {
+        private final Runnable work;
+        private final AtomicBoolean ran = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Pointer timer;
+
+        Task(Runnable work) {
+            this.work = work;
+        }
+
+        @Override
+        public void invoke(Pointer timer, Pointer info) {
+            run();
+        }
+
+        void run() {
+            if (!ran.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                work.run();
+            } finally {
+                pendingTasks.remove(this);
+                cf.CFRunLoopTimerInvalidate(timer);
+                cf.CFRelease(timer);
+                done.countDown();
+            }
+        }
+    }
+
+    private void enumerationDrained() {
+        if (!enumerated) {
+            enumerated = true;
+            for (DiskEventWatcher watcher : subscribers) {
+                watcher.enumerated();
+            }
+        }
+    }
+
+    /**
+     * Maps the disk of a callback once and hands it to every subscriber, then releases the
+     * callback's own reference to the description. Mapping and the whole callback are timed
+     * into each subscriber's metrics. A dedicated session skips the mapping when its watcher
+     * would drop every event the callback can lead to; a shared session always maps, as the
+     * disks it knows are replayed to watchers joining later.
+     */
+    private void deliver(Pointer daDisk, DiskEvent.Type kind, Supplier<DiskSnapshot> mapping,
+                         Set<DiskField> changedFields) {
+        if (!shared && !needsMapping(daDisk, kind)) {
+            return;
+        }
+        if (parallelMapping != null) {
+            deliverMappedInParallel(daDisk, kind, mapping, changedFields);
+            return;
+        }
+        CallbackJfrEvent callbackEvent = new CallbackJfrEvent();
+        callbackEvent.begin();
+        boolean timed = timed();
+        long start = now(timed);
+        DiskSnapshot snapshot = null;
+        boolean accepted = false;
+        try {
+            snapshot = mapping.get();
+            accepted = handOut(kind, snapshot, now(timed) - start, changedFields);
+        } finally {
+            finish(callbackEvent, kind, snapshot, accepted, now(timed) - start);
+        }
+    }
+
+    /**
+     * Hands out a disappearance from what every subscriber kept of the disk's last mapping, if they
+     * all did, reading nothing of the dying disk but its BSD name. Disks mapped in parallel are
+     * handed out after the callback, so the subscribers' caches may lag behind it and are not used.
+     *
+     * @return whether the disappearance was handed out
+     */
+    private boolean disappearFromCache(Pointer daDisk) {
+        boolean timed = timed();
+        long start = now(timed);
+        String bsdName = diskInfoMapper.bsdName(daDisk);
+        if (bsdName == null || subscribers.isEmpty()) {
+            return false;
+        }
+        for (DiskEventWatcher watcher : subscribers) {
+            if (!watcher.knows(bsdName)) {
+                return false;
+            }
+        }
+        synchronized (lastKnown) {
+            lastKnown.remove(bsdName);
+        }
+        for (DiskEventWatcher watcher : subscribers) {
+            watcher.disappearedFromCache(bsdName);
+        }
+        long busyNanos = now(timed) - start;
+        for (DiskEventWatcher watcher : subscribers) {
+            watcher.recordRunLoopBusy(busyNanos);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether any subscriber needs the callback mapped, and otherwise lets them account for
+     * it unmapped, in sequence with the callbacks still being mapped.
+     */
+    private boolean needsMapping(Pointer daDisk, DiskEvent.Type kind) {
+        String bsdName = diskInfoMapper.bsdName(daDisk);
+        for (DiskEventWatcher watcher : subscribers) {
+            if (watcher.needsMapping(kind, bsdName, parallelMapping != null)) {
+                return true;
+            }
+        }
+        Runnable skip = () -> {
+            for (DiskEventWatcher watcher : subscribers) {
+                watcher.skipped(kind, bsdName);
+            }
+        };
+        if (parallelMapping != null) {
+            parallelMapping.enqueue(skip);
+        } else {
+            skip.run();
+        }
+        return false;
+    }
+
+    /**
+     * Leaves the mapping to {@link ParallelMapping}, and hands its result to every subscriber on
+     * the run loop once the events before it have been. The run loop is busy for the callback
+     * itself and for the hand-out.
+     */
+    private void deliverMappedInParallel(Pointer daDisk, DiskEvent.Type kind, Supplier<DiskSnapshot> mapping,
+                                         Set<DiskField> changedFields) {
+        boolean timed = timed();
+        long start = now(timed);
+        parallelMapping.submit(daDisk, diskInfoMapper.bsdName(daDisk), () -> {
+            long mappingStart = now(timed);
+            DiskSnapshot snapshot = mapping.get();
+            long mappingNanos = now(timed) - mappingStart;
+            return () -> {
+                CallbackJfrEvent callbackEvent = new CallbackJfrEvent();
+                callbackEvent.begin();
+                long handOutStart = now(timed);
+                boolean accepted = false;
+                try {
+                    accepted = handOut(kind, snapshot, mappingNanos, changedFields);
+                } finally {
+                    finish(callbackEvent, kind, snapshot, accepted, now(timed) - handOutStart);
+                }
+            };
+        });
+        long busyNanos = now(timed) - start;
+        for (DiskEventWatcher watcher : subscribers) {
+            watcher.recordRunLoopBusy(busyNanos);
+        }
+    }
+
+    /**
+     * Hands a mapped disk to every subscriber, returning whether any of them accepted it.
+     */
+    private boolean handOut(DiskEvent.Type kind, DiskSnapshot snapshot, long mappingNanos,
+                            Set<DiskField> changedFields) {
+        boolean accepted = false;
+        for (DiskEventWatcher watcher : subscribers) {
+            watcher.received(kind, mappingNanos);
+            if (snapshot != null) {
+                accepted |= watcher.handle(kind, snapshot, changedFields);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns whether any subscriber collects metrics, and so whether callbacks need timing. Decided
+     * once per callback, so a subscriber joining halfway through cannot skew its timings.
+     */
+    private boolean timed() {
+        for (DiskEventWatcher watcher : subscribers) {
+            if (watcher.collectsMetrics()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long now(boolean timed) {
+        return timed ? System.nanoTime() : 0;
+    }
+
+    private void finish(CallbackJfrEvent callbackEvent, DiskEvent.Type kind, DiskSnapshot snapshot, boolean accepted,
+                        long busyNanos) {
+        if (snapshot != null) {
+            snapshot.release();
+        }
+        for (DiskEventWatcher watcher : subscribers) {
+            watcher.recordRunLoopBusy(busyNanos);
+        }
+        if (callbackEvent.shouldCommit()) {
+            callbackEvent.bsdName = snapshot == null ? null : snapshot.bsdName();
+            callbackEvent.kind = kind.name();
+            callbackEvent.accepted = accepted;
+            callbackEvent.commit();
+        }
+    }
+
+    private DiskSnapshot getDiskSnapshot(Pointer daDisk, DiskEvent.Type kind) {
+        if (lazyDiskInfo) {
+            return diskInfoMapper.lazySnapshot(daDisk);
+        }
+        if (prefilter != null) {
+            DiskInfo filtered = prefilterMapper.fromDADisk(daDisk, kind);
+            if (filtered == null) {
+                return null;
+            }
+            if (!prefilter.acceptsDeclared(filtered)) {
+                // Only the filters' fields were read, so the next change maps the disk afresh; the
+                // watcher's filters reject it again before any of the others would be needed
+                synchronized (lastKnown) {
+                    lastKnown.remove(filtered.bsdName());
+                }
+                return DiskSnapshot.of(filtered);
+            }
+        }
+        DiskInfo diskInfo = diskInfoMapper.fromDADisk(daDisk, kind);
+        if (diskInfo == null) {
+            return null;
+        }
+        synchronized (lastKnown) {
+            lastKnown.put(diskInfo.bsdName(), diskInfo);
+        }
+        return DiskSnapshot.of(diskInfo);
+    }
+
+    /**
+     * Re-reads only the changed fields when the previous DiskInfo of the disk is known, and maps
+     * the whole disk otherwise. Lazy DiskInfo is always mapped afresh, since its description is
+     * released after the callback and there is nothing to carry unchanged records over from. So is
+     * every disk when only some fields are watched, as changes to the others went unreported.
+     */
+    private DiskSnapshot getChangedSnapshot(Pointer daDisk, Set<DiskField> changedFields) {
+        if (lazyDiskInfo || changedFields == null || watchedFields != null) {
+            return getDiskSnapshot(daDisk, DiskEvent.Type.DESCRIPTION_CHANGED);
+        }
+        String bsdName = diskInfoMapper.bsdName(daDisk);
+        DiskInfo previous;
+        synchronized (lastKnown) {
+            previous = bsdName == null ? null : lastKnown.get(bsdName);
+        }
+        if (previous == null) {
+            return getDiskSnapshot(daDisk, DiskEvent.Type.DESCRIPTION_CHANGED);
+        }
+        DiskInfo diskInfo = diskInfoMapper.update(previous, daDisk, changedFields);
+        synchronized (lastKnown) {
+            lastKnown.put(bsdName, diskInfo);
+        }
+        return DiskSnapshot.of(diskInfo);
+    }
+}
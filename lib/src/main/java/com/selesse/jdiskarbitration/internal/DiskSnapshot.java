@@ -0,0 +1,110 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import com.sun.jna.Pointer;
+
+import java.util.Set;
+
+/**
+ * The disk captured for one native callback, decoded as far as the pipeline needs it.
+ *
+ * <p>A lazy snapshot owns the {@code DADiskCopyDescription} dictionary of the disk until the session
+ * releases it after the callback. It decodes each field the first time a filter, the fingerprint or
+ * an event needs it, and remembers it, so a disk that is filtered out or whose change is suppressed
+ * is never decoded in full. The DiskInfo handed to listeners is always decoded in full before the
+ * description is released.
+ */
+class DiskSnapshot {
+    private final String bsdName;
+    private final CoreFoundation cf;
+    private final DiskInfoMapper mapper;
+    // Lazy snapshots only: the fields decoded into diskInfo so far, indexed by ordinal
+    private final boolean[] decoded;
+    private DiskInfo diskInfo;
+    private boolean complete;
+    private Pointer dict;
+
+    private DiskSnapshot(DiskInfo diskInfo) {
+        this.bsdName = diskInfo.bsdName();
+        this.cf = null;
+        this.mapper = null;
+        this.decoded = null;
+        this.diskInfo = diskInfo;
+        this.complete = true;
+    }
+
+    private DiskSnapshot(String bsdName, Pointer dict, CoreFoundation cf, DiskInfoMapper mapper) {
+        this.bsdName = bsdName;
+        this.cf = cf;
+        this.mapper = mapper;
+        this.dict = dict;
+        this.decoded = new boolean[DiskField.values().length];
+        this.diskInfo = new DiskInfo.Builder().bsdName(bsdName).build();
+    }
+
+    /**
+     * Wraps an already decoded DiskInfo. Releasing it is a no-op.
+     */
+    static DiskSnapshot of(DiskInfo diskInfo) {
+        return new DiskSnapshot(diskInfo);
+    }
+
+    /**
+     * Takes ownership of a description dictionary obtained from {@code DADiskCopyDescription}.
+     */
+    static DiskSnapshot lazy(String bsdName, Pointer dict, CoreFoundation cf, DiskInfoMapper mapper) {
+        return new DiskSnapshot(bsdName, dict, cf, mapper);
+    }
+
+    String bsdName() {
+        return bsdName;
+    }
+
+    /**
+     * Returns the disk with every projected field decoded.
+     */
+    synchronized DiskInfo diskInfo() {
+        if (!complete) {
+            diskInfo = mapper.decode(diskInfo, requireDict(), decoded, null);
+            complete = true;
+        }
+        return diskInfo;
+    }
+
+    /**
+     * Returns the disk with at least the given fields decoded. Fields that have not been decoded
+     * yet are null (or false), so the result is only meant for readers of these fields.
+     */
+    synchronized DiskInfo diskInfo(Set<DiskField> fields) {
+        if (!complete) {
+            diskInfo = mapper.decode(diskInfo, requireDict(), decoded, fields);
+        }
+        return diskInfo;
+    }
+
+    /**
+     * Returns the {@link DiskFingerprint} of the given fields. A lazy snapshot hashes them straight
+     * from its description, so none of them is decoded for it.
+     */
+    synchronized long fingerprint(DiskField[] fields) {
+        if (cf == null) {
+            return DiskFingerprint.of(diskInfo, fields);
+        }
+        return mapper.fingerprint(requireDict(), fields);
+    }
+
+    synchronized void release() {
+        if (dict != null) {
+            cf.CFRelease(dict);
+            dict = null;
+        }
+    }
+
+    private Pointer requireDict() {
+        if (dict == null) {
+            throw new IllegalStateException("Description of " + bsdName + " was already released");
+        }
+        return dict;
+    }
+}
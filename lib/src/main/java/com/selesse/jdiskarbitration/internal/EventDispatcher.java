@@ -0,0 +1,66 @@
+package com.selesse.jdiskarbitration.internal;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Hands disk events captured on the run-loop thread over to the listener.
+ */
+public interface EventDispatcher {
+
+    void dispatch(CapturedEvent event);
+
+    /**
+     * Called before the run-loop thread starts producing events.
+     */
+    default void start() {
+    }
+
+    /**
+     * Called after the run-loop thread has stopped producing events.
+     */
+    default void stop() {
+    }
+
+    /**
+     * Returns whether {@link #onIdle()} should be called, so the watcher only observes the run loop
+     * for dispatchers that need it.
+     */
+    default boolean needsIdleCallback() {
+        return false;
+    }
+
+    /**
+     * Called on the run-loop thread when it is about to sleep, after handling a pass of callbacks.
+     */
+    default void onIdle() {
+    }
+
+    /**
+     * Called on the run-loop thread before the first event, for dispatchers that need the idle
+     * callback, with the function that schedules {@link #onDeadline()} at a {@link System#nanoTime()}
+     * deadline. Each call replaces the deadline scheduled before.
+     */
+    default void attach(LongConsumer wakeUpAt) {
+    }
+
+    /**
+     * Called on the run-loop thread once the last scheduled deadline is reached.
+     */
+    default void onDeadline() {
+    }
+
+    /**
+     * Returns the number of events captured but not yet delivered. May be called from any thread,
+     * so the value can be slightly out of date.
+     */
+    default int queueDepth() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of events discarded instead of delivered.
+     */
+    default long droppedEvents() {
+        return 0;
+    }
+}
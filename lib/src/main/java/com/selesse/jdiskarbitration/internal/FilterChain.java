@@ -0,0 +1,167 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The filters of a watcher, evaluated cheapest and most selective first.
+ *
+ * <p>A filter costs the number of description keys it reads. One that did not declare its fields
+ * is assumed to read all of them, and runs after every filter that did. Within each of the two,
+ * filters are ordered by cost over observed rejection rate, which for independent filters
+ * minimises the expected cost of deciding on a disk. The order starts from cost alone, and is
+ * recomputed from the rejection counts every {@value #REORDER_INTERVAL} evaluations.
+ *
+ * <p>{@link #accepts(DiskInfo)} is called on the run-loop thread only. {@link #acceptsDeclared(DiskInfo)}
+ * may be called from mapping threads, and reads the order published by the last reordering.
+ */
+public final class FilterChain {
+    static final int REORDER_INTERVAL = 256;
+    private static final int UNDECLARED_COST = DiskField.values().length + 1;
+
+    private static final Comparator<Entry> EXPECTED_COST = Comparator
+        .comparing((Entry entry) -> !entry.filter.declared())
+        .thenComparingDouble(Entry::rank);
+
+    private volatile Entry[] entries;
+    private final Set<DiskField> declaredFields = EnumSet.noneOf(DiskField.class);
+    private final boolean anyDeclared;
+    private final boolean allDeclared;
+    private int sinceReorder;
+    private int lastEvaluated;
+
+    private static final class Entry {
+        final DiskFilter filter;
+        final int cost;
+        // Run-loop thread only
+        long evaluated;
+        long rejected;
+
+        Entry(DiskFilter filter) {
+            this.filter = filter;
+            this.cost = filter.declared() ? filter.fields().size() : UNDECLARED_COST;
+        }
+
+        /**
+         * Cost per rejection, with every filter assumed to reject half of the disks until it has
+         * been evaluated; a filter reading nothing still ranks by how often it rejects.
+         */
+        double rank() {
+            double rejectionRate = (rejected + 1.0) / (evaluated + 2.0);
+            return Math.max(cost, 0.5) / rejectionRate;
+        }
+    }
+
+    public FilterChain(List<DiskFilter> filters) {
+        Entry[] initial = new Entry[filters.size()];
+        boolean declared = false;
+        boolean undeclared = false;
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = new Entry(filters.get(i));
+            if (initial[i].filter.declared()) {
+                declaredFields.addAll(initial[i].filter.fields());
+                declared = true;
+            } else {
+                undeclared = true;
+            }
+        }
+        Arrays.sort(initial, EXPECTED_COST);
+        this.entries = initial;
+        this.anyDeclared = declared;
+        this.allDeclared = !undeclared;
+    }
+
+    /**
+     * Returns whether the disk passes every filter, counting evaluations and rejections.
+     */
+    public boolean accepts(DiskInfo diskInfo) {
+        return accepts(DiskSnapshot.of(diskInfo));
+    }
+
+    /**
+     * Returns whether the disk passes every filter, decoding only the fields of a lazy snapshot
+     * that the filters evaluated so far declared.
+     */
+    boolean accepts(DiskSnapshot snapshot) {
+        Entry[] current = entries;
+        boolean accepted = true;
+        int evaluated = 0;
+        for (Entry entry : current) {
+            evaluated++;
+            entry.evaluated++;
+            DiskFilter filter = entry.filter;
+            DiskInfo diskInfo = filter.declared() ? snapshot.diskInfo(filter.fields()) : snapshot.diskInfo();
+            if (!filter.predicate().test(diskInfo)) {
+                entry.rejected++;
+                accepted = false;
+                break;
+            }
+        }
+        lastEvaluated = evaluated;
+        if (++sinceReorder >= REORDER_INTERVAL) {
+            sinceReorder = 0;
+            Entry[] reordered = current.clone();
+            Arrays.sort(reordered, EXPECTED_COST);
+            entries = reordered;
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns whether the disk passes the filters that declared their fields, without counting.
+     * A disk mapped with just {@link #declaredFields()} is enough to tell.
+     */
+    boolean acceptsDeclared(DiskInfo diskInfo) {
+        for (Entry entry : entries) {
+            if (!entry.filter.declared()) {
+                break;
+            }
+            if (!entry.filter.predicate().test(diskInfo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of filters the last call to {@link #accepts(DiskInfo)} evaluated.
+     */
+    int lastEvaluated() {
+        return lastEvaluated;
+    }
+
+    /**
+     * Returns every field read by a filter that declared its fields.
+     */
+    Set<DiskField> declaredFields() {
+        return declaredFields;
+    }
+
+    /**
+     * Returns whether any filter declared its fields.
+     */
+    boolean anyDeclared() {
+        return anyDeclared;
+    }
+
+    /**
+     * Returns whether every filter declared its fields, so a change to none of {@link #declaredFields()}
+     * leaves the verdict on a disk as it was.
+     */
+    boolean allDeclared() {
+        return allDeclared;
+    }
+
+    /**
+     * Returns the filters in the order they are currently evaluated.
+     */
+    List<DiskFilter> order() {
+        return Arrays.stream(entries).map(entry -> entry.filter).toList();
+    }
+}
@@ -0,0 +1,31 @@
+package com.selesse.jdiskarbitration.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans evaluating the filters against one disk.
+ */
+@Name("com.selesse.jdiskarbitration.Filter")
+@Label("Disk Filter")
+@Category({"jdiskarbitration"})
+@Description("Evaluating the filters against a disk")
+@Enabled(false)
+final class FilterJfrEvent extends Event {
+    @Label("BSD Name")
+    String bsdName;
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Filters Evaluated")
+    @Description("The number of filters run before one rejected the disk or all passed")
+    int filtersEvaluated;
+
+    @Label("Accepted")
+    boolean accepted;
+}
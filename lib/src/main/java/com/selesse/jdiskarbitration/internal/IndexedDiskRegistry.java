@@ -0,0 +1,259 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskInfo;
+import com.selesse.jdiskarbitration.DiskRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The {@link DiskRegistry} kept by a {@link DiskEventWatcher}, updated in place of the previous one on
+ * every disk event.
+ *
+ * <p>Every index is a {@link PersistentSortedMap}, so adding or removing a disk only touches the
+ * entries of that disk and shares everything else with the previous registry. Each index maps a key
+ * to the disks having it, ordered by when they first appeared; a lookup by a unique key returns the
+ * latest of them.
+ */
+final class IndexedDiskRegistry implements DiskRegistry {
+    private static final IndexedDiskRegistry EMPTY = new IndexedDiskRegistry(0, PersistentSortedMap.empty(),
+        PersistentSortedMap.empty(), PersistentSortedMap.empty(), PersistentSortedMap.empty(),
+        PersistentSortedMap.empty(), PersistentSortedMap.empty(), PersistentSortedMap.empty(),
+        PersistentSortedMap.empty());
+
+    /**
+     * A disk and the position it first appeared at, which it keeps when it is replaced.
+     */
+    private record Entry(long order, DiskInfo disk) {
+    }
+
+    private final long nextOrder;
+    private final PersistentSortedMap<String, Entry> byBsdName;
+    private final PersistentSortedMap<Long, DiskInfo> inOrder;
+    private final PersistentSortedMap<String, List<Entry>> byVolumeUUID;
+    private final PersistentSortedMap<String, List<Entry>> byMediaUUID;
+    private final PersistentSortedMap<String, List<Entry>> byMountPath;
+    private final PersistentSortedMap<String, List<Entry>> byProtocol;
+    private final PersistentSortedMap<String, List<Entry>> byVendor;
+    private final PersistentSortedMap<Long, List<Entry>> bySize;
+    // Built on first use, since the registry is replaced more often than it is listed
+    private volatile List<DiskInfo> all;
+
+    private IndexedDiskRegistry(long nextOrder,
+                                PersistentSortedMap<String, Entry> byBsdName,
+                                PersistentSortedMap<Long, DiskInfo> inOrder,
+                                PersistentSortedMap<String, List<Entry>> byVolumeUUID,
+                                PersistentSortedMap<String, List<Entry>> byMediaUUID,
+                                PersistentSortedMap<String, List<Entry>> byMountPath,
+                                PersistentSortedMap<String, List<Entry>> byProtocol,
+                                PersistentSortedMap<String, List<Entry>> byVendor,
+                                PersistentSortedMap<Long, List<Entry>> bySize) {
+        this.nextOrder = nextOrder;
+        this.byBsdName = byBsdName;
+        this.inOrder = inOrder;
+        this.byVolumeUUID = byVolumeUUID;
+        this.byMediaUUID = byMediaUUID;
+        this.byMountPath = byMountPath;
+        this.byProtocol = byProtocol;
+        this.byVendor = byVendor;
+        this.bySize = bySize;
+    }
+
+    /**
+     * Returns a registry with no disks.
+     */
+    static IndexedDiskRegistry empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a registry with the given disk added, replacing any disk with the same BSD name.
+     */
+    IndexedDiskRegistry with(DiskInfo disk) {
+        Entry previous = byBsdName.get(disk.bsdName());
+        IndexedDiskRegistry base = previous == null ? this : without(previous);
+        Entry entry = new Entry(previous == null ? nextOrder : previous.order(), disk);
+        return new IndexedDiskRegistry(
+            previous == null ? nextOrder + 1 : nextOrder,
+            base.byBsdName.with(disk.bsdName(), entry),
+            base.inOrder.with(entry.order(), disk),
+            add(base.byVolumeUUID, volumeUUID(disk), entry),
+            add(base.byMediaUUID, mediaUUID(disk), entry),
+            add(base.byMountPath, mountPath(disk), entry),
+            add(base.byProtocol, protocol(disk), entry),
+            add(base.byVendor, vendor(disk), entry),
+            add(base.bySize, size(disk), entry));
+    }
+
+    /**
+     * Returns a registry without the disk with the given BSD name, or this registry if it has no such disk.
+     */
+    IndexedDiskRegistry without(String bsdName) {
+        Entry entry = byBsdName.get(bsdName);
+        return entry == null ? this : without(entry);
+    }
+
+    private IndexedDiskRegistry without(Entry entry) {
+        DiskInfo disk = entry.disk();
+        return new IndexedDiskRegistry(
+            nextOrder,
+            byBsdName.without(disk.bsdName()),
+            inOrder.without(entry.order()),
+            remove(byVolumeUUID, volumeUUID(disk), entry),
+            remove(byMediaUUID, mediaUUID(disk), entry),
+            remove(byMountPath, mountPath(disk), entry),
+            remove(byProtocol, protocol(disk), entry),
+            remove(byVendor, vendor(disk), entry),
+            remove(bySize, size(disk), entry));
+    }
+
+    @Override
+    public Collection<DiskInfo> all() {
+        List<DiskInfo> disks = all;
+        if (disks == null) {
+            disks = Collections.unmodifiableList(inOrder.values());
+            all = disks;
+        }
+        return disks;
+    }
+
+    @Override
+    public int size() {
+        return byBsdName.size();
+    }
+
+    @Override
+    public Optional<DiskInfo> byBsdName(String bsdName) {
+        Entry entry = bsdName == null ? null : byBsdName.get(bsdName);
+        return entry == null ? Optional.empty() : Optional.of(entry.disk());
+    }
+
+    @Override
+    public Optional<DiskInfo> byVolumeUUID(String uuid) {
+        return latest(byVolumeUUID, uuid);
+    }
+
+    @Override
+    public Optional<DiskInfo> byMediaUUID(String uuid) {
+        return latest(byMediaUUID, uuid);
+    }
+
+    @Override
+    public Optional<DiskInfo> byMountPath(String path) {
+        return latest(byMountPath, path);
+    }
+
+    @Override
+    public List<DiskInfo> byProtocol(String protocol) {
+        return disks(byProtocol, normalize(protocol));
+    }
+
+    @Override
+    public List<DiskInfo> byVendor(String vendor) {
+        return disks(byVendor, normalize(vendor));
+    }
+
+    @Override
+    public List<DiskInfo> bySizeRange(long minBytes, long maxBytes) {
+        if (minBytes > maxBytes) {
+            return List.of();
+        }
+        List<DiskInfo> disks = new ArrayList<>();
+        for (List<Entry> sameSize : bySize.valuesBetween(minBytes, maxBytes)) {
+            for (Entry entry : sameSize) {
+                disks.add(entry.disk());
+            }
+        }
+        return Collections.unmodifiableList(disks);
+    }
+
+    @Override
+    public String toString() {
+        List<String> names = new ArrayList<>();
+        for (DiskInfo disk : all()) {
+            names.add(disk.bsdName());
+        }
+        return "DiskRegistry" + names;
+    }
+
+    private static <K extends Comparable<K>> PersistentSortedMap<K, List<Entry>> add(
+            PersistentSortedMap<K, List<Entry>> index, K key, Entry entry) {
+        if (key == null) {
+            return index;
+        }
+        List<Entry> entries = index.get(key);
+        List<Entry> updated = new ArrayList<>(entries == null ? 1 : entries.size() + 1);
+        if (entries != null) {
+            updated.addAll(entries);
+        }
+        int position = updated.size();
+        while (position > 0 && updated.get(position - 1).order() > entry.order()) {
+            position--;
+        }
+        updated.add(position, entry);
+        return index.with(key, List.copyOf(updated));
+    }
+
+    private static <K extends Comparable<K>> PersistentSortedMap<K, List<Entry>> remove(
+            PersistentSortedMap<K, List<Entry>> index, K key, Entry entry) {
+        if (key == null) {
+            return index;
+        }
+        List<Entry> entries = index.get(key);
+        if (entries == null) {
+            return index;
+        }
+        List<Entry> updated = new ArrayList<>(entries);
+        updated.removeIf(other -> other.order() == entry.order());
+        return updated.isEmpty() ? index.without(key) : index.with(key, List.copyOf(updated));
+    }
+
+    private static Optional<DiskInfo> latest(PersistentSortedMap<String, List<Entry>> index, String key) {
+        List<Entry> entries = key == null ? null : index.get(key);
+        return entries == null ? Optional.empty() : Optional.of(entries.get(entries.size() - 1).disk());
+    }
+
+    private static List<DiskInfo> disks(PersistentSortedMap<String, List<Entry>> index, String key) {
+        List<Entry> entries = key == null ? null : index.get(key);
+        if (entries == null) {
+            return List.of();
+        }
+        List<DiskInfo> disks = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            disks.add(entry.disk());
+        }
+        return Collections.unmodifiableList(disks);
+    }
+
+    private static String volumeUUID(DiskInfo disk) {
+        return disk.volumeInfo() == null ? null : disk.volumeInfo().uuid();
+    }
+
+    private static String mountPath(DiskInfo disk) {
+        return disk.volumeInfo() == null ? null : disk.volumeInfo().path();
+    }
+
+    private static String mediaUUID(DiskInfo disk) {
+        return disk.mediaInfo() == null ? null : disk.mediaInfo().mediaUUID();
+    }
+
+    private static Long size(DiskInfo disk) {
+        return disk.mediaInfo() == null ? null : disk.mediaInfo().mediaSize();
+    }
+
+    private static String protocol(DiskInfo disk) {
+        return disk.deviceInfo() == null ? null : normalize(disk.deviceInfo().protocol());
+    }
+
+    private static String vendor(DiskInfo disk) {
+        return disk.deviceInfo() == null ? null : normalize(disk.deviceInfo().vendor());
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,52 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEventMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power-of-two buckets, from 64 ns to about 4.3 s.
+ *
+ * <p>Recording is one bucket increment and one striped add, so it is cheap enough to run for every
+ * event and never blocks the run-loop thread. A snapshot read concurrently with recording may be off
+ * by the samples recorded meanwhile.
+ */
+class LatencyHistogram {
+    // Bucket i holds samples up to 2^(MIN_EXPONENT + i) ns; the last one holds everything larger
+    private static final int MIN_EXPONENT = 6;
+    private static final int MAX_EXPONENT = 32;
+    static final int BUCKET_COUNT = MAX_EXPONENT - MIN_EXPONENT + 2;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+
+    void record(long nanos) {
+        buckets.incrementAndGet(bucketIndex(nanos));
+        totalNanos.add(Math.max(0, nanos));
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos <= 1L << MIN_EXPONENT) {
+            return 0;
+        }
+        int exponent = Long.SIZE - Long.numberOfLeadingZeros(nanos - 1);
+        return Math.min(exponent - MIN_EXPONENT, BUCKET_COUNT - 1);
+    }
+
+    static long upperBoundNanos(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (MIN_EXPONENT + index);
+    }
+
+    DiskEventMetrics.Latency snapshot() {
+        List<DiskEventMetrics.Bucket> cumulative = new ArrayList<>(BUCKET_COUNT);
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+            cumulative.add(new DiskEventMetrics.Bucket(upperBoundNanos(i), count));
+        }
+        return new DiskEventMetrics.Latency(count, totalNanos.sum(), List.copyOf(cumulative));
+    }
+}
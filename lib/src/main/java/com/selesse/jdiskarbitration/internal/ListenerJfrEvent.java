@@ -0,0 +1,31 @@
+package com.selesse.jdiskarbitration.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans one call into the listener, on whichever thread delivers events.
+ */
+@Name("com.selesse.jdiskarbitration.Listener")
+@Label("Disk Listener")
+@Category({"jdiskarbitration"})
+@Description("A call into the disk event listener")
+@Enabled(false)
+final class ListenerJfrEvent extends Event {
+    // The kind of a batch listener call, which carries events of any kind and disk
+    static final String BATCH = "BATCH";
+
+    @Label("BSD Name")
+    String bsdName;
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Events")
+    @Description("The number of events delivered by the call; above 1 for batch listeners only")
+    int events;
+}
@@ -0,0 +1,41 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.sun.jna.Native;
+
+/**
+ * The DiskArbitration and CoreFoundation frameworks, each loaded through JNA the first time it is used.
+ */
+final class MacOsBackend extends NativeBackend {
+    static final MacOsBackend INSTANCE = new MacOsBackend();
+
+    private MacOsBackend() {
+    }
+
+    @Override
+    DiskArbitration diskArbitration() {
+        return DiskArbitrationHolder.INSTANCE;
+    }
+
+    @Override
+    CoreFoundation coreFoundation() {
+        return CoreFoundationHolder.INSTANCE;
+    }
+
+    @Override
+    DiskArbitrationKeys keys() {
+        return KeysHolder.INSTANCE;
+    }
+
+    private static final class DiskArbitrationHolder {
+        static final DiskArbitration INSTANCE = Native.load("DiskArbitration", DiskArbitration.class);
+    }
+
+    private static final class CoreFoundationHolder {
+        static final CoreFoundation INSTANCE = Native.load("CoreFoundation", CoreFoundation.class);
+    }
+
+    // Resolves no symbol until a key is asked for
+    private static final class KeysHolder {
+        static final DiskArbitrationKeys INSTANCE = new DiskArbitrationKeys();
+    }
+}
@@ -0,0 +1,28 @@
+package com.selesse.jdiskarbitration.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans reading a DADisk description into a DiskInfo.
+ */
+@Name("com.selesse.jdiskarbitration.Mapping")
+@Label("Disk Mapping")
+@Category({"jdiskarbitration"})
+@Description("Reading a DADisk description into a DiskInfo")
+@Enabled(false)
+final class MappingJfrEvent extends Event {
+    @Label("BSD Name")
+    String bsdName;
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Keys Read")
+    @Description("The number of description keys read, one per field mapped")
+    int keysRead;
+}
@@ -0,0 +1,59 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Compiles builder filters with a native equivalent into a DiskArbitration match dictionary.
+ *
+ * <p>DiskArbitration only invokes a callback for disks whose description contains every key of the
+ * match dictionary with an equal value, so disks rejected here never cross into the JVM.
+ */
+class MatchDictionary {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MatchDictionary.class);
+
+    private MatchDictionary() {
+    }
+
+    /**
+     * Creates a CFDictionary for the given criteria. Values must be {@link String} or {@link Boolean}.
+     *
+     * @return a dictionary owned by the caller, or null if there is nothing to match on
+     */
+    static Pointer create(CoreFoundation cf, DiskArbitrationKeys keys, Map<DiskField, Object> criteria) {
+        if (criteria.isEmpty()) {
+            return null;
+        }
+        Pointer match = cf.CFDictionaryCreateMutable(null, criteria.size(),
+            cf.getkCFTypeDictionaryKeyCallBacks(), cf.getkCFTypeDictionaryValueCallBacks());
+        if (match == null) {
+            return null;
+        }
+        for (Map.Entry<DiskField, Object> criterion : criteria.entrySet()) {
+            Pointer key = keys.key(criterion.getKey());
+            if (key == null) {
+                // The filter still runs in Java, so an unknown key only loses the native shortcut
+                LOGGER.debug("Description key {} unavailable, not matching on it natively", criterion.getKey());
+                continue;
+            }
+            Object value = criterion.getValue();
+            if (value instanceof Boolean booleanValue) {
+                cf.CFDictionarySetValue(match, key, booleanValue ? cf.getkCFBooleanTrue() : cf.getkCFBooleanFalse());
+            } else if (value instanceof String stringValue) {
+                Pointer cfString = cf.CFStringCreateWithCString(null, stringValue, CoreFoundation.kCFStringEncodingUTF8);
+                try {
+                    cf.CFDictionarySetValue(match, key, cfString);
+                } finally {
+                    cf.CFRelease(cfString);
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported match value for " + criterion.getKey() + ": " + value);
+            }
+        }
+        return match;
+    }
+}
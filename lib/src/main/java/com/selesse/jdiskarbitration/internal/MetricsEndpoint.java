@@ -0,0 +1,90 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEventMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Serves metrics in the Prometheus text format at {@code /metrics}, from the JDK's built-in HTTP server.
+ *
+ * <p>Requests are handled on the server's own daemon thread, so scrapes never run on the run-loop thread.
+ */
+class MetricsEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsEndpoint.class);
+    static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    private MetricsEndpoint(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Binds the endpoint and starts serving.
+     *
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    static MetricsEndpoint start(InetSocketAddress address, Supplier<DiskEventMetrics> metrics) {
+        HttpServer server;
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not bind metrics endpoint to " + address, e);
+        }
+        server.createContext(PATH, exchange -> serve(exchange, metrics));
+        // The server's dispatcher thread inherits daemon status from the thread starting it, and must
+        // not keep the JVM alive any more than the run-loop thread does
+        Thread starter = new Thread(server::start, "DiskWatcher-Metrics");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.debug("Serving metrics at http://{}:{}{}", server.getAddress().getHostString(),
+            server.getAddress().getPort(), PATH);
+        return new MetricsEndpoint(server);
+    }
+
+    private static void serve(HttpExchange exchange, Supplier<DiskEventMetrics> metrics) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.get().toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Returns the bound address, with the actual port if port 0 was requested.
+     */
+    InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+}
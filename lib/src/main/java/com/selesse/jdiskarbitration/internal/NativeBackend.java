@@ -0,0 +1,31 @@
+package com.selesse.jdiskarbitration.internal;
+
+/**
+ * The native layer a {@link DiskEventWatcher} runs on: the DiskArbitration and CoreFoundation
+ * bindings, and the description keys DiskArbitration exports.
+ *
+ * <p>{@link #macOS()} binds the real frameworks and is used unless the test fixtures select another
+ * backend. Their {@code SimulatedBackend} implements the same bindings in memory, so everything above
+ * the JNA layer also runs off a Mac. The bindings are package-private, so backends can only be
+ * implemented in this package.
+ */
+public abstract class NativeBackend {
+
+    NativeBackend() {
+    }
+
+    /**
+     * Returns the backend bound to the DiskArbitration and CoreFoundation frameworks of macOS.
+     * Each framework is loaded the first time a watcher uses it, and each description key is
+     * resolved the first time it is read.
+     */
+    public static NativeBackend macOS() {
+        return MacOsBackend.INSTANCE;
+    }
+
+    abstract DiskArbitration diskArbitration();
+
+    abstract CoreFoundation coreFoundation();
+
+    abstract DiskArbitrationKeys keys();
+}
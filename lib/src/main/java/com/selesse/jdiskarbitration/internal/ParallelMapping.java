@@ -0,0 +1,188 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Maps the disks of a {@link DiskSession} on an executor instead of the run-loop thread.
+ *
+ * <p>The native callback only retains its DADisk and takes the next sequence number. The disk is
+ * then mapped on the executor, after the previous event of the same disk, so a description change
+ * can build on the DiskInfo mapped before it while different disks are mapped in parallel. Mapped
+ * events wait until every earlier one has been mapped too, and are handed back to the run loop in
+ * sequence, so subscribers see them in the order DiskArbitration reported them.
+ */
+final class ParallelMapping {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelMapping.class);
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final Runnable NOTHING = () -> { };
+
+    private final CoreFoundation cf;
+    private final Executor executor;
+    // Threads started for this session alone, shut down with it
+    private final ExecutorService ownedExecutor;
+    private final Consumer<Runnable> postToLoop;
+
+    // Run-loop thread only: the last event of each disk still being mapped or waiting for its turn
+    private final Map<String, Pending> tails = new HashMap<>();
+    private long nextSequence;
+    private long nextHandOut;
+
+    private final Map<Long, Pending> mapped = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainPosted = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * An event in the sequence, and the step that hands it out on the run loop once mapped.
+     */
+    private static final class Pending {
+        final long sequence;
+        final String bsdName;
+        volatile Runnable handOut;
+        CompletableFuture<Void> mapping;
+
+        Pending(long sequence, String bsdName) {
+            this.sequence = sequence;
+            this.bsdName = bsdName;
+        }
+    }
+
+    /**
+     * @param executor   the executor to map on, or null to start {@code threads} daemon threads
+     * @param postToLoop posts work to the run loop without waiting for it, from any thread
+     */
+    ParallelMapping(CoreFoundation cf, Executor executor, int threads, Consumer<Runnable> postToLoop) {
+        this.cf = cf;
+        this.postToLoop = postToLoop;
+        if (executor == null) {
+            ownedExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "DiskWatcher-Mapper-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownedExecutor;
+        } else {
+            ownedExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Retains the DADisk of a callback and maps it on the executor. The mapping returns the step
+     * that hands its result out, which runs on the run loop once every earlier event has been
+     * handed out. Called on the run-loop thread, from within the callback.
+     *
+     * @param bsdName the disk's BSD name, which orders the mappings of each disk
+     */
+    void submit(Pointer daDisk, String bsdName, Supplier<Runnable> mapping) {
+        // The callback's reference ends when it returns, and the mapping outlives it
+        cf.CFRetain(daDisk);
+        Pending pending = new Pending(nextSequence++, bsdName);
+        Pending previous = tails.put(bsdName, pending);
+        CompletableFuture<Void> after = previous == null ? CompletableFuture.completedFuture(null) : previous.mapping;
+        pending.mapping = after.thenRunAsync(() -> {
+            // Errors included, so the DADisk is released here only and the sequence never stalls
+            try {
+                pending.handOut = mapping.get();
+            } catch (Throwable e) {
+                LOGGER.error("Failed to map disk {}", bsdName, e);
+                pending.handOut = NOTHING;
+            } finally {
+                cf.CFRelease(daDisk);
+            }
+            ready(pending);
+        }, executor).exceptionally(e -> {
+            // The mapping sets its hand-out before it releases the DADisk, so only a mapping the
+            // executor rejected is left without one
+            if (pending.handOut == null) {
+                LOGGER.error("Could not map disk {}", bsdName, e);
+                cf.CFRelease(daDisk);
+                pending.handOut = NOTHING;
+                ready(pending);
+            } else {
+                LOGGER.error("Failed to hand over mapped disk {}", bsdName, e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs the step on the run loop after every event submitted before it has been handed out.
+     * Called on the run-loop thread.
+     */
+    void enqueue(Runnable step) {
+        Pending pending = new Pending(nextSequence++, null);
+        pending.handOut = step;
+        mapped.put(pending.sequence, pending);
+        drain();
+    }
+
+    private void ready(Pending pending) {
+        mapped.put(pending.sequence, pending);
+        if (!closed && drainPosted.compareAndSet(false, true)) {
+            postToLoop.accept(this::drain);
+        }
+    }
+
+    /**
+     * Hands out the mapped events that are next in sequence. Called on the run-loop thread.
+     */
+    private void drain() {
+        drainPosted.set(false);
+        Pending pending;
+        while ((pending = mapped.remove(nextHandOut)) != null) {
+            nextHandOut++;
+            if (pending.bsdName != null) {
+                tails.remove(pending.bsdName, pending);
+            }
+            try {
+                pending.handOut.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to hand out mapped disk {}", pending.bsdName, e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the mappings in flight, hands them out and stops the threads of this session.
+     * Called on the run-loop thread once the run loop has stopped; no more work is posted to it.
+     */
+    void close() {
+        closed = true;
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        for (Pending pending : tails.values()) {
+            inFlight.add(pending.mapping);
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn("Disk mappings did not finish within {} ms", TIMEOUT_MILLIS, e);
+        }
+        drain();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
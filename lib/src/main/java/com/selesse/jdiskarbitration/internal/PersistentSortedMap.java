@@ -0,0 +1,176 @@
+package com.selesse.jdiskarbitration.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable sorted map backed by an AVL tree.
+ *
+ * <p>{@link #with} and {@link #without} return a new map that shares every node with this one except
+ * those on the path to the changed key, so an update takes O(log n) time and space and leaves this map
+ * untouched. Maps can therefore be published to other threads and read without locking. Values must
+ * not be null.
+ */
+final class PersistentSortedMap<K extends Comparable<K>, V> {
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(null);
+
+    private final Node<K, V> root;
+
+    private PersistentSortedMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    private record Node<K, V>(K key, V value, Node<K, V> left, Node<K, V> right, int height, int size) {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = key.compareTo(node.key);
+            if (comparison == 0) {
+                return node.value;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a map with the key mapped to the value, replacing any previous value.
+     */
+    PersistentSortedMap<K, V> with(K key, V value) {
+        return new PersistentSortedMap<>(put(root, key, value));
+    }
+
+    /**
+     * Returns a map without the key, or this map if it has no such key.
+     */
+    PersistentSortedMap<K, V> without(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentSortedMap<>(remove(root, key));
+    }
+
+    /**
+     * Returns every value, in key order.
+     */
+    List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        collect(root, null, null, values);
+        return values;
+    }
+
+    /**
+     * Returns the values whose keys are between the given bounds, inclusive, in key order.
+     */
+    List<V> valuesBetween(K from, K to) {
+        List<V> values = new ArrayList<>();
+        collect(root, from, to, values);
+        return values;
+    }
+
+    private static <K extends Comparable<K>, V> void collect(Node<K, V> node, K from, K to, List<V> values) {
+        if (node == null) {
+            return;
+        }
+        boolean aboveFrom = from == null || node.key.compareTo(from) >= 0;
+        boolean belowTo = to == null || node.key.compareTo(to) <= 0;
+        if (aboveFrom) {
+            collect(node.left, from, to, values);
+        }
+        if (aboveFrom && belowTo) {
+            values.add(node.value);
+        }
+        if (belowTo) {
+            collect(node.right, from, to, values);
+        }
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return node(key, value, null, null);
+        }
+        int comparison = key.compareTo(node.key);
+        if (comparison < 0) {
+            return balance(node.key, node.value, put(node.left, key, value), node.right);
+        } else if (comparison > 0) {
+            return balance(node.key, node.value, node.left, put(node.right, key, value));
+        }
+        return node(key, value, node.left, node.right);
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> remove(Node<K, V> node, K key) {
+        int comparison = key.compareTo(node.key);
+        if (comparison < 0) {
+            return balance(node.key, node.value, remove(node.left, key), node.right);
+        } else if (comparison > 0) {
+            return balance(node.key, node.value, node.left, remove(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int skew = height(left) - height(right);
+        if (skew > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            }
+            return rotateRight(key, value, left, right);
+        }
+        if (skew < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+        return node(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return node(left.key, left.value, left.left, node(key, value, left.right, right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return node(right.key, right.value, node(key, value, left, right.left), right.right);
+    }
+
+    private static <K, V> Node<K, V> node(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(key, value, left, right, Math.max(height(left), height(right)) + 1,
+            size(left) + size(right) + 1);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
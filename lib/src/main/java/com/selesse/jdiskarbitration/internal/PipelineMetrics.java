@@ -0,0 +1,241 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.BatchDiskEventListener;
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskEventListener;
+import com.selesse.jdiskarbitration.DiskEventMetrics;
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the event pipeline's counters and latencies.
+ *
+ * <p>Counters are striped, so the run-loop thread and the dispatch thread never contend on them,
+ * and latencies go to {@link LatencyHistogram}s. Nothing here locks or allocates on the recording path.
+ * {@link #disabled() Disabled} metrics record nothing, read no clock and leave listeners unwrapped.
+ */
+public class PipelineMetrics {
+    private static final DiskEvent.Type[] TYPES = DiskEvent.Type.values();
+    private static final PipelineMetrics DISABLED = new PipelineMetrics(false);
+
+    private final LongAdder[] received = counters();
+    private final LongAdder[] filtered = counters();
+    private final LongAdder[] delivered = counters();
+    private final LatencyHistogram mapping = new LatencyHistogram();
+    private final LatencyHistogram filtering = new LatencyHistogram();
+    private final LatencyHistogram listener = new LatencyHistogram();
+    private final LongAdder runLoopBusyNanos = new LongAdder();
+    private final LongAdder suppressedChanges = new LongAdder();
+    private volatile long startedAt;
+    private final boolean enabled;
+
+    public PipelineMetrics() {
+        this(true);
+    }
+
+    private PipelineMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns metrics that record nothing, for managers that did not ask for them.
+     */
+    public static PipelineMetrics disabled() {
+        return DISABLED;
+    }
+
+    private static LongAdder[] counters() {
+        LongAdder[] counters = new LongAdder[TYPES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the time to measure a latency from, or 0 without reading the clock if disabled.
+     */
+    long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void started(long nanos) {
+        startedAt = nanos;
+    }
+
+    void received(DiskEvent.Type type) {
+        if (enabled) {
+            received[type.ordinal()].increment();
+        }
+    }
+
+    void filtered(DiskEvent.Type type) {
+        if (enabled) {
+            filtered[type.ordinal()].increment();
+        }
+    }
+
+    void suppressedChange() {
+        if (enabled) {
+            suppressedChanges.increment();
+        }
+    }
+
+    void recordMapping(long nanos) {
+        if (enabled) {
+            mapping.record(nanos);
+        }
+    }
+
+    void recordFiltering(long nanos) {
+        if (enabled) {
+            filtering.record(nanos);
+        }
+    }
+
+    void recordRunLoopBusy(long nanos) {
+        if (enabled) {
+            runLoopBusyNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Wraps a listener to count the events it is handed and time each call, on whichever thread
+     * delivers them. Disabled metrics return the listener as it is.
+     */
+    public DiskEventListener meter(DiskEventListener target) {
+        if (!enabled) {
+            return target;
+        }
+        return new DiskEventListener() {
+            @Override
+            public void onDiskAppeared(DiskInfo diskInfo) {
+                long start = System.nanoTime();
+                try {
+                    target.onDiskAppeared(diskInfo);
+                } finally {
+                    delivered(DiskEvent.Type.APPEARED, start);
+                }
+            }
+
+            @Override
+            public void onDiskDisappeared(DiskInfo diskInfo) {
+                long start = System.nanoTime();
+                try {
+                    target.onDiskDisappeared(diskInfo);
+                } finally {
+                    delivered(DiskEvent.Type.DISAPPEARED, start);
+                }
+            }
+
+            @Override
+            public void onDiskDescriptionChanged(DiskInfo diskInfo) {
+                long start = System.nanoTime();
+                try {
+                    target.onDiskDescriptionChanged(diskInfo);
+                } finally {
+                    delivered(DiskEvent.Type.DESCRIPTION_CHANGED, start);
+                }
+            }
+
+            @Override
+            public void onDiskDescriptionChanged(DiskInfo diskInfo, Set<DiskField> changedFields) {
+                long start = System.nanoTime();
+                try {
+                    target.onDiskDescriptionChanged(diskInfo, changedFields);
+                } finally {
+                    delivered(DiskEvent.Type.DESCRIPTION_CHANGED, start);
+                }
+            }
+
+            @Override
+            public void onDiskMounted(DiskInfo diskInfo) {
+                long start = System.nanoTime();
+                try {
+                    target.onDiskMounted(diskInfo);
+                } finally {
+                    delivered(DiskEvent.Type.MOUNTED, start);
+                }
+            }
+
+            @Override
+            public void onDiskUnmounted(DiskInfo diskInfo) {
+                long start = System.nanoTime();
+                try {
+                    target.onDiskUnmounted(diskInfo);
+                } finally {
+                    delivered(DiskEvent.Type.UNMOUNTED, start);
+                }
+            }
+
+            @Override
+            public void onInitialSnapshot(List<DiskInfo> disks) {
+                long start = System.nanoTime();
+                try {
+                    target.onInitialSnapshot(disks);
+                } finally {
+                    listener.record(System.nanoTime() - start);
+                    delivered[DiskEvent.Type.APPEARED.ordinal()].add(disks.size());
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a batch listener to count the events in each batch and time each call. Disabled metrics
+     * return the listener as it is.
+     */
+    public BatchDiskEventListener meter(BatchDiskEventListener target) {
+        if (!enabled) {
+            return target;
+        }
+        return events -> {
+            long start = System.nanoTime();
+            try {
+                target.onDiskEvents(events);
+            } finally {
+                listener.record(System.nanoTime() - start);
+                for (DiskEvent event : events) {
+                    delivered[event.type().ordinal()].increment();
+                }
+            }
+        };
+    }
+
+    private void delivered(DiskEvent.Type type, long start) {
+        listener.record(System.nanoTime() - start);
+        delivered[type.ordinal()].increment();
+    }
+
+    /**
+     * Returns the metrics collected so far, along with the given gauges.
+     */
+    DiskEventMetrics snapshot(int dispatchQueueDepth, int heldChanges, long droppedEvents) {
+        long busyNanos = runLoopBusyNanos.sum();
+        long started = startedAt;
+        long elapsed = started == 0 ? 0 : System.nanoTime() - started;
+        double busyRatio = elapsed <= 0 ? 0 : Math.min(1.0, (double) busyNanos / elapsed);
+        return new DiskEventMetrics(counts(received), counts(filtered), counts(delivered),
+            mapping.snapshot(), filtering.snapshot(), listener.snapshot(),
+            busyNanos, busyRatio, dispatchQueueDepth, heldChanges, droppedEvents, suppressedChanges.sum());
+    }
+
+    private static Map<DiskEvent.Type, Long> counts(LongAdder[] counters) {
+        Map<DiskEvent.Type, Long> counts = new EnumMap<>(DiskEvent.Type.class);
+        for (DiskEvent.Type type : TYPES) {
+            counts.put(type, counters[type.ordinal()].sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+}
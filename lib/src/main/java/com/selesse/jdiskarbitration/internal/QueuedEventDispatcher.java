@@ -0,0 +1,177 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEventListener;
+import com.selesse.jdiskarbitration.OverflowPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers events asynchronously through a bounded hand-off queue.
+ *
+ * <p>The run-loop thread only enqueues; a single drain task running on the executor delivers
+ * events to the listener in the order they were captured. At most one drain task is scheduled
+ * at any time, so a multi-threaded executor still sees listener calls one at a time. The only
+ * exception is {@link OverflowPolicy#CALLER_RUNS}, which delivers an event that finds the queue
+ * full on the run-loop thread itself.
+ */
+public class QueuedEventDispatcher implements EventDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueuedEventDispatcher.class);
+
+    private final DiskEventListener listener;
+    private final Executor providedExecutor;
+    private final BlockingQueue<CapturedEvent> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private volatile Executor executor;
+    private ExecutorService ownedExecutor;
+
+    /**
+     * @param listener       the listener to deliver events to
+     * @param executor       the executor running the drain task, or null to use a dedicated daemon thread
+     * @param queueCapacity  the maximum number of events waiting for delivery
+     * @param overflowPolicy what to do when the queue is full
+     */
+    public QueuedEventDispatcher(DiskEventListener listener, Executor executor, int queueCapacity,
+                                 OverflowPolicy overflowPolicy) {
+        this.listener = listener;
+        this.providedExecutor = executor;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public void start() {
+        if (providedExecutor == null) {
+            ownedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "DiskWatcher-Dispatch");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor = ownedExecutor;
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+            try {
+                ownedExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ownedExecutor = null;
+        }
+    }
+
+    @Override
+    public void dispatch(CapturedEvent event) {
+        if (enqueue(event)) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Returns the number of events discarded by the overflow policy.
+     */
+    @Override
+    public long droppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns the number of events waiting for delivery.
+     */
+    @Override
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    private boolean enqueue(CapturedEvent event) {
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    queue.put(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(event);
+                    return false;
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(event)) {
+                    CapturedEvent oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+            }
+            case DROP_NEWEST -> {
+                if (!queue.offer(event)) {
+                    drop(event);
+                    return false;
+                }
+            }
+            case CALLER_RUNS -> {
+                if (!queue.offer(event)) {
+                    deliver(event);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void drop(CapturedEvent event) {
+        droppedEvents.increment();
+        LOGGER.debug("Dispatch queue full, dropped {} event for {}", event.type(), event.bsdName());
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            drainScheduled.set(false);
+            LOGGER.warn("Dispatch executor rejected drain task, {} events left queued", queue.size(), e);
+        }
+    }
+
+    private void drain() {
+        try {
+            CapturedEvent event;
+            while ((event = queue.poll()) != null) {
+                deliver(event);
+            }
+        } finally {
+            drainScheduled.set(false);
+        }
+        // An event may have been enqueued after the last poll but before the flag was cleared
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void deliver(CapturedEvent event) {
+        try {
+            event.deliverTo(listener);
+        } catch (RuntimeException e) {
+            LOGGER.error("Listener threw while handling {} for {}", event.type(), event.bsdName(), e);
+        }
+    }
+}
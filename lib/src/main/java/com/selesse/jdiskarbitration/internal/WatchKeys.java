@@ -0,0 +1,46 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+
+/**
+ * Compiles the fields a watcher wants description changes for into the CFArray of keys that
+ * {@code DARegisterDiskDescriptionChangedCallback} watches.
+ *
+ * <p>DiskArbitration only invokes the callback when one of the watched keys changed, so changes to
+ * any other key never cross into the JVM.
+ */
+class WatchKeys {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchKeys.class);
+
+    private WatchKeys() {
+    }
+
+    /**
+     * Creates a CFArray of the description keys of the given fields.
+     *
+     * @param fields the fields to watch, or null to watch every key
+     * @return an array owned by the caller, or null to watch every key
+     */
+    static Pointer create(CoreFoundation cf, DiskArbitrationKeys keys, Set<DiskField> fields) {
+        if (fields == null) {
+            return null;
+        }
+        Pointer[] watched = new Pointer[fields.size()];
+        int count = 0;
+        for (DiskField field : fields) {
+            Pointer key = keys.key(field);
+            if (key == null) {
+                // Leaving the key out would lose its changes, so everything is watched instead
+                LOGGER.debug("Description key {} unavailable, watching every key", field);
+                return null;
+            }
+            watched[count++] = key;
+        }
+        return cf.CFArrayCreate(null, watched, count, cf.getkCFTypeArrayCallBacks());
+    }
+}
@@ -0,0 +1,65 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskField;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Settings collected by {@code DiskEventManager.Builder} for a {@link DiskEventWatcher}.
+ */
+public class WatcherConfig {
+    private NativeBackend backend;
+    private EventDispatcher dispatcher;
+    private List<DiskFilter> filters = List.of();
+    private Map<DiskField, Object> nativeMatch = Map.of();
+    private boolean lazyDiskInfo;
+    private Set<DiskField> fields = EnumSet.allOf(DiskField.class);
+    private boolean diskRegistry;
+    private boolean sharedSession;
+    private Executor mappingExecutor;
+    private int mappingThreads;
+    private Duration descriptionQuietWindow;
+    private Set<DiskEvent.Type> eventTypes = EnumSet.allOf(DiskEvent.Type.class);
+    private Set<DiskField> watchedFields;
+    private PipelineMetrics metrics;
+    private InetSocketAddress metricsEndpoint;
+
+    public WatcherConfig backend(NativeBackend backend) { this.backend = backend; return this; }
+    public WatcherConfig dispatcher(EventDispatcher dispatcher) { this.dispatcher = dispatcher; return this; }
+    public WatcherConfig filters(List<DiskFilter> filters) { this.filters = List.copyOf(filters); return this; }
+    public WatcherConfig nativeMatch(Map<DiskField, Object> nativeMatch) { this.nativeMatch = Map.copyOf(nativeMatch); return this; }
+    public WatcherConfig lazyDiskInfo(boolean lazyDiskInfo) { this.lazyDiskInfo = lazyDiskInfo; return this; }
+    public WatcherConfig fields(Set<DiskField> fields) { this.fields = EnumSet.copyOf(fields); return this; }
+    public WatcherConfig diskRegistry(boolean diskRegistry) { this.diskRegistry = diskRegistry; return this; }
+    public WatcherConfig sharedSession(boolean sharedSession) { this.sharedSession = sharedSession; return this; }
+    public WatcherConfig mappingExecutor(Executor executor) { this.mappingExecutor = executor; return this; }
+    public WatcherConfig mappingThreads(int threads) { this.mappingThreads = threads; return this; }
+    public WatcherConfig descriptionQuietWindow(Duration window) { this.descriptionQuietWindow = window; return this; }
+    public WatcherConfig eventTypes(Set<DiskEvent.Type> types) { this.eventTypes = EnumSet.copyOf(types); return this; }
+    public WatcherConfig watchedFields(Set<DiskField> fields) { this.watchedFields = fields == null ? null : EnumSet.copyOf(fields); return this; }
+    public WatcherConfig metrics(PipelineMetrics metrics) { this.metrics = metrics; return this; }
+    public WatcherConfig metricsEndpoint(InetSocketAddress address) { this.metricsEndpoint = address; return this; }
+
+    NativeBackend backend() { return backend == null ? NativeBackend.macOS() : backend; }
+    EventDispatcher dispatcher() { return dispatcher; }
+    List<DiskFilter> filters() { return filters; }
+    Map<DiskField, Object> nativeMatch() { return nativeMatch; }
+    boolean lazyDiskInfo() { return lazyDiskInfo; }
+    Set<DiskField> fields() { return fields; }
+    boolean diskRegistry() { return diskRegistry; }
+    boolean sharedSession() { return sharedSession; }
+    Executor mappingExecutor() { return mappingExecutor; }
+    int mappingThreads() { return mappingThreads; }
+    Duration descriptionQuietWindow() { return descriptionQuietWindow; }
+    Set<DiskEvent.Type> eventTypes() { return eventTypes; }
+    Set<DiskField> watchedFields() { return watchedFields; }
+    PipelineMetrics metrics() { return metrics == null ? PipelineMetrics.disabled() : metrics; }
+    InetSocketAddress metricsEndpoint() { return metricsEndpoint; }
+}
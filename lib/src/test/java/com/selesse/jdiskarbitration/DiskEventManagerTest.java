@@ -0,0 +1,55 @@
+package com.selesse.jdiskarbitration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskEventManagerTest {
+
+    private final DiskEventListener listener = new DiskEventAdapter() {};
+
+    @Test
+    void build_withoutListener_throws() {
+        assertThrows(IllegalStateException.class, () -> DiskEventManager.builder().build());
+    }
+
+    @Test
+    void build_withFilterOutsideProjection_throws() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> DiskEventManager.builder()
+                .fields(DiskField.VOLUME_NAME, DiskField.MEDIA_SIZE)
+                .usbOnly()
+                .minSize(1024)
+                .listener(listener)
+                .build());
+
+        assertTrue(e.getMessage().contains("DEVICE_PROTOCOL"));
+        assertFalse(e.getMessage().contains("MEDIA_SIZE"));
+    }
+
+    @Test
+    void build_withFilterOutsideGroupProjection_throws() {
+        assertThrows(IllegalStateException.class, () -> DiskEventManager.builder()
+                .fields(DiskField.Group.VOLUME)
+                .removableOnly()
+                .listener(listener)
+                .build());
+    }
+
+    @Test
+    void build_withDeclaredFilterOutsideProjection_throws() {
+        assertThrows(IllegalStateException.class, () -> DiskEventManager.builder()
+                .fields(DiskField.Group.VOLUME)
+                .filter(info -> info.mediaInfo().isLeaf(), DiskField.MEDIA_LEAF)
+                .listener(listener)
+                .build());
+    }
+
+    @Test
+    void build_withMappingExecutorOnSharedSession_throws() {
+        assertThrows(IllegalStateException.class, () -> DiskEventManager.builder()
+                .sharedSession()
+                .mappingExecutor(2)
+                .listener(listener)
+                .build());
+    }
+}
@@ -250,4 +250,58 @@ class DiskInfoTest {
         assertNotNull(diskInfo.mediaInfo());
         assertNull(diskInfo.mediaInfo().encrypted());
     }
+
+    @Test
+    void testDiskInfoIsARecord() {
+        DiskInfo diskInfo = new DiskInfo.Builder()
+                .bsdName("disk6")
+                .volumePath("/Volumes/Six")
+                .build();
+        DiskInfo copy = new DiskInfo(diskInfo.bsdName(), diskInfo.volumeInfo(), diskInfo.deviceInfo(),
+                diskInfo.mediaInfo(), diskInfo.busInfo());
+
+        assertTrue(DiskInfo.class.isRecord());
+        assertEquals(5, DiskInfo.class.getRecordComponents().length);
+        assertEquals(diskInfo, copy);
+        assertEquals(diskInfo.hashCode(), copy.hashCode());
+        assertEquals(diskInfo.toString(), copy.toString());
+    }
+
+    @Test
+    void testCompactKeepsEveryFieldAndItsAbsence() {
+        DiskInfo full = new DiskInfo.Builder()
+                .bsdName("disk7s2")
+                .volumePath("/Volumes/Seven")
+                .volumeMountable(true)
+                .volumeNetwork(false)
+                .deviceProtocol("usb")
+                .deviceUnit(7L)
+                .deviceTdmLocked(false)
+                .isRemovable(true)
+                .mediaSize(64_000_000_000L)
+                .isWritable(true)
+                .isLeaf(true)
+                .mediaBsdMajor(1)
+                .mediaBsdUnit(7)
+                .mediaEncrypted(true)
+                .mediaEncryptionDetail(-1)
+                .busPath("IOService:/usb")
+                .build();
+        DiskInfo sparse = new DiskInfo("disk8", null, null, null, new DiskInfo.BusInfo("PCI", null));
+
+        PackedDiskInfo compact = full.compact();
+
+        assertEquals(full, compact.toDiskInfo());
+        assertEquals("disk7s2", compact.bsdName());
+        assertNull(compact.mediaInfo().mediaBlockSize());
+        assertNull(compact.mediaInfo().bsdMinor());
+        assertEquals(-1, compact.mediaInfo().encryptionDetail());
+        assertTrue(compact.isUSB());
+        assertTrue(compact.isExternal());
+        assertTrue(compact.isRemovable());
+        assertEquals(compact, full.compact());
+        assertEquals(compact.hashCode(), full.compact().hashCode());
+        assertEquals(sparse, sparse.compact().toDiskInfo());
+        assertNull(sparse.compact().volumeInfo());
+    }
 }
@@ -0,0 +1,90 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingEventDispatcherTest {
+
+    private final List<List<String>> batches = new ArrayList<>();
+    private long now;
+
+    private final BatchingEventDispatcher dispatcher = new BatchingEventDispatcher(
+        events -> batches.add(events.stream().map(event -> event.type() + ":" + event.diskInfo().bsdName()).toList()),
+        3, 100, () -> now);
+
+    @Test
+    void onIdle_deliversEventsOfOnePassAsOneBatch() {
+        dispatcher.dispatch(event(DiskEvent.Type.APPEARED, "disk4"));
+        dispatcher.dispatch(event(DiskEvent.Type.APPEARED, "disk4s1"));
+        assertTrue(batches.isEmpty());
+
+        dispatcher.onIdle();
+        dispatcher.onIdle();
+
+        assertEquals(List.of(List.of("APPEARED:disk4", "APPEARED:disk4s1")), batches);
+        assertEquals(0, dispatcher.queueDepth());
+    }
+
+    @Test
+    void dispatch_deliversEarlyWhenBatchIsFull() {
+        for (int i = 1; i <= 4; i++) {
+            dispatcher.dispatch(event(DiskEvent.Type.APPEARED, "disk4s" + i));
+        }
+
+        assertEquals(List.of(List.of("APPEARED:disk4s1", "APPEARED:disk4s2", "APPEARED:disk4s3")), batches);
+        assertEquals(1, dispatcher.queueDepth());
+    }
+
+    @Test
+    void dispatch_deliversEarlyWhenOldestEventIsTooOld() {
+        dispatcher.dispatch(event(DiskEvent.Type.MOUNTED, "disk4s1"));
+        now = 99;
+        assertTrue(batches.isEmpty());
+
+        now = 100;
+        dispatcher.dispatch(event(DiskEvent.Type.UNMOUNTED, "disk4s1"));
+
+        assertEquals(List.of(List.of("MOUNTED:disk4s1", "UNMOUNTED:disk4s1")), batches);
+    }
+
+    @Test
+    void onDeadline_deliversTheBatchScheduledWhenItsFirstEventArrived() {
+        List<Long> deadlines = new ArrayList<>();
+        dispatcher.attach(deadlines::add);
+
+        long before = System.nanoTime();
+        dispatcher.dispatch(event(DiskEvent.Type.MOUNTED, "disk4s1"));
+        dispatcher.dispatch(event(DiskEvent.Type.UNMOUNTED, "disk4s1"));
+        assertEquals(1, deadlines.size());
+        assertTrue(deadlines.get(0) >= before + 100);
+
+        dispatcher.onDeadline();
+
+        assertEquals(List.of(List.of("MOUNTED:disk4s1", "UNMOUNTED:disk4s1")), batches);
+        assertEquals(0, dispatcher.queueDepth());
+        dispatcher.dispatch(event(DiskEvent.Type.MOUNTED, "disk4s1"));
+        assertEquals(2, deadlines.size());
+    }
+
+    @Test
+    void stop_deliversRemainingEventsAndSurvivesListenerFailure() {
+        BatchingEventDispatcher failing = new BatchingEventDispatcher(events -> {
+            throw new IllegalStateException("boom");
+        }, 3, 100, () -> now);
+        failing.dispatch(event(DiskEvent.Type.DISAPPEARED, "disk4"));
+
+        failing.stop();
+
+        assertEquals(0, failing.queueDepth());
+    }
+
+    private static CapturedEvent event(DiskEvent.Type type, String bsdName) {
+        return new CapturedEvent(type, new DiskInfo.Builder().bsdName(bsdName).build());
+    }
+}
@@ -1,6 +1,7 @@
 package com.selesse.jdiskarbitration.internal;
 
 import com.sun.jna.Memory;
+import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -76,6 +80,52 @@ class CoreFoundationValueReaderTest {
         assertEquals("test string", result);
     }
 
+    @Test
+    void getString_withoutCStringPtr_copiesExactBytes() {
+        Pointer dict = mock(Pointer.class);
+        Pointer key = mock(Pointer.class);
+        Pointer value = mock(Pointer.class);
+        byte[] utf8 = "Clé USB".getBytes(StandardCharsets.UTF_8);
+
+        when(cf.CFDictionaryGetValue(dict, key)).thenReturn(value);
+        when(cf.CFGetTypeID(value)).thenReturn(100L);
+        when(cf.CFStringGetTypeID()).thenReturn(100L);
+        when(cf.CFStringGetCStringPtr(value, CoreFoundation.kCFStringEncodingUTF8)).thenReturn(null);
+        when(cf.CFStringGetLength(value)).thenReturn(7L);
+        when(cf.CFStringGetBytes(eq(value), any(), eq(CoreFoundation.kCFStringEncodingUTF8), eq((byte) 0),
+            eq(false), any(), anyLong(), any())).thenAnswer(invocation -> {
+                Pointer buffer = invocation.getArgument(5);
+                Pointer usedBufLen = invocation.getArgument(7);
+                buffer.write(0, utf8, 0, utf8.length);
+                usedBufLen.setLong(0, utf8.length);
+                return 7L;
+            });
+
+        assertEquals("Clé USB", reader.getString(dict, key));
+        verify(cf, never()).CFStringGetMaximumSizeForEncoding(anyLong(), anyInt());
+    }
+
+    @Test
+    void getIconBundleIdentifier_createsBundleIdentifierKeyOnce() {
+        Pointer dict = mock(Pointer.class);
+        Pointer key = mock(Pointer.class);
+        Pointer iconDict = mock(Pointer.class);
+        Pointer bundleIdKey = mock(Pointer.class);
+
+        when(cf.CFDictionaryGetValue(dict, key)).thenReturn(iconDict);
+        when(cf.CFGetTypeID(iconDict)).thenReturn(600L);
+        when(cf.CFDictionaryGetTypeID()).thenReturn(600L);
+        when(cf.CFStringCreateWithCString(null, "CFBundleIdentifier", CoreFoundation.kCFStringEncodingUTF8))
+            .thenReturn(bundleIdKey);
+        when(cf.CFDictionaryGetValue(iconDict, bundleIdKey)).thenReturn(null);
+
+        assertNull(reader.getIconBundleIdentifier(dict, key));
+        assertNull(reader.getIconBundleIdentifier(dict, key));
+
+        verify(cf, times(1)).CFStringCreateWithCString(any(), anyString(), anyInt());
+        verify(cf, never()).CFRelease(bundleIdKey);
+    }
+
     @Test
     void getBoolean_withValidBoolean_returnsTrue() {
         Pointer dict = mock(Pointer.class);
@@ -185,7 +235,6 @@ class CoreFoundationValueReaderTest {
         when(cf.CFGetTypeID(uuidRef)).thenReturn(400L);
         when(cf.CFUUIDGetTypeID()).thenReturn(400L);
         when(cf.CFUUIDCreateString(null, uuidRef)).thenReturn(uuidString);
-        when(cf.CFGetTypeID(uuidString)).thenReturn(100L);
         when(cf.CFStringGetTypeID()).thenReturn(100L);
         when(cf.CFStringGetCStringPtr(uuidString, CoreFoundation.kCFStringEncodingUTF8)).thenReturn(cString);
         when(cString.getString(0, "UTF-8")).thenReturn("550e8400-e29b-41d4-a716-446655440000");
@@ -208,7 +257,6 @@ class CoreFoundationValueReaderTest {
         when(cf.CFGetTypeID(urlRef)).thenReturn(500L);
         when(cf.CFURLGetTypeID()).thenReturn(500L);
         when(cf.CFURLCopyFileSystemPath(urlRef, CoreFoundation.kCFURLPOSIXPathStyle)).thenReturn(pathString);
-        when(cf.CFGetTypeID(pathString)).thenReturn(100L);
         when(cf.CFStringGetTypeID()).thenReturn(100L);
         when(cf.CFStringGetCStringPtr(pathString, CoreFoundation.kCFStringEncodingUTF8)).thenReturn(cString);
         when(cString.getString(0, "UTF-8")).thenReturn("/Volumes/MyDisk");
@@ -233,4 +281,95 @@ class CoreFoundationValueReaderTest {
         String result = reader.getString(dict, key);
         assertNull(result);
     }
+
+    @Test
+    void prefetch_servesIndexedKeysWithoutPerKeyLookups() {
+        Pointer dict = new Pointer(0x1000);
+        Pointer nameKey = new Pointer(0x10);
+        Pointer kindKey = new Pointer(0x20);
+        Pointer removableKey = new Pointer(0x30);
+        Pointer nameValue = new Pointer(0x110);
+        Pointer kindValue = new Pointer(0x120);
+        Pointer cString = mock(Pointer.class);
+
+        when(cf.CFDictionaryGetCount(dict)).thenReturn(2L);
+        doAnswer(invocation -> {
+            Pointer keys = invocation.getArgument(1);
+            Pointer values = invocation.getArgument(2);
+            keys.setPointer(0, nameKey);
+            values.setPointer(0, nameValue);
+            keys.setPointer(Native.POINTER_SIZE, kindKey);
+            values.setPointer(Native.POINTER_SIZE, kindValue);
+            return null;
+        }).when(cf).CFDictionaryGetKeysAndValues(eq(dict), any(), any());
+        when(cf.CFGetTypeID(nameValue)).thenReturn(100L);
+        when(cf.CFStringGetTypeID()).thenReturn(100L);
+        when(cf.CFStringGetCStringPtr(nameValue, CoreFoundation.kCFStringEncodingUTF8)).thenReturn(cString);
+        when(cString.getString(0, "UTF-8")).thenReturn("USB DISK");
+
+        var index = new CoreFoundationValueReader.KeyIndex(List.of(nameKey, kindKey, removableKey));
+        try (var prefetch = reader.prefetch(dict, index)) {
+            assertNotNull(prefetch);
+            assertEquals("USB DISK", reader.getString(dict, nameKey));
+            // Every key of the dictionary is indexed, so a missing key is known to be absent
+            assertNull(reader.getBooleanNullable(dict, removableKey));
+        }
+
+        verify(cf, never()).CFDictionaryGetValue(any(), any());
+    }
+
+    @Test
+    void prefetch_withKeysEqualToButNotTheConstants_fallsBackToPerKeyLookups() {
+        Pointer dict = new Pointer(0x1000);
+        Pointer indexedKey = new Pointer(0x10);
+        Pointer copiedKey = new Pointer(0x40);
+
+        when(cf.CFDictionaryGetCount(dict)).thenReturn(1L);
+        doAnswer(invocation -> {
+            Pointer keys = invocation.getArgument(1);
+            keys.setPointer(0, copiedKey);
+            return null;
+        }).when(cf).CFDictionaryGetKeysAndValues(eq(dict), any(), any());
+        when(cf.CFEqual(copiedKey, indexedKey)).thenReturn(true);
+
+        var index = new CoreFoundationValueReader.KeyIndex(List.of(indexedKey));
+        assertNull(reader.prefetch(dict, index));
+        // Once keys are known not to be the constants, prefetching is no longer attempted
+        assertNull(reader.prefetch(dict, index));
+
+        verify(cf, times(1)).CFDictionaryGetCount(dict);
+    }
+
+    @Test
+    void prefetch_afterDictionaryWithoutIndexedKeys_stillPrefetches() {
+        Pointer unmounted = new Pointer(0x1000);
+        Pointer mounted = new Pointer(0x2000);
+        Pointer pathKey = new Pointer(0x10);
+        Pointer otherKey = new Pointer(0x40);
+        Pointer pathValue = new Pointer(0x110);
+
+        when(cf.CFDictionaryGetCount(unmounted)).thenReturn(1L);
+        doAnswer(invocation -> {
+            Pointer keys = invocation.getArgument(1);
+            keys.setPointer(0, otherKey);
+            return null;
+        }).when(cf).CFDictionaryGetKeysAndValues(eq(unmounted), any(), any());
+        when(cf.CFDictionaryGetCount(mounted)).thenReturn(1L);
+        doAnswer(invocation -> {
+            Pointer keys = invocation.getArgument(1);
+            Pointer values = invocation.getArgument(2);
+            keys.setPointer(0, pathKey);
+            values.setPointer(0, pathValue);
+            return null;
+        }).when(cf).CFDictionaryGetKeysAndValues(eq(mounted), any(), any());
+
+        var index = new CoreFoundationValueReader.KeyIndex(List.of(pathKey));
+        // The unmounted disk has no path, which says nothing about how keys compare
+        assertNull(reader.prefetch(unmounted, index));
+        try (var prefetch = reader.prefetch(mounted, index)) {
+            assertNotNull(prefetch);
+        }
+
+        verify(cf).CFEqual(otherKey, pathKey);
+    }
 }
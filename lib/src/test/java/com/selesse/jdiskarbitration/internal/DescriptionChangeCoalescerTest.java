@@ -0,0 +1,87 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DescriptionChangeCoalescerTest {
+
+    private static final long WINDOW = 100;
+
+    private final List<CapturedEvent> dispatched = new ArrayList<>();
+    private final List<Long> wakeUps = new ArrayList<>();
+    private long now;
+
+    private final DescriptionChangeCoalescer coalescer =
+        new DescriptionChangeCoalescer(dispatched::add, WINDOW, () -> now, wakeUps::add);
+
+    @Test
+    void burstOfChanges_isDeliveredOnceWithUnionOfFields() {
+        coalescer.offer(changed("disk4s1", "A", DiskField.VOLUME_NAME));
+        now = 50;
+        coalescer.offer(changed("disk4s1", "B", DiskField.VOLUME_PATH));
+
+        now = 149;
+        coalescer.flushDue();
+        assertTrue(dispatched.isEmpty(), "the second change restarted the quiet window");
+
+        now = 150;
+        coalescer.flushDue();
+
+        assertEquals(1, dispatched.size());
+        CapturedEvent event = dispatched.get(0);
+        assertEquals("B", event.diskInfo().volumeInfo().name());
+        assertEquals(EnumSet.of(DiskField.VOLUME_NAME, DiskField.VOLUME_PATH), event.changedFields());
+        assertEquals(0, coalescer.pendingCount());
+        assertEquals(List.of(100L, 150L, 150L), wakeUps);
+    }
+
+    @Test
+    void disksAreCoalescedIndependently() {
+        coalescer.offer(changed("disk4s1", "A", DiskField.VOLUME_NAME));
+        now = 80;
+        coalescer.offer(changed("disk5s1", "B", DiskField.VOLUME_NAME));
+
+        now = 100;
+        coalescer.flushDue();
+
+        assertEquals(1, dispatched.size());
+        assertEquals("disk4s1", dispatched.get(0).diskInfo().bsdName());
+        assertEquals(180L, wakeUps.get(wakeUps.size() - 1));
+    }
+
+    @Test
+    void continuousChanges_areFlushedAfterMaximumDelay() {
+        for (now = 0; now < 2000; now += 50) {
+            coalescer.offer(changed("disk4s1", "A" + now, DiskField.VOLUME_NAME));
+            coalescer.flushDue();
+        }
+
+        assertFalse(dispatched.isEmpty());
+        assertEquals("A1000", dispatched.get(0).diskInfo().volumeInfo().name());
+    }
+
+    @Test
+    void flush_deliversHeldChangeImmediately() {
+        coalescer.offer(changed("disk4s1", "A", DiskField.VOLUME_PATH));
+
+        coalescer.flush("disk4s1");
+        coalescer.flush("disk5s1");
+
+        assertEquals(1, dispatched.size());
+        assertEquals(0, coalescer.pendingCount());
+    }
+
+    private static CapturedEvent changed(String bsdName, String volumeName, DiskField field) {
+        DiskInfo diskInfo = new DiskInfo.Builder().bsdName(bsdName).volumeName(volumeName).build();
+        return new CapturedEvent(DiskEvent.Type.DESCRIPTION_CHANGED, diskInfo, Set.of(field));
+    }
+}
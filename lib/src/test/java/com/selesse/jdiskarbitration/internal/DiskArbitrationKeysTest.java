@@ -0,0 +1,43 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.sun.jna.Pointer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskArbitrationKeysTest {
+
+    private final List<String> resolved = new ArrayList<>();
+    private final DiskArbitrationKeys keys = new DiskArbitrationKeys(symbolName -> {
+        resolved.add(symbolName);
+        // Pretend this version of macOS does not export the TDM key
+        return symbolName.equals("kDADiskDescriptionDeviceTDMLockedKey") ? null : new Pointer(resolved.size());
+    });
+
+    @Test
+    void key_resolvesEachSymbolOnceOnFirstUse() {
+        assertTrue(resolved.isEmpty());
+
+        Pointer volumePath = keys.key(DiskField.VOLUME_PATH);
+        assertSame(volumePath, keys.key(DiskField.VOLUME_PATH));
+        assertNull(keys.key(DiskField.DEVICE_TDM_LOCKED));
+        assertNull(keys.key(DiskField.DEVICE_TDM_LOCKED));
+
+        assertEquals(List.of("kDADiskDescriptionVolumePathKey", "kDADiskDescriptionDeviceTDMLockedKey"), resolved);
+    }
+
+    @Test
+    void descriptionKeys_ofProjection_onlyResolvesProjectedFields() {
+        List<Pointer> projected = keys.descriptionKeys(EnumSet.of(DiskField.VOLUME_PATH, DiskField.DEVICE_PROTOCOL));
+
+        assertEquals(2, projected.size());
+        assertEquals(List.of("kDADiskDescriptionVolumePathKey", "kDADiskDescriptionDeviceProtocolKey"), resolved);
+        // Every exported field key plus the appearance time, without the missing TDM key
+        assertEquals(DiskField.values().length, keys.descriptionKeys().size());
+    }
+}
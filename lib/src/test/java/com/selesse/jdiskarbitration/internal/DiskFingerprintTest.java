@@ -0,0 +1,37 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskFingerprintTest {
+
+    private static final DiskField[] VOLUME = {DiskField.VOLUME_PATH, DiskField.VOLUME_NAME};
+
+    private static DiskInfo.Builder disk() {
+        return new DiskInfo.Builder().bsdName("disk4s1").volumePath("/Volumes/USB").volumeName("USB")
+            .mediaIcon("a.icns").mediaSize(1L << 30);
+    }
+
+    @Test
+    void of_dependsOnProjectedFieldsOnly() {
+        long fingerprint = DiskFingerprint.of(disk().build(), VOLUME);
+
+        assertEquals(fingerprint, DiskFingerprint.of(disk().build(), VOLUME));
+        assertEquals(fingerprint, DiskFingerprint.of(disk().mediaIcon("b.icns").mediaSize(1L).build(), VOLUME));
+        assertNotEquals(fingerprint, DiskFingerprint.of(disk().volumeName("Backup").build(), VOLUME));
+    }
+
+    @Test
+    void of_tellsAbsentValuesAndSwappedValuesApart() {
+        long fingerprint = DiskFingerprint.of(disk().build(), VOLUME);
+
+        assertNotEquals(fingerprint, DiskFingerprint.of(disk().volumePath(null).build(), VOLUME));
+        assertNotEquals(DiskFingerprint.of(disk().volumeName(null).build(), VOLUME),
+            DiskFingerprint.of(disk().volumeName("").build(), VOLUME));
+        assertNotEquals(DiskFingerprint.of(disk().volumePath("a").volumeName("b").build(), VOLUME),
+            DiskFingerprint.of(disk().volumePath("b").volumeName("a").build(), VOLUME));
+    }
+}
@@ -1,5 +1,6 @@
 package com.selesse.jdiskarbitration.internal;
 
+import com.selesse.jdiskarbitration.DiskField;
 import com.selesse.jdiskarbitration.DiskInfo;
 import com.sun.jna.Pointer;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +9,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -155,4 +161,181 @@ class DiskInfoMapperTest {
         verify(cfReader, atLeastOnce()).getInteger(eq(dict), any());
         verify(cfReader, atLeastOnce()).getIconBundleIdentifier(eq(dict), any());
     }
+
+    @Test
+    void lazySnapshot_decodesOnlyFieldsThatAreRead() {
+        Pointer disk = mock(Pointer.class);
+        Pointer bsdNamePtr = mock(Pointer.class);
+        Pointer dict = mock(Pointer.class);
+
+        when(da.DADiskGetBSDName(disk)).thenReturn(bsdNamePtr);
+        when(bsdNamePtr.getString(0)).thenReturn("disk2s1");
+        when(da.DADiskCopyDescription(disk)).thenReturn(dict);
+        when(cfReader.getVolumePath(eq(dict), any())).thenReturn("/Volumes/TestDisk");
+
+        DiskSnapshot snapshot = mapper.lazySnapshot(disk);
+        DiskInfo result = snapshot.diskInfo(Set.of(DiskField.VOLUME_PATH));
+
+        assertEquals("disk2s1", result.bsdName());
+        assertEquals("/Volumes/TestDisk", result.volumeInfo().path());
+        assertNull(result.volumeInfo().name());
+
+        verify(cfReader, never()).getString(any(), any());
+        verify(cfReader, never()).getLong(any(), any());
+        verify(cfReader, never()).getInteger(any(), any());
+        verify(cfReader, never()).getIconBundleIdentifier(any(), any());
+        verify(cf, never()).CFRelease(dict);
+
+        snapshot.release();
+        verify(cf).CFRelease(dict);
+    }
+
+    @Test
+    void lazySnapshot_decodesEachFieldOnce_andKeepsTheFullDiskInfoAfterRelease() {
+        Pointer disk = mock(Pointer.class);
+        Pointer bsdNamePtr = mock(Pointer.class);
+        Pointer dict = mock(Pointer.class);
+
+        when(da.DADiskGetBSDName(disk)).thenReturn(bsdNamePtr);
+        when(bsdNamePtr.getString(0)).thenReturn("disk2s1");
+        when(da.DADiskCopyDescription(disk)).thenReturn(dict);
+        when(cfReader.getVolumePath(eq(dict), any())).thenReturn("/Volumes/TestDisk");
+
+        DiskSnapshot snapshot = mapper.lazySnapshot(disk);
+        snapshot.diskInfo(Set.of(DiskField.VOLUME_PATH));
+        snapshot.diskInfo(Set.of(DiskField.VOLUME_PATH));
+        DiskInfo full = snapshot.diskInfo();
+        snapshot.release();
+
+        verify(cfReader, times(1)).getVolumePath(eq(dict), any());
+        verify(cf).CFRelease(dict);
+        assertEquals("/Volumes/TestDisk", full.volumeInfo().path());
+        assertSame(full, snapshot.diskInfo());
+        assertSame(full, snapshot.diskInfo(Set.of(DiskField.BUS_NAME)));
+    }
+
+    @Test
+    void lazySnapshot_releasedBeforeDecoding_fails() {
+        Pointer disk = mock(Pointer.class);
+        Pointer bsdNamePtr = mock(Pointer.class);
+        Pointer dict = mock(Pointer.class);
+
+        when(da.DADiskGetBSDName(disk)).thenReturn(bsdNamePtr);
+        when(bsdNamePtr.getString(0)).thenReturn("disk2s1");
+        when(da.DADiskCopyDescription(disk)).thenReturn(dict);
+
+        DiskSnapshot snapshot = mapper.lazySnapshot(disk);
+        snapshot.release();
+
+        assertEquals("disk2s1", snapshot.bsdName());
+        assertThrows(IllegalStateException.class, snapshot::diskInfo);
+    }
+
+    @Test
+    void fromDADisk_withProjection_readsOnlyProjectedFields() {
+        mapper = new DiskInfoMapper(da, cf, cfReader, EnumSet.of(DiskField.VOLUME_PATH, DiskField.MEDIA_SIZE));
+        Pointer disk = mock(Pointer.class);
+        Pointer bsdNamePtr = mock(Pointer.class);
+        Pointer dict = mock(Pointer.class);
+
+        when(da.DADiskGetBSDName(disk)).thenReturn(bsdNamePtr);
+        when(bsdNamePtr.getString(0)).thenReturn("disk2s1");
+        when(da.DADiskCopyDescription(disk)).thenReturn(dict);
+        when(cfReader.getVolumePath(eq(dict), any())).thenReturn("/Volumes/TestDisk");
+        when(cfReader.getLong(eq(dict), any())).thenReturn(42L);
+
+        DiskInfo result = mapper.fromDADisk(disk);
+
+        assertEquals("/Volumes/TestDisk", result.volumeInfo().path());
+        assertEquals(42L, result.mediaInfo().mediaSize());
+        assertNull(result.volumeInfo().name());
+        assertNull(result.deviceInfo().protocol());
+        assertFalse(result.mediaInfo().isRemovable());
+
+        verify(cfReader, times(1)).getLong(eq(dict), any());
+        verify(cfReader, never()).getString(any(), any());
+        verify(cfReader, never()).getBoolean(any(), any());
+        verify(cfReader, never()).getBooleanNullable(any(), any());
+        verify(cfReader, never()).getUUID(any(), any());
+        verify(cfReader, never()).getInteger(any(), any());
+        verify(cfReader, never()).getIconBundleIdentifier(any(), any());
+    }
+
+    @Test
+    void update_rereadsOnlyChangedFieldsAndSharesUnchangedRecords() {
+        Pointer disk = mock(Pointer.class);
+        Pointer dict = mock(Pointer.class);
+        DiskInfo base = new DiskInfo.Builder().bsdName("disk2s1").mediaSize(1024L).build();
+        DiskInfo previous = new DiskInfo("disk2s1",
+            new DiskInfo.VolumeInfo(null, "Old", "msdos", "UUID-1", true, false, "MS-DOS"),
+            base.deviceInfo(), base.mediaInfo(), base.busInfo());
+
+        when(da.DADiskCopyDescription(disk)).thenReturn(dict);
+        when(cfReader.getVolumePath(eq(dict), any())).thenReturn("/Volumes/New");
+        when(cfReader.getString(eq(dict), any())).thenReturn("New");
+
+        DiskInfo updated = mapper.update(previous, disk, EnumSet.of(DiskField.VOLUME_PATH, DiskField.VOLUME_NAME));
+
+        assertEquals("/Volumes/New", updated.volumeInfo().path());
+        assertEquals("New", updated.volumeInfo().name());
+        assertEquals("msdos", updated.volumeInfo().kind());
+        assertEquals("UUID-1", updated.volumeInfo().uuid());
+        assertSame(previous.deviceInfo(), updated.deviceInfo());
+        assertSame(previous.mediaInfo(), updated.mediaInfo());
+        assertSame(previous.busInfo(), updated.busInfo());
+
+        verify(cfReader, times(1)).getString(eq(dict), any());
+        verify(cfReader, never()).getUUID(any(), any());
+        verify(cf).CFRelease(dict);
+    }
+
+    @Test
+    void changedFields_matchesKeysByIdentityAndByName() {
+        DiskArbitrationKeys keys = MacOsBackend.INSTANCE.keys();
+        Pointer changedKeys = mock(Pointer.class);
+        Pointer copiedNameKey = mock(Pointer.class);
+
+        when(cf.CFArrayGetCount(changedKeys)).thenReturn(2L);
+        when(cf.CFArrayGetValueAtIndex(changedKeys, 0)).thenReturn(keys.key(DiskField.VOLUME_PATH));
+        when(cf.CFArrayGetValueAtIndex(changedKeys, 1)).thenReturn(copiedNameKey);
+        when(cfReader.toJavaString(copiedNameKey)).thenReturn("DAVolumeName");
+        when(cfReader.toJavaString(keys.key(DiskField.VOLUME_NAME))).thenReturn("DAVolumeName");
+
+        assertEquals(EnumSet.of(DiskField.VOLUME_PATH, DiskField.VOLUME_NAME), mapper.changedFields(changedKeys));
+    }
+
+    @Test
+    void changedFields_withUnreadableKey_returnsNull() {
+        Pointer changedKeys = mock(Pointer.class);
+        Pointer unreadableKey = mock(Pointer.class);
+
+        when(cf.CFArrayGetCount(changedKeys)).thenReturn(1L);
+        when(cf.CFArrayGetValueAtIndex(changedKeys, 0)).thenReturn(unreadableKey);
+
+        assertNull(mapper.changedFields(changedKeys));
+    }
+
+    @Test
+    void changedFields_resolvesOnlyTheProjectedKeys() {
+        SimulatedBackend backend = new SimulatedBackend();
+        CoreFoundation simulatedCf = backend.coreFoundation();
+        List<String> resolved = new ArrayList<>();
+        DiskArbitrationKeys recordingKeys = new DiskArbitrationKeys(symbolName -> {
+            resolved.add(symbolName);
+            for (DiskField field : DiskField.values()) {
+                if (field.descriptionKey().equals(symbolName)) {
+                    return backend.keys().key(field);
+                }
+            }
+            return null;
+        });
+        DiskInfoMapper projected = new DiskInfoMapper(backend.diskArbitration(), simulatedCf,
+            new CoreFoundationValueReader(simulatedCf), recordingKeys, EnumSet.of(DiskField.VOLUME_NAME));
+        Pointer changedKeys = simulatedCf.CFArrayCreate(null, new Pointer[]{
+            backend.keys().key(DiskField.MEDIA_ICON), backend.keys().key(DiskField.VOLUME_NAME)}, 2, null);
+
+        assertEquals(EnumSet.of(DiskField.VOLUME_NAME), projected.changedFields(changedKeys));
+        assertEquals(List.of("kDADiskDescriptionVolumeNameKey"), resolved);
+        simulatedCf.CFRelease(changedKeys);
+    }
 }
@@ -0,0 +1,142 @@
+package com.selesse.jdiskarbitration.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskLifecycleTest {
+
+    private final DiskLifecycle lifecycle = new DiskLifecycle();
+
+    @Test
+    void fullLifecycle_acceptsEachTransitionOnce() {
+        assertTrue(lifecycle.appear("disk4"));
+        assertFalse(lifecycle.appear("disk4"));
+        assertEquals(1, lifecycle.generation("disk4"));
+
+        assertTrue(lifecycle.mount("disk4", 1));
+        assertFalse(lifecycle.mount("disk4", 1));
+
+        assertTrue(lifecycle.unmount("disk4", 1));
+        assertFalse(lifecycle.unmount("disk4", 1));
+
+        assertTrue(lifecycle.mount("disk4", 1));
+        assertEquals(DiskLifecycle.State.MOUNTED, lifecycle.disappear("disk4"));
+        assertEquals(DiskLifecycle.State.DISAPPEARED, lifecycle.disappear("disk4"));
+    }
+
+    @Test
+    void disappearedDisk_rejectsLateTransitions() {
+        lifecycle.appear("disk4");
+        lifecycle.disappear("disk4");
+
+        assertFalse(lifecycle.mount("disk4", 1));
+        assertFalse(lifecycle.unmount("disk4", 1));
+        assertEquals(DiskLifecycle.State.DISAPPEARED, lifecycle.state("disk4"));
+    }
+
+    @Test
+    void reappearingDisk_replacesItsTombstone() {
+        lifecycle.appear("disk4");
+        lifecycle.disappear("disk4");
+
+        assertTrue(lifecycle.appear("disk4"));
+        assertEquals(DiskLifecycle.State.APPEARED, lifecycle.state("disk4"));
+        assertEquals(2, lifecycle.generation("disk4"));
+        assertTrue(lifecycle.mount("disk4", 2));
+    }
+
+    @Test
+    void lateCallbackOfEarlierGeneration_isRejected() {
+        lifecycle.appear("disk4");
+        lifecycle.mount("disk4", 1);
+        long observed = lifecycle.generation("disk4");
+        lifecycle.disappear("disk4");
+        lifecycle.appear("disk4");
+        lifecycle.mount("disk4", 2);
+
+        // An unmount seen for the first disk must not unmount the second
+        assertFalse(lifecycle.unmount("disk4", observed));
+        assertEquals(DiskLifecycle.State.MOUNTED, lifecycle.state("disk4"));
+        assertTrue(lifecycle.unmount("disk4", 2));
+    }
+
+    @Test
+    void forget_dropsTombstonesOnly() {
+        lifecycle.appear("disk4");
+        lifecycle.forget("disk4");
+        assertEquals(DiskLifecycle.State.APPEARED, lifecycle.state("disk4"));
+
+        lifecycle.disappear("disk4");
+        lifecycle.forget("disk4");
+        assertNull(lifecycle.state("disk4"));
+        assertEquals(0, lifecycle.generation("disk4"));
+
+        assertTrue(lifecycle.appear("disk4"));
+        assertEquals(1, lifecycle.generation("disk4"));
+    }
+
+    @Test
+    void unknownDisk_isTreatedAsAppeared() {
+        assertNull(lifecycle.state("disk5"));
+        assertEquals(0, lifecycle.generation("disk5"));
+        assertFalse(lifecycle.unmount("disk5", 0));
+
+        assertTrue(lifecycle.mount("disk5", 0));
+        assertEquals(DiskLifecycle.State.MOUNTED, lifecycle.state("disk5"));
+        assertEquals(1, lifecycle.generation("disk5"));
+    }
+
+    @Test
+    void concurrentFirstMounts_ofUnknownDisk_onlyOneWins() throws InterruptedException {
+        AtomicInteger winners = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                if (lifecycle.mount("disk6", 0)) {
+                    winners.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, winners.get());
+    }
+
+    @Test
+    void concurrentMounts_onlyOneWins() throws InterruptedException {
+        lifecycle.appear("disk4");
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (lifecycle.mount("disk4", 1)) {
+                    winners.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, winners.get());
+    }
+}
@@ -0,0 +1,67 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilterChainTest {
+
+    private final List<String> evaluated = new ArrayList<>();
+    private final DiskInfo usbVolume = SimulatedBackend.externalVolume(4, 1);
+
+    private DiskFilter filter(String name, boolean accept, DiskField... fields) {
+        return new DiskFilter(info -> {
+            evaluated.add(name);
+            return accept;
+        }, fields.length == 0 ? null : Set.of(fields));
+    }
+
+    @Test
+    void accepts_evaluatesCheapestFirst_andUndeclaredLast() {
+        DiskFilter custom = filter("custom", true);
+        DiskFilter twoKeys = filter("twoKeys", true, DiskField.MEDIA_SIZE, DiskField.MEDIA_WHOLE);
+        DiskFilter oneKey = filter("oneKey", true, DiskField.DEVICE_PROTOCOL);
+        FilterChain chain = new FilterChain(List.of(custom, twoKeys, oneKey));
+
+        assertTrue(chain.accepts(usbVolume));
+
+        assertEquals(List.of("oneKey", "twoKeys", "custom"), evaluated);
+        assertEquals(3, chain.lastEvaluated());
+        assertEquals(Set.of(DiskField.MEDIA_SIZE, DiskField.MEDIA_WHOLE, DiskField.DEVICE_PROTOCOL),
+            chain.declaredFields());
+    }
+
+    @Test
+    void accepts_movesTheFilterThatRejectsAheadOnceReordered() {
+        DiskFilter cheapPassing = filter("cheapPassing", true, DiskField.DEVICE_PROTOCOL);
+        DiskFilter rejecting = filter("rejecting", false, DiskField.MEDIA_SIZE, DiskField.MEDIA_WHOLE);
+        FilterChain chain = new FilterChain(List.of(rejecting, cheapPassing));
+        assertEquals(List.of(cheapPassing, rejecting), chain.order());
+
+        for (int i = 0; i < FilterChain.REORDER_INTERVAL; i++) {
+            assertFalse(chain.accepts(usbVolume));
+        }
+
+        assertEquals(List.of(rejecting, cheapPassing), chain.order());
+        evaluated.clear();
+        assertFalse(chain.accepts(usbVolume));
+        assertEquals(List.of("rejecting"), evaluated);
+    }
+
+    @Test
+    void acceptsDeclared_skipsUndeclaredFilters() {
+        FilterChain chain = new FilterChain(List.of(
+            filter("custom", false), filter("protocol", true, DiskField.DEVICE_PROTOCOL)));
+
+        assertTrue(chain.anyDeclared());
+        assertTrue(chain.acceptsDeclared(usbVolume));
+        assertEquals(List.of("protocol"), evaluated);
+        assertFalse(chain.accepts(usbVolume));
+    }
+}
@@ -0,0 +1,116 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskInfo;
+import com.selesse.jdiskarbitration.DiskRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedDiskRegistryTest {
+
+    private final DiskInfo usbStick = new DiskInfo.Builder()
+            .bsdName("disk4s1")
+            .volumePath("/Volumes/STICK")
+            .volumeUUID("VOL-1")
+            .mediaUUID("MEDIA-1")
+            .deviceProtocol("USB")
+            .deviceVendor("SanDisk ")
+            .mediaSize(16_000_000_000L)
+            .build();
+
+    private final DiskInfo externalDrive = new DiskInfo.Builder()
+            .bsdName("disk5s2")
+            .volumeUUID("VOL-2")
+            .deviceProtocol("Thunderbolt")
+            .deviceVendor("Samsung")
+            .mediaSize(1_000_000_000_000L)
+            .build();
+
+    @Test
+    void testLookupsByUniqueKeys() {
+        DiskRegistry registry = IndexedDiskRegistry.empty().with(usbStick).with(externalDrive);
+
+        assertEquals(2, registry.size());
+        assertSame(usbStick, registry.byBsdName("disk4s1").orElseThrow());
+        assertSame(externalDrive, registry.byVolumeUUID("VOL-2").orElseThrow());
+        assertSame(usbStick, registry.byMediaUUID("MEDIA-1").orElseThrow());
+        assertSame(usbStick, registry.byMountPath("/Volumes/STICK").orElseThrow());
+        assertTrue(registry.byMountPath("/Volumes/Other").isEmpty());
+    }
+
+    @Test
+    void testSecondaryIndexesIgnoreCaseAndPadding() {
+        DiskRegistry registry = IndexedDiskRegistry.empty().with(usbStick).with(externalDrive);
+
+        assertEquals(List.of(usbStick), registry.byProtocol("usb"));
+        assertEquals(List.of(usbStick), registry.byVendor("sandisk"));
+        assertEquals(List.of(), registry.byVendor("Kingston"));
+    }
+
+    @Test
+    void testSizeRangeIsInclusiveAndOrdered() {
+        DiskRegistry registry = IndexedDiskRegistry.empty().with(externalDrive).with(usbStick);
+
+        assertEquals(List.of(usbStick, externalDrive), registry.bySizeRange(16_000_000_000L, 1_000_000_000_000L));
+        assertEquals(List.of(usbStick), registry.bySizeRange(0, 100_000_000_000L));
+        assertEquals(List.of(), registry.bySizeRange(10, 1));
+    }
+
+    @Test
+    void testWithAndWithoutLeaveOriginalUntouched() {
+        IndexedDiskRegistry original = IndexedDiskRegistry.empty().with(usbStick);
+        DiskInfo unmounted = new DiskInfo.Builder().bsdName("disk4s1").volumeUUID("VOL-1").build();
+
+        IndexedDiskRegistry updated = original.with(unmounted);
+        IndexedDiskRegistry removed = updated.without("disk4s1");
+
+        assertSame(usbStick, original.byBsdName("disk4s1").orElseThrow());
+        assertTrue(updated.byMountPath("/Volumes/STICK").isEmpty());
+        assertSame(unmounted, updated.byVolumeUUID("VOL-1").orElseThrow());
+        assertEquals(0, removed.size());
+        assertSame(removed, removed.without("disk4s1"));
+    }
+
+    @Test
+    void testReplacedDiskKeepsItsPositionAndLeavesItsOldKeys() {
+        DiskInfo remounted = new DiskInfo.Builder()
+                .bsdName("disk4s1")
+                .volumePath("/Volumes/STICK 1")
+                .volumeUUID("VOL-1")
+                .deviceProtocol("USB")
+                .deviceVendor("SanDisk")
+                .mediaSize(16_000_000_000L)
+                .build();
+
+        DiskRegistry registry = IndexedDiskRegistry.empty().with(usbStick).with(externalDrive).with(remounted);
+
+        assertEquals(List.of(remounted, externalDrive), List.copyOf(registry.all()));
+        assertSame(remounted, registry.byMountPath("/Volumes/STICK 1").orElseThrow());
+        assertTrue(registry.byMountPath("/Volumes/STICK").isEmpty());
+        assertTrue(registry.byMediaUUID("MEDIA-1").isEmpty());
+        assertEquals(List.of(remounted), registry.bySizeRange(0, 16_000_000_000L));
+    }
+
+    @Test
+    void testSharedKeyFallsBackToTheRemainingDisk() {
+        DiskInfo clone = new DiskInfo.Builder().bsdName("disk6s1").volumeUUID("VOL-1").deviceProtocol("USB").build();
+
+        IndexedDiskRegistry registry = IndexedDiskRegistry.empty().with(usbStick).with(clone);
+
+        assertSame(clone, registry.byVolumeUUID("VOL-1").orElseThrow());
+        assertEquals(List.of(usbStick, clone), registry.byProtocol("USB"));
+        assertSame(usbStick, registry.without("disk6s1").byVolumeUUID("VOL-1").orElseThrow());
+    }
+
+    @Test
+    void testDisksWithoutRecordsAreOnlyIndexedByName() {
+        DiskInfo share = new DiskInfo("disk9", null, null, null, null);
+
+        DiskRegistry registry = IndexedDiskRegistry.empty().with(share);
+
+        assertSame(share, registry.byBsdName("disk9").orElseThrow());
+        assertEquals(List.of(), registry.bySizeRange(0, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,88 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEventAdapter;
+import com.selesse.jdiskarbitration.DiskEventManager;
+import com.selesse.jdiskarbitration.DiskInfo;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static com.selesse.jdiskarbitration.DiskEventManagerTestSupport.backend;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void recording_capturesEachCallbackPhase() throws IOException, InterruptedException {
+        SimulatedBackend backend = new SimulatedBackend();
+        DiskEventManager manager = backend(DiskEventManager.builder(), backend)
+            .filter(DiskInfo::isUSB)
+            .listener(new DiskEventAdapter() {
+                @Override
+                public void onDiskAppeared(DiskInfo diskInfo) {
+                }
+            })
+            .build();
+        Path file = Files.createTempFile("jdiskarbitration", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("Callback", "Mapping", "Filter", "Listener")) {
+                recording.enable("com.selesse.jdiskarbitration." + name).withoutThreshold();
+            }
+            recording.start();
+            manager.start();
+            assertTrue(backend.awaitIdle(TIMEOUT));
+            backend.appear(SimulatedBackend.externalVolume(4, 1));
+            assertTrue(backend.awaitIdle(TIMEOUT));
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            manager.stop();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        RecordedEvent callback = only(events, "Callback");
+        assertEquals("disk4s1", callback.getString("bsdName"));
+        assertEquals("APPEARED", callback.getString("kind"));
+        assertTrue(callback.getBoolean("accepted"));
+        RecordedEvent mapping = only(events, "Mapping");
+        assertEquals("disk4s1", mapping.getString("bsdName"));
+        assertEquals("APPEARED", mapping.getString("kind"));
+        assertEquals(com.selesse.jdiskarbitration.DiskField.values().length, mapping.getInt("keysRead"));
+        RecordedEvent filter = only(events, "Filter");
+        assertEquals(1, filter.getInt("filtersEvaluated"));
+        assertTrue(filter.getBoolean("accepted"));
+        RecordedEvent listener = only(events, "Listener");
+        assertEquals("disk4s1", listener.getString("bsdName"));
+        assertEquals("APPEARED", listener.getString("kind"));
+        assertFalse(listener.getStartTime().isBefore(callback.getStartTime()));
+    }
+
+    @Test
+    void disabledByDefault() {
+        try (Recording recording = new Recording()) {
+            recording.start();
+            MappingJfrEvent event = new MappingJfrEvent();
+            event.begin();
+            assertFalse(event.shouldCommit());
+        }
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+            .filter(event -> event.getEventType().getName().equals("com.selesse.jdiskarbitration." + name))
+            .toList();
+        assertEquals(1, matching.size(), name + " events: " + matching);
+        return matching.get(0);
+    }
+}
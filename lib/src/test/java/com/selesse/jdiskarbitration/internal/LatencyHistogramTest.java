@@ -0,0 +1,43 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEventMetrics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketIndex_usesPowerOfTwoUpperBounds() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0));
+        assertEquals(0, LatencyHistogram.bucketIndex(64));
+        assertEquals(1, LatencyHistogram.bucketIndex(65));
+        assertEquals(1, LatencyHistogram.bucketIndex(128));
+        assertEquals(10, LatencyHistogram.bucketIndex(65_536));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 2, LatencyHistogram.bucketIndex(1L << 32));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex((1L << 32) + 1));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void snapshot_reportsCumulativeCountsAndQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5_000);
+        histogram.record(10_000_000_000L);
+
+        DiskEventMetrics.Latency latency = histogram.snapshot();
+
+        assertEquals(100, latency.count());
+        assertEquals(98 * 100 + 5_000 + 10_000_000_000L, latency.totalNanos());
+        assertEquals(LatencyHistogram.BUCKET_COUNT, latency.buckets().size());
+        assertEquals(new DiskEventMetrics.Bucket(64, 0), latency.buckets().get(0));
+        assertEquals(new DiskEventMetrics.Bucket(128, 98), latency.buckets().get(1));
+        assertEquals(new DiskEventMetrics.Bucket(Long.MAX_VALUE, 100), latency.buckets().get(LatencyHistogram.BUCKET_COUNT - 1));
+        assertEquals(128, latency.quantileUpperBoundNanos(0.5));
+        assertEquals(8_192, latency.quantileUpperBoundNanos(0.99));
+        assertEquals(Long.MAX_VALUE, latency.quantileUpperBoundNanos(1.0));
+    }
+}
@@ -0,0 +1,70 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.sun.jna.Pointer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MatchDictionaryTest {
+
+    @Mock
+    private CoreFoundation cf;
+
+    @Mock
+    private DiskArbitrationKeys keys;
+
+    @Test
+    void create_withNoCriteria_returnsNull() {
+        assertNull(MatchDictionary.create(cf, keys, Map.of()));
+        verifyNoInteractions(cf);
+    }
+
+    @Test
+    void create_setsBooleanAndStringValues() {
+        Pointer match = mock(Pointer.class);
+        Pointer internalKey = mock(Pointer.class);
+        Pointer protocolKey = mock(Pointer.class);
+        Pointer falseRef = mock(Pointer.class);
+        Pointer usbString = mock(Pointer.class);
+
+        when(cf.CFDictionaryCreateMutable(any(), eq(2L), any(), any())).thenReturn(match);
+        when(keys.key(DiskField.DEVICE_INTERNAL)).thenReturn(internalKey);
+        when(keys.key(DiskField.DEVICE_PROTOCOL)).thenReturn(protocolKey);
+        when(cf.getkCFBooleanFalse()).thenReturn(falseRef);
+        when(cf.CFStringCreateWithCString(null, "USB", CoreFoundation.kCFStringEncodingUTF8)).thenReturn(usbString);
+
+        Map<DiskField, Object> criteria = new LinkedHashMap<>();
+        criteria.put(DiskField.DEVICE_INTERNAL, false);
+        criteria.put(DiskField.DEVICE_PROTOCOL, "USB");
+
+        assertSame(match, MatchDictionary.create(cf, keys, criteria));
+
+        verify(cf).CFDictionarySetValue(match, internalKey, falseRef);
+        verify(cf).CFDictionarySetValue(match, protocolKey, usbString);
+        // The dictionary retains its values, so the temporary CFString is released
+        verify(cf).CFRelease(usbString);
+        verify(cf, never()).CFRelease(match);
+    }
+
+    @Test
+    void create_skipsUnavailableKeys() {
+        Pointer match = mock(Pointer.class);
+
+        when(cf.CFDictionaryCreateMutable(any(), eq(1L), any(), any())).thenReturn(match);
+        when(keys.key(DiskField.MEDIA_REMOVABLE)).thenReturn(null);
+
+        assertSame(match, MatchDictionary.create(cf, keys, Map.of(DiskField.MEDIA_REMOVABLE, true)));
+
+        verify(cf, never()).CFDictionarySetValue(any(), any(), any());
+    }
+}
@@ -0,0 +1,58 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskEventAdapter;
+import com.selesse.jdiskarbitration.DiskEventListener;
+import com.selesse.jdiskarbitration.DiskInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsEndpointTest {
+
+    @Test
+    void get_servesPrometheusText() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.received(DiskEvent.Type.APPEARED);
+        metrics.received(DiskEvent.Type.APPEARED);
+        metrics.filtered(DiskEvent.Type.APPEARED);
+        metrics.recordMapping(100);
+        DiskEventListener listener = metrics.meter(new DiskEventAdapter() {});
+        listener.onDiskAppeared(new DiskInfo.Builder().bsdName("disk4").build());
+
+        MetricsEndpoint endpoint = MetricsEndpoint.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            () -> metrics.snapshot(3, 1, 2));
+        try {
+            URL url = new URL("http", "127.0.0.1", endpoint.address().getPort(), MetricsEndpoint.PATH);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            String body;
+            try (InputStream in = connection.getInputStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+            assertTrue(body.contains("# TYPE jdiskarbitration_events_received_total counter\n"));
+            assertTrue(body.contains("jdiskarbitration_events_received_total{type=\"appeared\"} 2\n"));
+            assertTrue(body.contains("jdiskarbitration_events_filtered_total{type=\"appeared\"} 1\n"));
+            assertTrue(body.contains("jdiskarbitration_events_delivered_total{type=\"appeared\"} 1\n"));
+            assertTrue(body.contains("jdiskarbitration_mapping_seconds_bucket{le=\"1.28E-7\"} 1\n"));
+            assertTrue(body.contains("jdiskarbitration_mapping_seconds_bucket{le=\"+Inf\"} 1\n"));
+            assertTrue(body.contains("jdiskarbitration_mapping_seconds_count 1\n"));
+            assertTrue(body.contains("jdiskarbitration_listener_seconds_count 1\n"));
+            assertTrue(body.contains("jdiskarbitration_dispatch_queue_depth 3\n"));
+            assertTrue(body.contains("jdiskarbitration_held_description_changes 1\n"));
+            assertTrue(body.contains("jdiskarbitration_events_dropped_total 2\n"));
+        } finally {
+            endpoint.stop();
+        }
+    }
+}
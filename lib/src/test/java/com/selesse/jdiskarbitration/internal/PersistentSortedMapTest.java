@@ -0,0 +1,46 @@
+package com.selesse.jdiskarbitration.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentSortedMapTest {
+
+    @Test
+    void updatesLeaveEarlierVersionsUntouched() {
+        PersistentSortedMap<String, Integer> first = PersistentSortedMap.<String, Integer>empty().with("b", 2).with("a", 1);
+        PersistentSortedMap<String, Integer> second = first.with("a", 10).with("c", 3);
+        PersistentSortedMap<String, Integer> third = second.without("b");
+
+        assertEquals(List.of(1, 2), first.values());
+        assertEquals(List.of(10, 2, 3), second.values());
+        assertEquals(List.of(10, 3), third.values());
+        assertSame(third, third.without("b"));
+        assertNull(third.get("b"));
+    }
+
+    @Test
+    void staysSortedThroughManyUpdates() {
+        PersistentSortedMap<Long, Long> map = PersistentSortedMap.empty();
+        for (long i = 0; i < 1000; i++) {
+            // Visits every key below 1000 once, out of order
+            long key = i * 7919 % 1000;
+            map = map.with(key, key);
+        }
+        for (long key = 0; key < 1000; key += 2) {
+            map = map.without(key);
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (long key = 1; key < 1000; key += 2) {
+            expected.add(key);
+        }
+        assertEquals(500, map.size());
+        assertEquals(expected, map.values());
+        assertEquals(List.of(1L, 3L, 5L), map.valuesBetween(0L, 6L));
+        assertNull(map.get(2L));
+    }
+}
@@ -0,0 +1,142 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskEventAdapter;
+import com.selesse.jdiskarbitration.DiskInfo;
+import com.selesse.jdiskarbitration.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueuedEventDispatcherTest {
+
+    private final List<String> delivered = new ArrayList<>();
+    private final ManualExecutor executor = new ManualExecutor();
+
+    private final DiskEventAdapter listener = new DiskEventAdapter() {
+        @Override
+        public void onDiskAppeared(DiskInfo diskInfo) {
+            delivered.add(Thread.currentThread().getName() + ":" + diskInfo.bsdName());
+        }
+    };
+
+    @Test
+    void dispatch_deliversInOrderOnExecutor() {
+        QueuedEventDispatcher dispatcher = new QueuedEventDispatcher(listener, executor, 10, OverflowPolicy.BLOCK);
+
+        dispatcher.dispatch(appeared("disk1"));
+        dispatcher.dispatch(appeared("disk2"));
+        dispatcher.dispatch(appeared("disk3"));
+
+        assertTrue(delivered.isEmpty());
+        assertEquals(1, executor.tasks.size(), "only one drain task should be scheduled");
+
+        executor.runAll();
+
+        assertEquals(List.of(name("disk1"), name("disk2"), name("disk3")), delivered);
+        assertEquals(0, dispatcher.queueDepth());
+    }
+
+    @Test
+    void dropNewest_discardsIncomingEventWhenFull() {
+        QueuedEventDispatcher dispatcher = new QueuedEventDispatcher(listener, executor, 2, OverflowPolicy.DROP_NEWEST);
+
+        dispatcher.dispatch(appeared("disk1"));
+        dispatcher.dispatch(appeared("disk2"));
+        dispatcher.dispatch(appeared("disk3"));
+        executor.runAll();
+
+        assertEquals(List.of(name("disk1"), name("disk2")), delivered);
+        assertEquals(1, dispatcher.droppedEvents());
+    }
+
+    @Test
+    void dropOldest_evictsHeadOfQueueWhenFull() {
+        QueuedEventDispatcher dispatcher = new QueuedEventDispatcher(listener, executor, 2, OverflowPolicy.DROP_OLDEST);
+
+        dispatcher.dispatch(appeared("disk1"));
+        dispatcher.dispatch(appeared("disk2"));
+        dispatcher.dispatch(appeared("disk3"));
+        executor.runAll();
+
+        assertEquals(List.of(name("disk2"), name("disk3")), delivered);
+        assertEquals(1, dispatcher.droppedEvents());
+    }
+
+    @Test
+    void callerRuns_deliversOnCallingThreadWhenFull() {
+        QueuedEventDispatcher dispatcher = new QueuedEventDispatcher(listener, executor, 1, OverflowPolicy.CALLER_RUNS);
+
+        dispatcher.dispatch(appeared("disk1"));
+        dispatcher.dispatch(appeared("disk2"));
+
+        assertEquals(List.of(name("disk2")), delivered);
+
+        executor.runAll();
+
+        assertEquals(List.of(name("disk2"), name("disk1")), delivered);
+        assertEquals(0, dispatcher.droppedEvents());
+    }
+
+    @Test
+    void listenerException_doesNotStopDraining() {
+        List<String> received = new ArrayList<>();
+        DiskEventAdapter throwingListener = new DiskEventAdapter() {
+            @Override
+            public void onDiskAppeared(DiskInfo diskInfo) {
+                received.add(diskInfo.bsdName());
+                if (diskInfo.bsdName().equals("disk1")) {
+                    throw new IllegalStateException("Test exception");
+                }
+            }
+        };
+        QueuedEventDispatcher dispatcher = new QueuedEventDispatcher(throwingListener, executor, 10, OverflowPolicy.BLOCK);
+
+        dispatcher.dispatch(appeared("disk1"));
+        dispatcher.dispatch(appeared("disk2"));
+        executor.runAll();
+
+        assertEquals(List.of("disk1", "disk2"), received);
+    }
+
+    @Test
+    void ownedExecutor_deliversOnDispatchThread() throws InterruptedException {
+        QueuedEventDispatcher dispatcher = new QueuedEventDispatcher(listener, null, 10, OverflowPolicy.BLOCK);
+        dispatcher.start();
+
+        dispatcher.dispatch(appeared("disk1"));
+        dispatcher.stop();
+
+        assertEquals(List.of("DiskWatcher-Dispatch:disk1"), delivered);
+    }
+
+    private String name(String bsdName) {
+        return Thread.currentThread().getName() + ":" + bsdName;
+    }
+
+    private static CapturedEvent appeared(String bsdName) {
+        return new CapturedEvent(DiskEvent.Type.APPEARED, new DiskInfo.Builder().bsdName(bsdName).build());
+    }
+
+    private static class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
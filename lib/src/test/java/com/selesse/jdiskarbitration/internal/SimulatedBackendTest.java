@@ -0,0 +1,580 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskEvent;
+import com.selesse.jdiskarbitration.DiskEventAdapter;
+import com.selesse.jdiskarbitration.DiskEventListener;
+import com.selesse.jdiskarbitration.DiskEventManager;
+import com.selesse.jdiskarbitration.DiskEventMetrics;
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.selesse.jdiskarbitration.DiskEventManagerTestSupport.backend;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatedBackendTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SimulatedBackend backend = new SimulatedBackend();
+    private final List<String> events = new ArrayList<>();
+    private final List<DiskInfo> appeared = new ArrayList<>();
+    private DiskEventManager manager;
+
+    private final DiskEventListener listener = new DiskEventListener() {
+        @Override
+        public void onDiskAppeared(DiskInfo diskInfo) {
+            events.add("appeared:" + diskInfo.bsdName());
+            appeared.add(diskInfo);
+        }
+
+        @Override
+        public void onDiskDisappeared(DiskInfo diskInfo) {
+            events.add("disappeared:" + diskInfo.bsdName());
+        }
+
+        @Override
+        public void onDiskDescriptionChanged(DiskInfo diskInfo) {
+        }
+
+        @Override
+        public void onDiskDescriptionChanged(DiskInfo diskInfo, Set<DiskField> changedFields) {
+            events.add("changed:" + diskInfo.bsdName() + changedFields);
+        }
+
+        @Override
+        public void onDiskMounted(DiskInfo diskInfo) {
+            events.add("mounted:" + diskInfo.bsdName() + "@" + diskInfo.volumeInfo().path());
+        }
+
+        @Override
+        public void onDiskUnmounted(DiskInfo diskInfo) {
+            events.add("unmounted:" + diskInfo.bsdName());
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.stop();
+        }
+    }
+
+    @Test
+    void attachAndDetach_deliversFullLifecycleThroughMapper() throws InterruptedException {
+        start(DiskEventManager.builder());
+
+        backend.attachExternalDrive(4, 1);
+        backend.detachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of(
+            "appeared:disk4",
+            "appeared:disk4s1",
+            "mounted:disk4s1@/Volumes/USB4-1",
+            "changed:disk4s1[VOLUME_PATH]",
+            "unmounted:disk4s1",
+            "changed:disk4s1[VOLUME_PATH]",
+            "disappeared:disk4s1",
+            "disappeared:disk4"), events);
+        assertEquals(SimulatedBackend.externalVolume(4, 1), appeared.get(1));
+    }
+
+    @Test
+    void start_replaysDisksAttachedBeforehand() throws InterruptedException {
+        backend.appear(SimulatedBackend.externalWholeDisk(2));
+
+        start(DiskEventManager.builder());
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("appeared:disk2"), events);
+    }
+
+    @Test
+    void start_completesWithAttachedDisks_deliveredAsOneSnapshot() throws Exception {
+        backend.appear(SimulatedBackend.externalWholeDisk(2));
+        backend.appear(SimulatedBackend.externalVolume(2, 1));
+        backend.appear(new DiskInfo.Builder().bsdName("disk0").deviceProtocol("Apple Fabric").isInternal(true).build());
+        List<List<String>> snapshots = new ArrayList<>();
+        manager = backend(DiskEventManager.builder(), backend).usbOnly().listener(new DiskEventAdapter() {
+            @Override
+            public void onInitialSnapshot(List<DiskInfo> disks) {
+                snapshots.add(disks.stream().map(DiskInfo::bsdName).toList());
+            }
+
+            @Override
+            public void onDiskAppeared(DiskInfo diskInfo) {
+                events.add("appeared:" + diskInfo.bsdName());
+            }
+        }).build();
+
+        List<DiskInfo> attached = manager.start().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        backend.attachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("disk2", "disk2s1"), attached.stream().map(DiskInfo::bsdName).toList());
+        assertEquals(List.of(List.of("disk2", "disk2s1")), snapshots);
+        assertEquals(List.of("appeared:disk4", "appeared:disk4s1"), events);
+    }
+
+    @Test
+    void externalOnly_passesVolumesWithoutADevice() throws InterruptedException {
+        DiskInfo.VolumeInfo share = new DiskInfo.VolumeInfo("/Volumes/share", "share", "smbfs", null, true, true, null);
+        start(DiskEventManager.builder().externalOnly());
+
+        backend.appear(new DiskInfo("disk9", share, null, null, null));
+        backend.appear(new DiskInfo.Builder().bsdName("disk0").isInternal(true).build());
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("appeared:disk9"), events);
+    }
+
+    @Test
+    void declaredFilters_rejectDisksBeforeTheirOtherFieldsAreRead() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk0").volumeName("Macintosh HD")
+            .deviceProtocol("Apple Fabric").isInternal(true).build());
+        List<DiskInfo> seen = new ArrayList<>();
+        List<String> undeclared = new ArrayList<>();
+        start(DiskEventManager.builder()
+            .filter(info -> {
+                undeclared.add(info.bsdName());
+                return true;
+            })
+            .filter(info -> {
+                seen.add(info);
+                return info.isUSB();
+            }, DiskField.DEVICE_PROTOCOL));
+
+        backend.appear(SimulatedBackend.externalVolume(4, 1));
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        DiskInfo internal = seen.get(0);
+        assertEquals("disk0", internal.bsdName());
+        assertNull(internal.volumeInfo().name());
+        assertEquals(List.of("disk4s1"), undeclared);
+        assertEquals(List.of("appeared:disk4s1"), events);
+        assertEquals(SimulatedBackend.externalVolume(4, 1), appeared.get(0));
+    }
+
+    @Test
+    void mountListener_mapsOnlyWhatMountTrackingNeeds() throws InterruptedException {
+        List<String> mounts = new ArrayList<>();
+        manager = backend(DiskEventManager.builder(), backend).metrics().listener(new DiskEventAdapter() {
+            @Override
+            public void onDiskMounted(DiskInfo diskInfo) {
+                mounts.add("mounted:" + diskInfo.bsdName());
+            }
+
+            @Override
+            public void onDiskUnmounted(DiskInfo diskInfo) {
+                mounts.add("unmounted:" + diskInfo.bsdName());
+            }
+        }).build();
+        manager.start();
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        backend.attachExternalDrive(4, 1);
+        // Still mounted, so its disappearance reports the unmount, from the DiskInfo kept when it was
+        // mounted; the whole disk's is not mapped at all
+        backend.disappear("disk4s1");
+        backend.disappear("disk4");
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        DiskEventMetrics metrics = manager.metrics();
+
+        assertEquals(List.of("mounted:disk4s1", "unmounted:disk4s1"), mounts);
+        assertEquals(2L, metrics.received().get(DiskEvent.Type.APPEARED));
+        assertEquals(2L, metrics.received().get(DiskEvent.Type.DISAPPEARED));
+        assertEquals(1, metrics.mapping().count());
+    }
+
+    @Test
+    void eventTypes_leaveDescriptionChangesUnregistered() throws InterruptedException {
+        start(DiskEventManager.builder().metrics().eventTypes(DiskEvent.Type.APPEARED));
+
+        backend.attachExternalDrive(4, 1);
+        backend.detachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("appeared:disk4", "appeared:disk4s1"), events);
+        assertEquals(0L, manager.metrics().received().getOrDefault(DiskEvent.Type.DESCRIPTION_CHANGED, 0L));
+    }
+
+    @Test
+    void watchFields_leavesChangesToOtherKeysInDiskArbitration() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk4").volumeName("Old").mediaIcon("a.icns").build());
+        start(DiskEventManager.builder().metrics().watchFields(DiskField.VOLUME_NAME));
+
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4").volumeName("Old").mediaIcon("b.icns").build());
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4").volumeName("New").mediaIcon("b.icns").build());
+        backend.mount("disk4", "/Volumes/New");
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("appeared:disk4", "changed:disk4[VOLUME_NAME]", "mounted:disk4@/Volumes/New",
+            "changed:disk4[VOLUME_PATH]"), events);
+        assertEquals(2L, manager.metrics().received().get(DiskEvent.Type.DESCRIPTION_CHANGED));
+    }
+
+    @Test
+    void descriptionChange_leavingProjectedFieldsUnchanged_isSuppressed() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk4").volumeName("Old").mediaIcon("a.icns").build());
+        start(DiskEventManager.builder().metrics().fields(DiskField.VOLUME_NAME));
+
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4").volumeName("Old").mediaIcon("b.icns").build());
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4").volumeName("New").mediaIcon("b.icns").build());
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        DiskEventMetrics metrics = manager.metrics();
+
+        assertEquals(List.of("appeared:disk4", "changed:disk4[VOLUME_NAME]"), events);
+        assertEquals(2L, metrics.received().get(DiskEvent.Type.DESCRIPTION_CHANGED));
+        assertEquals(1L, metrics.suppressedChanges());
+    }
+
+    @Test
+    void disappearance_isHandledFromTheVerdictAndDiskInfoKeptAtAppearance() throws InterruptedException {
+        List<String> filtered = new ArrayList<>();
+        start(DiskEventManager.builder().metrics().filter(info -> {
+            filtered.add(info.bsdName());
+            return info.isUSB();
+        }, DiskField.DEVICE_PROTOCOL));
+        backend.appear(new DiskInfo.Builder().bsdName("disk2").deviceProtocol("Apple Fabric").build());
+        backend.attachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        long mapped = manager.metrics().mapping().count();
+        filtered.clear();
+
+        backend.detachExternalDrive(4, 1);
+        backend.disappear("disk2");
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        DiskEventMetrics metrics = manager.metrics();
+
+        assertEquals(List.of("appeared:disk4", "appeared:disk4s1", "mounted:disk4s1@/Volumes/USB4-1",
+            "changed:disk4s1[VOLUME_PATH]", "unmounted:disk4s1", "changed:disk4s1[VOLUME_PATH]",
+            "disappeared:disk4s1", "disappeared:disk4"), events);
+        // Only the unmount is mapped; it leaves the protocol, and so the verdict, as it was
+        assertEquals(mapped + 1, metrics.mapping().count());
+        assertEquals(List.of(), filtered);
+        assertEquals(1L, metrics.filtered().get(DiskEvent.Type.DISAPPEARED));
+    }
+
+    @Test
+    void lazyDiskInfo_decodesRejectedDisksOnlyAsFarAsTheFiltersDeclared() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk0").volumeName("Macintosh HD")
+            .deviceProtocol("Apple Fabric").isInternal(true).build());
+        List<DiskInfo> seen = new ArrayList<>();
+        start(DiskEventManager.builder().lazyDiskInfo().filter(info -> {
+            seen.add(info);
+            return info.isUSB();
+        }, DiskField.DEVICE_PROTOCOL));
+
+        backend.appear(SimulatedBackend.externalVolume(4, 1));
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        DiskInfo internal = seen.get(0);
+        assertEquals("disk0", internal.bsdName());
+        assertEquals("Apple Fabric", internal.deviceInfo().protocol());
+        assertNull(internal.volumeInfo().name());
+        // Delivered disks are decoded in full before their description is released
+        assertEquals(List.of("appeared:disk4s1"), events);
+        assertEquals(SimulatedBackend.externalVolume(4, 1), appeared.get(0));
+    }
+
+    @Test
+    void lazyDiskInfo_suppressesChangesLeavingProjectedFieldsUnchanged() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk4").volumeName("Old").mediaIcon("a.icns").build());
+        start(DiskEventManager.builder().lazyDiskInfo().fields(DiskField.VOLUME_NAME));
+
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4").volumeName("Old").mediaIcon("b.icns").build());
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4").volumeName("New").mediaIcon("b.icns").build());
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("appeared:disk4", "changed:disk4[VOLUME_NAME]"), events);
+    }
+
+    @Test
+    void reusedBsdName_rejectedOnReappearance_isTrackedOnceItPassesTheFilters() throws InterruptedException {
+        start(DiskEventManager.builder().volumeKind("exfat"));
+
+        backend.appear(new DiskInfo.Builder().bsdName("disk4s1").volumeKind("exfat").build());
+        backend.disappear("disk4s1");
+        backend.appear(new DiskInfo.Builder().bsdName("disk4s1").volumeKind("msdos").build());
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4s1").volumeKind("exfat").build());
+        backend.mount("disk4s1", "/Volumes/USB");
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("appeared:disk4s1", "disappeared:disk4s1", "changed:disk4s1[VOLUME_KIND]",
+            "mounted:disk4s1@/Volumes/USB", "changed:disk4s1[VOLUME_PATH]"), events);
+    }
+
+    @Test
+    void reusedBsdName_afterRejectedCachedDisappearance_appearsAgain() throws InterruptedException {
+        start(DiskEventManager.builder().filter(disk -> "exfat".equals(disk.volumeInfo().kind())));
+        appearRejectDisappearAndAppearAgain();
+
+        assertEquals(List.of("appeared:disk4s1", "appeared:disk4s1"), events);
+    }
+
+    @Test
+    void reusedBsdName_afterRejectedMappedDisappearance_appearsAgain() throws InterruptedException {
+        // Lazy DiskInfo keeps no verdicts, so the disappearance is mapped and filtered again
+        start(DiskEventManager.builder().lazyDiskInfo().filter(disk -> "exfat".equals(disk.volumeInfo().kind())));
+        appearRejectDisappearAndAppearAgain();
+
+        assertEquals(List.of("appeared:disk4s1", "appeared:disk4s1"), events);
+    }
+
+    private void appearRejectDisappearAndAppearAgain() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk4s1").volumeKind("exfat").build());
+        backend.changeDescription(new DiskInfo.Builder().bsdName("disk4s1").volumeKind("msdos").build());
+        backend.disappear("disk4s1");
+        backend.appear(new DiskInfo.Builder().bsdName("disk4s1").volumeKind("exfat").build());
+        assertTrue(backend.awaitIdle(TIMEOUT));
+    }
+
+    @Test
+    void nativeMatch_filtersInSimulatedDiskArbitration() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk0").deviceProtocol("Apple Fabric").isInternal(true).build());
+        start(DiskEventManager.builder().usbOnly());
+
+        backend.attachExternalDrive(5, 2);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals(List.of("appeared:disk5", "appeared:disk5s1", "appeared:disk5s2"), events.subList(0, 3));
+        assertTrue(events.stream().noneMatch(event -> event.contains("disk0")));
+    }
+
+    @Test
+    void metrics_countEachStageOfThePipeline() throws InterruptedException {
+        backend.appear(new DiskInfo.Builder().bsdName("disk0").deviceProtocol("Apple Fabric").isInternal(true).build());
+        start(DiskEventManager.builder().metrics().filter(DiskInfo::isUSB));
+
+        backend.attachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        DiskEventMetrics metrics = manager.metrics();
+
+        assertEquals(3L, metrics.received().get(DiskEvent.Type.APPEARED));
+        assertEquals(1L, metrics.filtered().get(DiskEvent.Type.APPEARED));
+        assertEquals(2L, metrics.delivered().get(DiskEvent.Type.APPEARED));
+        assertEquals(1L, metrics.received().get(DiskEvent.Type.DESCRIPTION_CHANGED));
+        assertEquals(1L, metrics.delivered().get(DiskEvent.Type.MOUNTED));
+        assertEquals(4, metrics.mapping().count());
+        assertEquals(4, metrics.filtering().count());
+        assertEquals(4, metrics.listener().count());
+        assertTrue(metrics.runLoopBusyNanos() > 0);
+        assertEquals(0, metrics.dispatchQueueDepth());
+    }
+
+    @Test
+    void metrics_areNotCollectedUnlessEnabled() throws InterruptedException {
+        start(DiskEventManager.builder());
+
+        backend.attachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        assertEquals("appeared:disk4", events.get(0));
+        assertThrows(IllegalStateException.class, manager::metrics);
+    }
+
+    @Test
+    void stop_releasesEverySimulatedObject() throws InterruptedException {
+        int baseline = backend.liveObjectCount();
+        start(DiskEventManager.builder().lazyDiskInfo().externalOnly());
+
+        backend.attachExternalDrive(6, 3);
+        backend.detachExternalDrive(6, 3);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        manager.stop();
+        manager = null;
+
+        // Only the run loop and its mode, key constants and CFBundleIdentifier key outlive the session
+        assertTrue(backend.liveObjectCount() - baseline <= 3,
+            "leaked " + (backend.liveObjectCount() - baseline) + " objects");
+    }
+
+    @Test
+    void mappingExecutor_handsOutEventsInCallbackOrder() throws InterruptedException {
+        List<Runnable> mappings = Collections.synchronizedList(new ArrayList<>());
+        start(DiskEventManager.builder().mappingExecutor(mappings::add));
+
+        backend.attachExternalDrive(4, 1);
+        backend.detachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        // Map the latest disk first, so hand-outs wait for the disks submitted before them
+        while (!mappings.isEmpty()) {
+            mappings.remove(mappings.size() - 1).run();
+            assertTrue(backend.awaitIdle(TIMEOUT));
+        }
+
+        assertEquals(List.of(
+            "appeared:disk4",
+            "appeared:disk4s1",
+            "mounted:disk4s1@/Volumes/USB4-1",
+            "changed:disk4s1[VOLUME_PATH]",
+            "unmounted:disk4s1",
+            "changed:disk4s1[VOLUME_PATH]",
+            "disappeared:disk4s1",
+            "disappeared:disk4"), events);
+    }
+
+    @Test
+    void mappingExecutor_releasesEveryRetainedDisk() throws InterruptedException {
+        int baseline = backend.liveObjectCount();
+        start(DiskEventManager.builder().lazyDiskInfo().mappingExecutor(2));
+
+        backend.attachExternalDrive(6, 3);
+        backend.detachExternalDrive(6, 3);
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!events.contains("disappeared:disk6") && System.nanoTime() < deadline) {
+            assertTrue(backend.awaitIdle(TIMEOUT));
+        }
+        manager.stop();
+        manager = null;
+
+        assertTrue(events.contains("disappeared:disk6"));
+        assertTrue(backend.liveObjectCount() - baseline <= 3,
+            "leaked " + (backend.liveObjectCount() - baseline) + " objects");
+    }
+
+    @Test
+    void mappingExecutor_keepsHandingOutEventsAfterAnErrorWhileMapping() throws InterruptedException {
+        int baseline = backend.liveObjectCount();
+        start(DiskEventManager.builder().mappingExecutor(2).filter(disk -> {
+            if ("disk6s1".equals(disk.bsdName())) {
+                throw new AssertionError("boom");
+            }
+            return true;
+        }, DiskField.MEDIA_BSD_NAME));
+
+        backend.appear(SimulatedBackend.externalVolume(6, 1));
+        backend.appear(SimulatedBackend.externalVolume(6, 2));
+        backend.disappear("disk6s1");
+        backend.disappear("disk6s2");
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!events.contains("disappeared:disk6s2") && System.nanoTime() < deadline) {
+            assertTrue(backend.awaitIdle(TIMEOUT));
+        }
+        manager.stop();
+        manager = null;
+
+        assertEquals(List.of("appeared:disk6s2", "disappeared:disk6s2"), events);
+        assertTrue(backend.liveObjectCount() - baseline <= 3,
+            "leaked " + (backend.liveObjectCount() - baseline) + " objects");
+    }
+
+    @Test
+    void sharedSession_mapsEachDiskOnceForEveryManager() throws InterruptedException {
+        List<String> wholeDisks = new ArrayList<>();
+        start(DiskEventManager.builder().sharedSession().usbOnly());
+        DiskEventManager other = startShared(wholeDisks, DiskEventManager.builder().metrics().filter(disk -> disk.mediaInfo().isWholeDisk()));
+        try {
+            backend.attachExternalDrive(4, 1);
+            assertTrue(backend.awaitIdle(TIMEOUT));
+
+            assertEquals(1, backend.sessionCount());
+            assertEquals(List.of("appeared:disk4", "appeared:disk4s1", "mounted:disk4s1@/Volumes/USB4-1",
+                "changed:disk4s1[VOLUME_PATH]"), events);
+            assertEquals(List.of("appeared:disk4"), wholeDisks);
+            assertEquals(3, other.metrics().mapping().count());
+        } finally {
+            other.stop();
+        }
+    }
+
+    @Test
+    void sharedSession_replaysAttachedDisksToLateManager() throws InterruptedException {
+        List<String> lateEvents = new ArrayList<>();
+        start(DiskEventManager.builder().sharedSession());
+        backend.attachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+
+        DiskEventManager late = startShared(lateEvents, DiskEventManager.builder());
+        try {
+            backend.detachExternalDrive(4, 1);
+            assertTrue(backend.awaitIdle(TIMEOUT));
+
+            assertEquals(1, backend.sessionCount());
+            assertEquals(List.of("appeared:disk4", "appeared:disk4s1", "changed:disk4s1[VOLUME_PATH]",
+                "disappeared:disk4s1", "disappeared:disk4"), lateEvents);
+        } finally {
+            late.stop();
+        }
+    }
+
+    @Test
+    void sharedSession_isReleasedWithItsLastManager() throws InterruptedException {
+        List<String> otherEvents = new ArrayList<>();
+        start(DiskEventManager.builder().sharedSession());
+        DiskEventManager other = startShared(otherEvents, DiskEventManager.builder());
+
+        manager.stop();
+        manager = null;
+        backend.attachExternalDrive(4, 1);
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        assertEquals(1, backend.sessionCount());
+        assertTrue(events.isEmpty());
+        assertEquals(List.of("appeared:disk4", "appeared:disk4s1"), otherEvents.subList(0, 2));
+
+        other.stop();
+        assertEquals(0, backend.sessionCount());
+
+        start(DiskEventManager.builder().sharedSession());
+        assertEquals(1, backend.sessionCount());
+        assertEquals(List.of("appeared:disk4", "appeared:disk4s1"), events);
+    }
+
+    /**
+     * Starts a manager sharing the backend's session, recording its appearances, disappearances
+     * and description changes.
+     */
+    private DiskEventManager startShared(List<String> recorded, DiskEventManager.Builder builder)
+            throws InterruptedException {
+        DiskEventManager started = backend(builder, backend).sharedSession().listener(new DiskEventListener() {
+            @Override
+            public void onDiskAppeared(DiskInfo diskInfo) {
+                recorded.add("appeared:" + diskInfo.bsdName());
+            }
+
+            @Override
+            public void onDiskDisappeared(DiskInfo diskInfo) {
+                recorded.add("disappeared:" + diskInfo.bsdName());
+            }
+
+            @Override
+            public void onDiskDescriptionChanged(DiskInfo diskInfo) {
+            }
+
+            @Override
+            public void onDiskDescriptionChanged(DiskInfo diskInfo, Set<DiskField> changedFields) {
+                recorded.add("changed:" + diskInfo.bsdName() + changedFields);
+            }
+
+            @Override
+            public void onDiskMounted(DiskInfo diskInfo) {
+            }
+
+            @Override
+            public void onDiskUnmounted(DiskInfo diskInfo) {
+            }
+        }).build();
+        started.start();
+        assertTrue(backend.awaitIdle(TIMEOUT));
+        return started;
+    }
+
+    /**
+     * Starts a manager and waits for its session to be scheduled, so events scripted next are
+     * delivered as they happen rather than folded into the replay of attached disks.
+     */
+    private void start(DiskEventManager.Builder builder) throws InterruptedException {
+        manager = backend(builder, backend).listener(listener).build();
+        manager.start();
+        assertTrue(backend.awaitIdle(TIMEOUT));
+    }
+}
@@ -0,0 +1,22 @@
+package com.selesse.jdiskarbitration;
+
+import com.selesse.jdiskarbitration.internal.NativeBackend;
+
+/**
+ * Access to the package-private hooks of {@link DiskEventManager}, for tests and benchmarks.
+ */
+public final class DiskEventManagerTestSupport {
+
+    private DiskEventManagerTestSupport() {
+    }
+
+    /**
+     * Makes the manager run on the given backend, such as a
+     * {@link com.selesse.jdiskarbitration.internal.SimulatedBackend}, instead of the macOS frameworks.
+     *
+     * @return the builder
+     */
+    public static DiskEventManager.Builder backend(DiskEventManager.Builder builder, NativeBackend backend) {
+        return builder.backend(backend);
+    }
+}
@@ -0,0 +1,415 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.selesse.jdiskarbitration.DiskField;
+import com.selesse.jdiskarbitration.DiskInfo;
+import com.sun.jna.Pointer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scriptable in-memory stand-in for DiskArbitration, for running and load-testing the whole event
+ * pipeline off a Mac.
+ *
+ * <p>Disks are attached, changed and detached by calling this class from any thread. Their
+ * descriptions are built from {@link DiskInfo} values, encoded with the CoreFoundation types
+ * DiskArbitration uses, and decoded again by the regular mapper. Events reach the watcher through
+ * its own run loop, in the order they were scripted:
+ * <pre>
+ * SimulatedBackend backend = new SimulatedBackend();
+ * DiskEventManager manager = DiskEventManagerTestSupport.backend(DiskEventManager.builder(), backend)
+ *     .listener(listener)
+ *     .build();
+ * manager.start();
+ *
+ * backend.attachExternalDrive(4, 2);
+ * backend.awaitIdle(Duration.ofSeconds(1));
+ * </pre>
+ */
+public final class SimulatedBackend extends NativeBackend {
+    private static final String ICON_BUNDLE_IDENTIFIER_KEY = "CFBundleIdentifier";
+
+    private final SimulatedCoreFoundation cf = new SimulatedCoreFoundation();
+    private final SimulatedDiskArbitration da = new SimulatedDiskArbitration(cf);
+    private final Map<String, Pointer> keysByName = new HashMap<>();
+    private final DiskArbitrationKeys keys = new DiskArbitrationKeys(this::key);
+    private final Map<String, Map<DiskField, Object>> attached = new HashMap<>();
+
+    public SimulatedBackend() {
+        // Like the framework's exported constants, every key exists before anything resolves it
+        for (DiskField field : DiskField.values()) {
+            key(field.descriptionKey());
+        }
+        key(DiskArbitrationKeys.APPEARANCE_TIME_SYMBOL);
+    }
+
+    @Override
+    DiskArbitration diskArbitration() {
+        return da;
+    }
+
+    @Override
+    CoreFoundation coreFoundation() {
+        return cf;
+    }
+
+    @Override
+    DiskArbitrationKeys keys() {
+        return keys;
+    }
+
+    /**
+     * Attaches a disk with the given description.
+     *
+     * @throws IllegalStateException if a disk with the same BSD name is attached
+     */
+    public synchronized void appear(DiskInfo disk) {
+        Map<DiskField, Object> values = values(disk);
+        if (attached.containsKey(disk.bsdName())) {
+            throw new IllegalStateException(disk.bsdName() + " is already attached");
+        }
+        da.appear(disk.bsdName(), description(values));
+        attached.put(disk.bsdName(), values);
+    }
+
+    /**
+     * Replaces the description of an attached disk, reporting the keys whose values differ.
+     * Nothing is reported if the description is unchanged.
+     *
+     * @throws IllegalStateException if the disk is not attached
+     */
+    public synchronized void changeDescription(DiskInfo disk) {
+        change(disk.bsdName(), values(disk));
+    }
+
+    /**
+     * Mounts an attached disk at the given path.
+     */
+    public synchronized void mount(String bsdName, String volumePath) {
+        Map<DiskField, Object> values = new EnumMap<>(current(bsdName));
+        values.put(DiskField.VOLUME_PATH, volumePath);
+        change(bsdName, values);
+    }
+
+    /**
+     * Unmounts an attached disk.
+     */
+    public synchronized void unmount(String bsdName) {
+        Map<DiskField, Object> values = new EnumMap<>(current(bsdName));
+        values.remove(DiskField.VOLUME_PATH);
+        change(bsdName, values);
+    }
+
+    /**
+     * Detaches a disk.
+     *
+     * @throws IllegalStateException if the disk is not attached
+     */
+    public synchronized void disappear(String bsdName) {
+        current(bsdName);
+        da.disappear(bsdName);
+        attached.remove(bsdName);
+    }
+
+    /**
+     * Plugs in an external USB drive: the whole disk and each partition appear, then each partition
+     * is mounted under {@code /Volumes}, as DiskArbitration reports it.
+     *
+     * @param unit       the BSD unit of the drive, as in {@code disk4}
+     * @param partitions the number of partitions, at least 1
+     */
+    public synchronized void attachExternalDrive(int unit, int partitions) {
+        appear(externalWholeDisk(unit));
+        for (int partition = 1; partition <= partitions; partition++) {
+            appear(externalVolume(unit, partition));
+        }
+        for (int partition = 1; partition <= partitions; partition++) {
+            DiskInfo volume = externalVolume(unit, partition);
+            mount(volume.bsdName(), "/Volumes/" + volume.volumeInfo().name());
+        }
+    }
+
+    /**
+     * Ejects a drive attached by {@link #attachExternalDrive(int, int)}: each partition is unmounted
+     * and disappears, then the whole disk disappears.
+     */
+    public synchronized void detachExternalDrive(int unit, int partitions) {
+        for (int partition = 1; partition <= partitions; partition++) {
+            String bsdName = "disk" + unit + "s" + partition;
+            if (current(bsdName).containsKey(DiskField.VOLUME_PATH)) {
+                unmount(bsdName);
+            }
+            disappear(bsdName);
+        }
+        disappear("disk" + unit);
+    }
+
+    /**
+     * Waits until a watcher is running on this backend, then until the running watchers have handled
+     * every event scripted so far.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        return da.awaitIdle(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the description of an unmounted partition of an external USB flash drive.
+     */
+    public static DiskInfo externalVolume(int unit, int partition) {
+        String bsdName = "disk" + unit + "s" + partition;
+        return new DiskInfo.Builder()
+            .bsdName(bsdName)
+            .volumeName("USB" + unit + "-" + partition)
+            .volumeKind("msdos")
+            .volumeUUID(uuid(unit, partition))
+            .volumeMountable(true)
+            .volumeNetwork(false)
+            .volumeType("MS-DOS (FAT32)")
+            .deviceProtocol("USB")
+            .deviceModel("Ultra Fit")
+            .deviceVendor("SanDisk")
+            .deviceRevision("1.00")
+            .deviceUnit((long) unit)
+            .isInternal(false)
+            .deviceGuid(uuid(unit, 0xFF))
+            .devicePath(devicePath(unit))
+            .deviceTdmLocked(false)
+            .isRemovable(true)
+            .mediaSize(8_000_000_000L)
+            .mediaBlockSize(512L)
+            .isWritable(true)
+            .isWholeDisk(false)
+            .isEjectable(true)
+            .isLeaf(true)
+            .mediaContent("EBD0A0A2-B9E5-4433-87C0-68B6B72699C7")
+            .mediaUUID(uuid(unit, 0x100 + partition))
+            .mediaBsdMajor(1)
+            .mediaBsdMinor(unit * 16 + partition)
+            .mediaBsdName(bsdName)
+            .mediaBsdUnit(unit)
+            .mediaIcon("com.apple.iokit.IOStorageFamily")
+            .mediaKind("IOMedia")
+            .mediaName("Untitled " + partition)
+            .mediaPath(devicePath(unit) + "/IOMedia@" + partition)
+            .mediaEncrypted(false)
+            .busName("/")
+            .busPath("IODeviceTree:/arm-io@10F00000")
+            .build();
+    }
+
+    /**
+     * Returns the description of the whole disk of an external USB flash drive.
+     */
+    public static DiskInfo externalWholeDisk(int unit) {
+        String bsdName = "disk" + unit;
+        return new DiskInfo.Builder()
+            .bsdName(bsdName)
+            .deviceProtocol("USB")
+            .deviceModel("Ultra Fit")
+            .deviceVendor("SanDisk")
+            .deviceRevision("1.00")
+            .deviceUnit((long) unit)
+            .isInternal(false)
+            .deviceGuid(uuid(unit, 0xFF))
+            .devicePath(devicePath(unit))
+            .deviceTdmLocked(false)
+            .isRemovable(true)
+            .mediaSize(16_008_609_792L)
+            .mediaBlockSize(512L)
+            .isWritable(true)
+            .isWholeDisk(true)
+            .isEjectable(true)
+            .isLeaf(false)
+            .mediaContent("GUID_partition_scheme")
+            .mediaBsdMajor(1)
+            .mediaBsdMinor(unit * 16)
+            .mediaBsdName(bsdName)
+            .mediaBsdUnit(unit)
+            .mediaIcon("com.apple.iokit.IOStorageFamily")
+            .mediaKind("IOMedia")
+            .mediaName("SanDisk Ultra Fit Media")
+            .mediaPath(devicePath(unit))
+            .mediaEncrypted(false)
+            .busName("/")
+            .busPath("IODeviceTree:/arm-io@10F00000")
+            .build();
+    }
+
+    /**
+     * Returns a new DADisk for an attached disk, for driving the mapper directly. The caller must
+     * release it with {@code CFRelease}.
+     */
+    Pointer copyDisk(String bsdName) {
+        return da.copyDisk(bsdName);
+    }
+
+    /**
+     * Makes {@code CFStringGetCStringPtr} return null, as CoreFoundation does for strings it does not
+     * store as contiguous UTF-8, so readers take their copying path.
+     */
+    void disableCStringPointers() {
+        cf.disableCStringPointers();
+    }
+
+    /**
+     * Returns the number of simulated CoreFoundation objects not yet released, to check for leaks.
+     */
+    int liveObjectCount() {
+        return cf.liveObjectCount();
+    }
+
+    /**
+     * Returns the number of DiskArbitration sessions created and not yet released.
+     */
+    int sessionCount() {
+        return da.sessionCount();
+    }
+
+    private static String uuid(int unit, int index) {
+        return String.format("%08X-0000-4000-8000-%012X", unit, index);
+    }
+
+    private static String devicePath(int unit) {
+        return "IODeviceTree:/arm-io@10F00000/usb-drd1@2280000/usb-drd1-port-ss@0" + unit + "100000";
+    }
+
+    private Map<DiskField, Object> current(String bsdName) {
+        Map<DiskField, Object> values = attached.get(bsdName);
+        if (values == null) {
+            throw new IllegalStateException(bsdName + " is not attached");
+        }
+        return values;
+    }
+
+    private void change(String bsdName, Map<DiskField, Object> values) {
+        Map<DiskField, Object> previous = current(bsdName);
+        List<Pointer> changedKeys = new ArrayList<>();
+        for (DiskField field : DiskField.values()) {
+            if (!Objects.equals(previous.get(field), values.get(field))) {
+                changedKeys.add(keys.key(field));
+            }
+        }
+        if (changedKeys.isEmpty()) {
+            return;
+        }
+        da.changeDescription(bsdName, description(values), changedKeys);
+        attached.put(bsdName, values);
+    }
+
+    /**
+     * Resolves a key symbol to a constant CFString. Its contents are the symbol name, which is
+     * enough for keys that are only ever compared with each other.
+     */
+    private synchronized Pointer key(String symbolName) {
+        return keysByName.computeIfAbsent(symbolName, cf::constantString);
+    }
+
+    /**
+     * Encodes description values with the CoreFoundation types DiskArbitration uses for each key.
+     */
+    private Pointer description(Map<DiskField, Object> values) {
+        Map<Pointer, Pointer> contents = new LinkedHashMap<>();
+        for (Map.Entry<DiskField, Object> entry : values.entrySet()) {
+            contents.put(keys.key(entry.getKey()), encode(entry.getKey(), entry.getValue()));
+        }
+        return cf.dictionary(contents);
+    }
+
+    private Pointer encode(DiskField field, Object value) {
+        return switch (field) {
+            case VOLUME_PATH -> cf.url((String) value);
+            case VOLUME_UUID, DEVICE_GUID, MEDIA_UUID -> cf.uuid((String) value);
+            case MEDIA_ICON -> cf.dictionary(Map.of(cf.string(ICON_BUNDLE_IDENTIFIER_KEY), cf.string((String) value)));
+            default -> {
+                if (value instanceof Boolean booleanValue) {
+                    yield cf.bool(booleanValue);
+                } else if (value instanceof Number number) {
+                    yield cf.number(number.longValue());
+                }
+                yield cf.string((String) value);
+            }
+        };
+    }
+
+    /**
+     * Returns the value of every field present in the DiskInfo, keyed by field.
+     */
+    private static Map<DiskField, Object> values(DiskInfo disk) {
+        Map<DiskField, Object> values = new EnumMap<>(DiskField.class);
+        for (DiskField field : DiskField.values()) {
+            // A missing record, such as the device of a network volume, has none of its keys
+            Object value = record(disk, field.group()) == null ? null : value(disk, field);
+            if (value != null) {
+                values.put(field, value);
+            }
+        }
+        // Every description carries the BSD name
+        values.putIfAbsent(DiskField.MEDIA_BSD_NAME, disk.bsdName());
+        return values;
+    }
+
+    private static Object record(DiskInfo disk, DiskField.Group group) {
+        return switch (group) {
+            case VOLUME -> disk.volumeInfo();
+            case DEVICE -> disk.deviceInfo();
+            case MEDIA -> disk.mediaInfo();
+            case BUS -> disk.busInfo();
+        };
+    }
+
+    private static Object value(DiskInfo disk, DiskField field) {
+        DiskInfo.VolumeInfo volume = disk.volumeInfo();
+        DiskInfo.DeviceInfo device = disk.deviceInfo();
+        DiskInfo.MediaInfo media = disk.mediaInfo();
+        DiskInfo.BusInfo bus = disk.busInfo();
+        return switch (field) {
+            case VOLUME_PATH -> volume.path();
+            case VOLUME_NAME -> volume.name();
+            case VOLUME_KIND -> volume.kind();
+            case VOLUME_UUID -> volume.uuid();
+            case VOLUME_MOUNTABLE -> volume.mountable();
+            case VOLUME_NETWORK -> volume.network();
+            case VOLUME_TYPE -> volume.type();
+            case DEVICE_PROTOCOL -> device.protocol();
+            case DEVICE_MODEL -> device.model();
+            case DEVICE_VENDOR -> device.vendor();
+            case DEVICE_REVISION -> device.revision();
+            case DEVICE_UNIT -> device.unit();
+            case DEVICE_INTERNAL -> device.isInternal();
+            case DEVICE_GUID -> device.guid();
+            case DEVICE_PATH -> device.path();
+            case DEVICE_TDM_LOCKED -> device.tdmLocked();
+            case MEDIA_REMOVABLE -> media.isRemovable();
+            case MEDIA_SIZE -> media.mediaSize();
+            case MEDIA_BLOCK_SIZE -> media.mediaBlockSize();
+            case MEDIA_WRITABLE -> media.isWritable();
+            case MEDIA_WHOLE -> media.isWholeDisk();
+            case MEDIA_EJECTABLE -> media.isEjectable();
+            case MEDIA_LEAF -> media.isLeaf();
+            case MEDIA_TYPE -> media.mediaType();
+            case MEDIA_CONTENT -> media.mediaContent();
+            case MEDIA_UUID -> media.mediaUUID();
+            case MEDIA_BSD_MAJOR -> media.bsdMajor();
+            case MEDIA_BSD_MINOR -> media.bsdMinor();
+            case MEDIA_BSD_NAME -> media.bsdName();
+            case MEDIA_BSD_UNIT -> media.bsdUnit();
+            case MEDIA_ICON -> media.icon();
+            case MEDIA_KIND -> media.kind();
+            case MEDIA_NAME -> media.name();
+            case MEDIA_PATH -> media.path();
+            case MEDIA_ENCRYPTED -> media.encrypted();
+            case MEDIA_ENCRYPTION_DETAIL -> media.encryptionDetail();
+            case BUS_NAME -> bus.name();
+            case BUS_PATH -> bus.path();
+        };
+    }
+}
@@ -0,0 +1,696 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CoreFoundation implemented in Java, for {@link SimulatedBackend}.
+ *
+ * <p>Every object is a Java instance registered under a made-up address, and handed out as a
+ * {@link Pointer} to that address. Such pointers are never dereferenced: each call looks its
+ * arguments up by address. Out-parameters and C strings are real native memory, so the JNA code
+ * that reads them behaves as it does on macOS. Objects are reference counted like their native
+ * counterparts, and leave the registry when their count drops to zero.
+ *
+ * <p>Run loops process tasks posted from other threads, fire timers, and notify observers before
+ * waiting and on exit, which is all of the run-loop behaviour the watcher depends on.
+ */
+class SimulatedCoreFoundation implements CoreFoundation {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulatedCoreFoundation.class);
+
+    static final long STRING_TYPE_ID = 7;
+    static final long NUMBER_TYPE_ID = 22;
+    static final long BOOLEAN_TYPE_ID = 21;
+    static final long DICTIONARY_TYPE_ID = 18;
+    static final long ARRAY_TYPE_ID = 19;
+    static final long DATA_TYPE_ID = 20;
+    static final long UUID_TYPE_ID = 34;
+    static final long URL_TYPE_ID = 29;
+    static final long OPAQUE_TYPE_ID = 1;
+
+    private final Map<Long, CFObject> objects = new ConcurrentHashMap<>();
+    // Object addresses are 16-byte aligned, like malloc'd ones, and never reused
+    private final AtomicLong nextAddress = new AtomicLong(0x1000_0000L);
+    private final ThreadLocal<RunLoop> currentRunLoop = new ThreadLocal<>();
+    private final Pointer booleanTrue = register(new CFObject(BOOLEAN_TYPE_ID, Boolean.TRUE), true);
+    private final Pointer booleanFalse = register(new CFObject(BOOLEAN_TYPE_ID, Boolean.FALSE), true);
+    private final Pointer defaultMode = constantString("kCFRunLoopDefaultMode");
+    private volatile boolean cStringPointers = true;
+
+    /**
+     * A CoreFoundation object. The value is what CFEqual compares: a String, Long, Boolean,
+     * UUID string, URL path, or the contents of a collection.
+     */
+    static class CFObject {
+        final long typeId;
+        final Object value;
+        final AtomicInteger references = new AtomicInteger(1);
+        Pointer pointer;
+        boolean immortal;
+
+        CFObject(long typeId, Object value) {
+            this.typeId = typeId;
+            this.value = value;
+        }
+
+        /**
+         * Called when the last reference is released.
+         */
+        void dispose() {
+        }
+    }
+
+    private static final class CFString extends CFObject {
+        // Kept alive with the string, like the internal buffer CFStringGetCStringPtr points into
+        private final Memory utf8;
+
+        CFString(String value) {
+            super(STRING_TYPE_ID, value);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            utf8 = new Memory(bytes.length + 1L);
+            utf8.write(0, bytes, 0, bytes.length);
+            utf8.setByte(bytes.length, (byte) 0);
+        }
+    }
+
+    /**
+     * A dictionary keyed by the values of its keys, so lookups follow CFEqual rather than identity.
+     */
+    private final class CFDictionary extends CFObject {
+        final Map<Object, Pointer[]> entries;
+
+        CFDictionary(Map<Object, Pointer[]> entries) {
+            super(DICTIONARY_TYPE_ID, entries);
+            this.entries = entries;
+        }
+
+        @Override
+        void dispose() {
+            for (Pointer[] entry : entries.values()) {
+                CFRelease(entry[0]);
+                CFRelease(entry[1]);
+            }
+        }
+    }
+
+    private final class CFArray extends CFObject {
+        final List<Pointer> elements;
+
+        CFArray(List<Pointer> elements) {
+            super(ARRAY_TYPE_ID, elements);
+            this.elements = elements;
+        }
+
+        @Override
+        void dispose() {
+            for (Pointer element : elements) {
+                CFRelease(element);
+            }
+        }
+    }
+
+    private static final class Timer extends CFObject {
+        final double interval;
+        final CFRunLoopTimerCallBack callback;
+        volatile double fireDate;
+        volatile boolean valid = true;
+
+        Timer(double fireDate, double interval, CFRunLoopTimerCallBack callback) {
+            super(OPAQUE_TYPE_ID, null);
+            this.fireDate = fireDate;
+            this.interval = interval;
+            this.callback = callback;
+        }
+    }
+
+    private static final class Observer extends CFObject {
+        final long activities;
+        final boolean repeats;
+        final CFRunLoopObserverCallBack callback;
+        volatile boolean valid = true;
+
+        Observer(long activities, boolean repeats, CFRunLoopObserverCallBack callback) {
+            super(OPAQUE_TYPE_ID, null);
+            this.activities = activities;
+            this.repeats = repeats;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * A run loop serving tasks posted by {@link #post(Runnable)} in order.
+     */
+    final class RunLoop extends CFObject {
+        private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+        private final List<Timer> timers = new CopyOnWriteArrayList<>();
+        private final List<Observer> observers = new CopyOnWriteArrayList<>();
+        // Only touched on the run loop's thread
+        private final List<Runnable> waiting = new ArrayList<>();
+        private volatile boolean stopRequested;
+
+        RunLoop() {
+            super(OPAQUE_TYPE_ID, null);
+        }
+
+        /**
+         * Queues a task to run on the run loop's thread. Safe to call from any thread.
+         */
+        void post(Runnable task) {
+            tasks.add(task);
+        }
+
+        /**
+         * Runs a task the next time the run loop is about to wait once the tasks queued before it
+         * have run, after its {@code kCFRunLoopBeforeWaiting} observers. Safe to call from any thread.
+         */
+        void postWhenWaiting(Runnable task) {
+            tasks.add(() -> waiting.add(task));
+        }
+
+        void stop() {
+            stopRequested = true;
+            tasks.add(() -> { });
+        }
+
+        void run() {
+            try {
+                while (!stopRequested) {
+                    fireDueTimers();
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        notifyObservers(kCFRunLoopBeforeWaiting);
+                        runWaiting();
+                        task = tasks.poll(nanosUntilNextTimer(), TimeUnit.NANOSECONDS);
+                    }
+                    if (task != null) {
+                        runCallout(task);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Like CoreFoundation, a stop issued before the run loop runs ends its next run
+            stopRequested = false;
+            notifyObservers(kCFRunLoopExit);
+        }
+
+        private void fireDueTimers() {
+            double now = CFAbsoluteTimeGetCurrent();
+            for (Timer timer : timers) {
+                if (!timer.valid) {
+                    timers.remove(timer);
+                } else if (timer.fireDate <= now) {
+                    // Like CoreFoundation, a timer that does not repeat is invalidated once it fires
+                    if (timer.interval > 0) {
+                        timer.fireDate = Math.max(timer.fireDate + timer.interval, now);
+                    } else {
+                        timer.valid = false;
+                    }
+                    runCallout(() -> timer.callback.invoke(timer.pointer, null));
+                }
+            }
+        }
+
+        private long nanosUntilNextTimer() {
+            double next = Double.MAX_VALUE;
+            for (Timer timer : timers) {
+                if (timer.valid) {
+                    next = Math.min(next, timer.fireDate);
+                }
+            }
+            double seconds = next - CFAbsoluteTimeGetCurrent();
+            // Capped, so a timer rescheduled from another thread is noticed reasonably soon
+            return (long) (Math.max(0, Math.min(seconds, 1.0)) * 1e9);
+        }
+
+        private void runWaiting() {
+            List<Runnable> due = List.copyOf(waiting);
+            waiting.clear();
+            due.forEach(this::runCallout);
+        }
+
+        private void notifyObservers(long activity) {
+            for (Observer observer : observers) {
+                if (observer.valid && (observer.activities & activity) != 0) {
+                    if (!observer.repeats) {
+                        observer.valid = false;
+                    }
+                    runCallout(() -> observer.callback.invoke(observer.pointer, activity, null));
+                }
+            }
+        }
+
+        private void runCallout(Runnable callout) {
+            try {
+                callout.run();
+            } catch (RuntimeException e) {
+                // Native code cannot propagate Java exceptions either; JNA logs and drops them
+                LOGGER.error("Uncaught exception in run-loop callout", e);
+            }
+        }
+    }
+
+    /**
+     * Registers an object and returns its pointer. Immortal objects ignore retain and release,
+     * like CFSTR constants.
+     */
+    Pointer register(CFObject object, boolean immortal) {
+        long address = nextAddress.getAndAdd(16);
+        object.pointer = new Pointer(address);
+        object.immortal = immortal;
+        objects.put(address, object);
+        return object.pointer;
+    }
+
+    /**
+     * Returns the object a pointer refers to, failing like a bad access would if it has been freed.
+     */
+    CFObject object(Pointer pointer) {
+        CFObject object = pointer == null ? null : objects.get(Pointer.nativeValue(pointer));
+        if (object == null) {
+            throw new IllegalArgumentException("Not a live CoreFoundation object: " + pointer);
+        }
+        return object;
+    }
+
+    /**
+     * Returns the number of objects that have not been released, constants included.
+     */
+    int liveObjectCount() {
+        return objects.size();
+    }
+
+    void disableCStringPointers() {
+        cStringPointers = false;
+    }
+
+    Pointer string(String value) {
+        return register(new CFString(value), false);
+    }
+
+    Pointer constantString(String value) {
+        return register(new CFString(value), true);
+    }
+
+    Pointer number(long value) {
+        return register(new CFObject(NUMBER_TYPE_ID, value), false);
+    }
+
+    Pointer bool(boolean value) {
+        return value ? booleanTrue : booleanFalse;
+    }
+
+    Pointer uuid(String value) {
+        return register(new CFObject(UUID_TYPE_ID, value), false);
+    }
+
+    Pointer url(String path) {
+        return register(new CFObject(URL_TYPE_ID, path), false);
+    }
+
+    /**
+     * Creates a dictionary that takes over the caller's reference to each key and value.
+     */
+    Pointer dictionary(Map<Pointer, Pointer> contents) {
+        Map<Object, Pointer[]> entries = new LinkedHashMap<>();
+        for (Map.Entry<Pointer, Pointer> entry : contents.entrySet()) {
+            entries.put(object(entry.getKey()).value, new Pointer[]{entry.getKey(), entry.getValue()});
+        }
+        return register(new CFDictionary(entries), false);
+    }
+
+    /**
+     * Creates an array that takes over the caller's reference to each element.
+     */
+    Pointer array(List<Pointer> elements) {
+        return register(new CFArray(List.copyOf(elements)), false);
+    }
+
+    Pointer retain(Pointer pointer) {
+        CFObject object = object(pointer);
+        if (!object.immortal) {
+            object.references.incrementAndGet();
+        }
+        return pointer;
+    }
+
+    /**
+     * Returns whether every entry of {@code match} is in {@code dict} with an equal value.
+     */
+    boolean matches(Pointer dict, Pointer match) {
+        Map<Object, Pointer[]> entries = ((CFDictionary) object(dict)).entries;
+        for (Map.Entry<Object, Pointer[]> criterion : ((CFDictionary) object(match)).entries.entrySet()) {
+            Pointer[] entry = entries.get(criterion.getKey());
+            if (entry == null || !Objects.equals(object(entry[1]).value, object(criterion.getValue()[1]).value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the values of a CFArray's elements.
+     */
+    List<Object> arrayValues(Pointer array) {
+        List<Object> values = new ArrayList<>();
+        for (Pointer element : ((CFArray) object(array)).elements) {
+            values.add(object(element).value);
+        }
+        return values;
+    }
+
+    RunLoop runLoop(Pointer pointer) {
+        return (RunLoop) object(pointer);
+    }
+
+    @Override
+    public Pointer CFRunLoopGetCurrent() {
+        RunLoop runLoop = currentRunLoop.get();
+        if (runLoop == null) {
+            runLoop = new RunLoop();
+            register(runLoop, true);
+            currentRunLoop.set(runLoop);
+        }
+        return runLoop.pointer;
+    }
+
+    @Override
+    public void CFRunLoopRun() {
+        runLoop(CFRunLoopGetCurrent()).run();
+    }
+
+    @Override
+    public void CFRunLoopStop(Pointer rl) {
+        runLoop(rl).stop();
+    }
+
+    @Override
+    public void CFRunLoopWakeUp(Pointer rl) {
+        runLoop(rl).post(() -> { });
+    }
+
+    @Override
+    public Pointer CFRunLoopTimerCreate(Pointer allocator, double fireDate, double interval, long flags, long order,
+                                        CFRunLoopTimerCallBack callout, Pointer context) {
+        return register(new Timer(fireDate, interval, callout), false);
+    }
+
+    @Override
+    public void CFRunLoopAddTimer(Pointer rl, Pointer timer, Pointer mode) {
+        runLoop(rl).timers.add((Timer) object(timer));
+    }
+
+    @Override
+    public void CFRunLoopTimerSetNextFireDate(Pointer timer, double fireDate) {
+        ((Timer) object(timer)).fireDate = fireDate;
+    }
+
+    @Override
+    public void CFRunLoopTimerInvalidate(Pointer timer) {
+        ((Timer) object(timer)).valid = false;
+    }
+
+    @Override
+    public double CFAbsoluteTimeGetCurrent() {
+        return System.nanoTime() / 1e9;
+    }
+
+    @Override
+    public Pointer CFRunLoopObserverCreate(Pointer allocator, long activities, boolean repeats, long order,
+                                           CFRunLoopObserverCallBack callout, Pointer context) {
+        return register(new Observer(activities, repeats, callout), false);
+    }
+
+    @Override
+    public void CFRunLoopAddObserver(Pointer rl, Pointer observer, Pointer mode) {
+        runLoop(rl).observers.add((Observer) object(observer));
+    }
+
+    @Override
+    public void CFRunLoopObserverInvalidate(Pointer observer) {
+        ((Observer) object(observer)).valid = false;
+    }
+
+    @Override
+    public Pointer CFDictionaryGetValue(Pointer dict, Pointer key) {
+        Pointer[] entry = ((CFDictionary) object(dict)).entries.get(object(key).value);
+        return entry == null ? null : entry[1];
+    }
+
+    @Override
+    public long CFDictionaryGetCount(Pointer dict) {
+        return ((CFDictionary) object(dict)).entries.size();
+    }
+
+    @Override
+    public void CFDictionaryGetKeysAndValues(Pointer dict, Pointer keys, Pointer values) {
+        long offset = 0;
+        for (Pointer[] entry : ((CFDictionary) object(dict)).entries.values()) {
+            if (keys != null) {
+                keys.setPointer(offset, entry[0]);
+            }
+            if (values != null) {
+                values.setPointer(offset, entry[1]);
+            }
+            offset += Native.POINTER_SIZE;
+        }
+    }
+
+    @Override
+    public long CFArrayGetCount(Pointer theArray) {
+        return ((CFArray) object(theArray)).elements.size();
+    }
+
+    @Override
+    public Pointer CFArrayGetValueAtIndex(Pointer theArray, long idx) {
+        return ((CFArray) object(theArray)).elements.get((int) idx);
+    }
+
+    @Override
+    public Pointer CFStringGetCStringPtr(Pointer theString, int encoding) {
+        CFString string = (CFString) object(theString);
+        return cStringPointers ? string.utf8 : null;
+    }
+
+    @Override
+    public boolean CFStringGetCString(Pointer theString, byte[] buffer, long bufferSize, int encoding) {
+        byte[] bytes = ((String) object(theString).value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length + 1 > bufferSize) {
+            return false;
+        }
+        System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+        buffer[bytes.length] = 0;
+        return true;
+    }
+
+    @Override
+    public long CFStringGetLength(Pointer theString) {
+        return ((String) object(theString).value).length();
+    }
+
+    @Override
+    public long CFStringGetMaximumSizeForEncoding(long length, int encoding) {
+        return length * 3;
+    }
+
+    @Override
+    public long CFStringGetBytes(Pointer theString, CFRange.ByValue range, int encoding, byte lossByte,
+                                 boolean isExternalRepresentation, Pointer buffer, long maxBufLen, Pointer usedBufLen) {
+        String value = (String) object(theString).value;
+        String requested = value.substring((int) range.location, (int) (range.location + range.length));
+        byte[] bytes = requested.getBytes(StandardCharsets.UTF_8);
+        long converted = requested.length();
+        long used = bytes.length;
+        if (buffer != null && bytes.length > maxBufLen) {
+            // Only whole characters are converted, so stop at the last one that fits
+            converted = 0;
+            used = 0;
+            for (int i = 0; i < requested.length(); ) {
+                int codePoint = requested.codePointAt(i);
+                int size = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length;
+                if (used + size > maxBufLen) {
+                    break;
+                }
+                used += size;
+                i += Character.charCount(codePoint);
+                converted = i;
+            }
+        }
+        if (buffer != null) {
+            buffer.write(0, bytes, 0, (int) used);
+        }
+        if (usedBufLen != null) {
+            usedBufLen.setLong(0, used);
+        }
+        return converted;
+    }
+
+    @Override
+    public Pointer CFStringCreateWithCString(Pointer allocator, String cStr, int encoding) {
+        return string(cStr);
+    }
+
+    @Override
+    public Pointer CFRetain(Pointer cf) {
+        return retain(cf);
+    }
+
+    @Override
+    public void CFRelease(Pointer cf) {
+        CFObject object = object(cf);
+        if (object.immortal) {
+            return;
+        }
+        int remaining = object.references.decrementAndGet();
+        if (remaining == 0) {
+            objects.remove(Pointer.nativeValue(cf));
+            object.dispose();
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Over-released " + cf);
+        }
+    }
+
+    @Override
+    public boolean CFBooleanGetValue(Pointer booleanRef) {
+        return (Boolean) object(booleanRef).value;
+    }
+
+    @Override
+    public boolean CFNumberGetValue(Pointer number, int theType, Pointer valuePtr) {
+        long value = (Long) object(number).value;
+        if (theType == kCFNumberSInt32Type) {
+            valuePtr.setInt(0, (int) value);
+            return value == (int) value;
+        }
+        valuePtr.setLong(0, value);
+        return true;
+    }
+
+    @Override
+    public Pointer getkCFRunLoopDefaultMode() {
+        return defaultMode;
+    }
+
+    @Override
+    public Pointer getkCFBooleanTrue() {
+        return booleanTrue;
+    }
+
+    @Override
+    public Pointer getkCFBooleanFalse() {
+        return booleanFalse;
+    }
+
+    @Override
+    public Pointer getkCFTypeDictionaryKeyCallBacks() {
+        return null;
+    }
+
+    @Override
+    public Pointer getkCFTypeDictionaryValueCallBacks() {
+        return null;
+    }
+
+    @Override
+    public Pointer CFDictionaryCreateMutable(Pointer allocator, long capacity, Pointer keyCallBacks, Pointer valueCallBacks) {
+        return dictionary(Map.of());
+    }
+
+    @Override
+    public Pointer getkCFTypeArrayCallBacks() {
+        return null;
+    }
+
+    @Override
+    public Pointer CFArrayCreate(Pointer allocator, Pointer[] values, long numValues, Pointer callBacks) {
+        List<Pointer> elements = new ArrayList<>();
+        for (int i = 0; i < numValues; i++) {
+            elements.add(retain(values[i]));
+        }
+        return array(elements);
+    }
+
+    @Override
+    public void CFDictionarySetValue(Pointer dict, Pointer key, Pointer value) {
+        Map<Object, Pointer[]> entries = ((CFDictionary) object(dict)).entries;
+        Pointer[] previous = entries.put(object(key).value, new Pointer[]{retain(key), retain(value)});
+        if (previous != null) {
+            CFRelease(previous[0]);
+            CFRelease(previous[1]);
+        }
+    }
+
+    @Override
+    public Pointer CFURLCopyFileSystemPath(Pointer url, int pathStyle) {
+        return string((String) object(url).value);
+    }
+
+    @Override
+    public long CFURLGetTypeID() {
+        return URL_TYPE_ID;
+    }
+
+    @Override
+    public Pointer CFUUIDCreateString(Pointer allocator, Pointer uuid) {
+        return string((String) object(uuid).value);
+    }
+
+    @Override
+    public long CFUUIDGetTypeID() {
+        return UUID_TYPE_ID;
+    }
+
+    @Override
+    public long CFGetTypeID(Pointer cf) {
+        return object(cf).typeId;
+    }
+
+    @Override
+    public boolean CFEqual(Pointer cf1, Pointer cf2) {
+        CFObject first = object(cf1);
+        CFObject second = object(cf2);
+        return first.typeId == second.typeId && Objects.equals(first.value, second.value);
+    }
+
+    @Override
+    public long CFStringGetTypeID() {
+        return STRING_TYPE_ID;
+    }
+
+    @Override
+    public long CFNumberGetTypeID() {
+        return NUMBER_TYPE_ID;
+    }
+
+    @Override
+    public long CFBooleanGetTypeID() {
+        return BOOLEAN_TYPE_ID;
+    }
+
+    @Override
+    public long CFDictionaryGetTypeID() {
+        return DICTIONARY_TYPE_ID;
+    }
+
+    @Override
+    public long CFDataGetTypeID() {
+        return DATA_TYPE_ID;
+    }
+}
@@ -0,0 +1,343 @@
+package com.selesse.jdiskarbitration.internal;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DiskArbitration implemented in Java on top of {@link SimulatedCoreFoundation}, for {@link SimulatedBackend}.
+ *
+ * <p>Disks are attached, changed and detached by calling this class from any thread. Each event is
+ * posted to the run loop of every scheduled session, where the matching callbacks are invoked with a
+ * fresh DADisk holding the description as of the event, as DiskArbitration does. Scheduling a session
+ * replays an appeared callback for every attached disk.
+ */
+class SimulatedDiskArbitration implements DiskArbitration {
+    private final SimulatedCoreFoundation cf;
+    // Current description of each attached disk, each holding one reference
+    private final Map<String, Pointer> descriptions = new LinkedHashMap<>();
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+
+    private enum Kind {
+        APPEARED,
+        DISAPPEARED,
+        DESCRIPTION_CHANGED
+    }
+
+    private record Registration(Kind kind, Callback callback, Pointer match, Pointer watch) {
+    }
+
+    private final class Session extends SimulatedCoreFoundation.CFObject {
+        final List<Registration> registrations = new CopyOnWriteArrayList<>();
+        volatile SimulatedCoreFoundation.RunLoop runLoop;
+
+        Session() {
+            super(SimulatedCoreFoundation.OPAQUE_TYPE_ID, null);
+        }
+
+        @Override
+        void dispose() {
+            sessions.remove(this);
+            for (Registration registration : registrations) {
+                releaseRegistration(registration);
+            }
+        }
+    }
+
+    private final class Disk extends SimulatedCoreFoundation.CFObject {
+        final Memory bsdName;
+        final Pointer description;
+
+        Disk(String bsdName, Pointer description) {
+            super(SimulatedCoreFoundation.OPAQUE_TYPE_ID, bsdName);
+            this.bsdName = new Memory(bsdName.length() + 1L);
+            this.bsdName.setString(0, bsdName);
+            this.description = cf.retain(description);
+        }
+
+        @Override
+        void dispose() {
+            cf.CFRelease(description);
+        }
+    }
+
+    SimulatedDiskArbitration(SimulatedCoreFoundation cf) {
+        this.cf = cf;
+    }
+
+    /**
+     * Attaches a disk, taking over the caller's reference to its description.
+     */
+    synchronized void appear(String bsdName, Pointer description) {
+        if (descriptions.containsKey(bsdName)) {
+            cf.CFRelease(description);
+            throw new IllegalStateException(bsdName + " is already attached");
+        }
+        descriptions.put(bsdName, description);
+        for (Session session : sessions) {
+            for (Registration registration : session.registrations) {
+                if (registration.kind() == Kind.APPEARED) {
+                    post(session, registration, bsdName, description, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the description of an attached disk, taking over the caller's reference to it.
+     *
+     * @param changedKeys the description keys whose values changed
+     */
+    synchronized void changeDescription(String bsdName, Pointer description, List<Pointer> changedKeys) {
+        Pointer previous = descriptions.get(bsdName);
+        if (previous == null) {
+            cf.CFRelease(description);
+            throw new IllegalStateException(bsdName + " is not attached");
+        }
+        descriptions.put(bsdName, description);
+        cf.CFRelease(previous);
+        for (Session session : sessions) {
+            for (Registration registration : session.registrations) {
+                if (registration.kind() == Kind.DESCRIPTION_CHANGED && watches(registration.watch(), changedKeys)) {
+                    post(session, registration, bsdName, description, changedKeys);
+                }
+            }
+        }
+    }
+
+    /**
+     * Detaches a disk.
+     */
+    synchronized void disappear(String bsdName) {
+        Pointer description = descriptions.remove(bsdName);
+        if (description == null) {
+            throw new IllegalStateException(bsdName + " is not attached");
+        }
+        for (Session session : sessions) {
+            for (Registration registration : session.registrations) {
+                if (registration.kind() == Kind.DISAPPEARED) {
+                    post(session, registration, bsdName, description, null);
+                }
+            }
+        }
+        cf.CFRelease(description);
+    }
+
+    /**
+     * Returns a new DADisk holding the current description of an attached disk, owned by the caller.
+     */
+    synchronized Pointer copyDisk(String bsdName) {
+        Pointer description = descriptions.get(bsdName);
+        if (description == null) {
+            throw new IllegalStateException(bsdName + " is not attached");
+        }
+        return cf.register(new Disk(bsdName, description), false);
+    }
+
+    int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Waits until a session is scheduled, then until every scheduled session's run loop has handled
+     * the events posted so far and is about to wait again.
+     *
+     * @return false if the timeout elapsed first
+     */
+    boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<CountDownLatch> latches = new ArrayList<>();
+        synchronized (this) {
+            while (sessions.stream().allMatch(session -> session.runLoop == null)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            for (Session session : sessions) {
+                SimulatedCoreFoundation.RunLoop runLoop = session.runLoop;
+                if (runLoop != null) {
+                    CountDownLatch latch = new CountDownLatch(1);
+                    runLoop.postWhenWaiting(latch::countDown);
+                    latches.add(latch);
+                }
+            }
+        }
+        for (CountDownLatch latch : latches) {
+            if (!latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean watches(Pointer watch, List<Pointer> changedKeys) {
+        if (watch == null) {
+            return true;
+        }
+        Set<Object> watched = new HashSet<>(cf.arrayValues(watch));
+        for (Pointer key : changedKeys) {
+            if (watched.contains(cf.object(key).value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Posts one callback to the session's run loop. The match dictionary is evaluated and the
+     * registration checked on the run loop, so callbacks unregistered in the meantime are skipped.
+     */
+    private void post(Session session, Registration registration, String bsdName, Pointer description,
+                      List<Pointer> changedKeys) {
+        SimulatedCoreFoundation.RunLoop runLoop = session.runLoop;
+        if (runLoop == null) {
+            return;
+        }
+        Disk disk = new Disk(bsdName, description);
+        Pointer daDisk = cf.register(disk, false);
+        List<Pointer> keys = new ArrayList<>();
+        if (changedKeys != null) {
+            for (Pointer key : changedKeys) {
+                keys.add(cf.retain(key));
+            }
+        }
+        Pointer keysArray = changedKeys == null ? null : cf.array(keys);
+        runLoop.post(() -> {
+            try {
+                if (session.registrations.contains(registration)
+                    && (registration.match() == null || cf.matches(description, registration.match()))) {
+                    invoke(registration, daDisk, keysArray);
+                }
+            } finally {
+                cf.CFRelease(daDisk);
+                if (keysArray != null) {
+                    cf.CFRelease(keysArray);
+                }
+            }
+        });
+    }
+
+    private static void invoke(Registration registration, Pointer daDisk, Pointer keysArray) {
+        switch (registration.kind()) {
+            case APPEARED -> ((DADiskAppearedCallback) registration.callback()).invoke(daDisk, null);
+            case DISAPPEARED -> ((DADiskDisappearedCallback) registration.callback()).invoke(daDisk, null);
+            case DESCRIPTION_CHANGED ->
+                ((DADiskDescriptionChangedCallback) registration.callback()).invoke(daDisk, keysArray, null);
+        }
+    }
+
+    private synchronized void register(Pointer session, Kind kind, Callback callback, Pointer match, Pointer watch) {
+        Session target = (Session) cf.object(session);
+        Registration registration = new Registration(kind, callback,
+            match == null ? null : cf.retain(match), watch == null ? null : cf.retain(watch));
+        target.registrations.add(registration);
+        // Disks attached before registering are replayed now, or once the session is scheduled
+        if (kind == Kind.APPEARED) {
+            for (Map.Entry<String, Pointer> disk : descriptions.entrySet()) {
+                post(target, registration, disk.getKey(), disk.getValue(), null);
+            }
+        }
+    }
+
+    private synchronized void unregister(Pointer session, Callback callback) {
+        Session target = (Session) cf.object(session);
+        for (Registration registration : target.registrations) {
+            if (registration.callback() == callback) {
+                target.registrations.remove(registration);
+                releaseRegistration(registration);
+            }
+        }
+    }
+
+    private void releaseRegistration(Registration registration) {
+        if (registration.match() != null) {
+            cf.CFRelease(registration.match());
+        }
+        if (registration.watch() != null) {
+            cf.CFRelease(registration.watch());
+        }
+    }
+
+    @Override
+    public Pointer DADiskCopyDescription(Pointer disk) {
+        // Descriptions are never modified once created, so a copy can share the original
+        return cf.retain(((Disk) cf.object(disk)).description);
+    }
+
+    @Override
+    public Pointer DADiskGetBSDName(Pointer disk) {
+        return ((Disk) cf.object(disk)).bsdName;
+    }
+
+    @Override
+    public Pointer DASessionCreate(Pointer allocator) {
+        Session session = new Session();
+        Pointer pointer = cf.register(session, false);
+        sessions.add(session);
+        return pointer;
+    }
+
+    @Override
+    public void DARegisterDiskAppearedCallback(Pointer session, Pointer match, DADiskAppearedCallback callback,
+                                               Pointer context) {
+        register(session, Kind.APPEARED, callback, match, null);
+    }
+
+    @Override
+    public void DARegisterDiskDisappearedCallback(Pointer session, Pointer match, DADiskDisappearedCallback callback,
+                                                  Pointer context) {
+        register(session, Kind.DISAPPEARED, callback, match, null);
+    }
+
+    @Override
+    public void DARegisterDiskDescriptionChangedCallback(Pointer session, Pointer match, Pointer probe,
+                                                         DADiskDescriptionChangedCallback callback, Pointer context) {
+        register(session, Kind.DESCRIPTION_CHANGED, callback, match, probe);
+    }
+
+    @Override
+    public void DAUnregisterCallback(Pointer session, DADiskAppearedCallback callback, Pointer context) {
+        unregister(session, callback);
+    }
+
+    @Override
+    public void DAUnregisterCallback(Pointer session, DADiskDisappearedCallback callback, Pointer context) {
+        unregister(session, callback);
+    }
+
+    @Override
+    public void DAUnregisterCallback(Pointer session, DADiskDescriptionChangedCallback callback, Pointer context) {
+        unregister(session, callback);
+    }
+
+    @Override
+    public synchronized void DASessionScheduleWithRunLoop(Pointer session, Pointer runLoop, Pointer runLoopMode) {
+        Session target = (Session) cf.object(session);
+        target.runLoop = cf.runLoop(runLoop);
+        for (Registration registration : target.registrations) {
+            if (registration.kind() == Kind.APPEARED) {
+                for (Map.Entry<String, Pointer> disk : descriptions.entrySet()) {
+                    post(target, registration, disk.getKey(), disk.getValue(), null);
+                }
+            }
+        }
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void DASessionUnscheduleFromRunLoop(Pointer session, Pointer runLoop, Pointer runLoopMode) {
+        ((Session) cf.object(session)).runLoop = null;
+    }
+}